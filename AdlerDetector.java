@@ -0,0 +1,97 @@
+// =============================================================================
+/**
+ * The Adler-32 checksum of RFC 1950: a sum of the bytes starting from 1, and
+ * a sum of those sums, each modulo 65521.  The trailer is the second sum
+ * followed by the first.
+ *
+ * @file   AdlerDetector.java
+ * @date   October 2026
+ */
+public class AdlerDetector implements ErrorDetector {
+// =============================================================================
+
+
+
+    // =========================================================================
+    public int length () {
+
+	return 4;
+
+    } // length ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    public long start () {
+
+	return 1;
+
+    } // start ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    public long update (long state, byte data) {
+
+	long a = ((state & 0xffff) + (data & 0xff)) % MODULUS;
+	long b = ((state >>> 16) + a) % MODULUS;
+	return (b << 16) | a;
+
+    } // update ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Defer the modulus across runs of at most <code>NMAX</code> bytes, the
+     * most for which the sums cannot overflow 32 bits.
+     */
+    public long update (long state, byte[] data, int from, int to) {
+
+	long a = state & 0xffff;
+	long b = state >>> 16;
+	while (from < to) {
+	    int end = Math.min(to, from + NMAX);
+	    for (int i = from; i < end; i += 1) {
+		a += data[i] & 0xff;
+		b += a;
+	    }
+	    a    %= MODULUS;
+	    b    %= MODULUS;
+	    from  = end;
+	}
+	return (b << 16) | a;
+
+    } // update ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    public long trailer (long state) {
+
+	return state;
+
+    } // trailer ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // DATA MEMBERS
+
+    /** The largest prime below 2^16. */
+    private static final long MODULUS = 65521;
+
+    /** The most bytes that may be summed before reducing. */
+    private static final int  NMAX    = 5552;
+    // =========================================================================
+
+
+
+// =============================================================================
+} // class AdlerDetector
+// =============================================================================
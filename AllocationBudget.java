@@ -0,0 +1,559 @@
+// =============================================================================
+// IMPORTS
+
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+// =============================================================================
+
+
+
+// =============================================================================
+/**
+ * Measures the bytes allocated per frame on the hot paths of each data link
+ * layer over each medium, and fails if any exceeds its budget.  The
+ * measurements, each the least of several rounds after a warm-up round, are:
+ *
+ *   send        A host sending a frame, through its layer and the medium,
+ *               with nothing on the medium but a tap recording the bits.
+ *   medium      The medium alone carrying the recorded bits to the tap.
+ *   receive     A layer receiving the recorded bits and delivering the
+ *               frame to its host.
+ *   round-trip  A host sending a frame to another on the same medium,
+ *               everything included.
+ *
+ * A layer that sends only once its frames are acknowledged, such as
+ * <code>Duplex</code>, cannot send to a tap, so only its round trip is
+ * measured.  Over a noisy medium, that round trip waits out retransmission
+ * timers, so <code>Duplex</code> is measured only if named.
+ *
+ * The allocation is summed over all live threads, using the per-thread
+ * counters of <code>com.sun.management.ThreadMXBean</code>, so that work done
+ * on verifier and timer threads is counted.  Bytes allocated by a thread that
+ * ends during a measurement are missed, and the JIT may still be removing
+ * allocations after the warm-up, which is why the least round is taken.
+ *
+ * A budget names a measurement, optionally qualified by a layer type, or by
+ * a layer type and a medium type, as in
+ *
+ *   --budget send=0,receive=256,CRC.receive=512,Staged/LowNoise.round-trip=4096
+ *
+ * and the most specific budget applies.  A measurement with no budget is
+ * only reported.  If any budget is exceeded, each excess is printed and the
+ * exit status is 1.
+ *
+ * @file   AllocationBudget.java
+ * @date   October 2026
+ */
+public class AllocationBudget {
+// =============================================================================
+
+
+
+    // =========================================================================
+    /**
+     * The entry point.  Interpret the command-line arguments, aborting if they
+     * are invalid, and then take the measurements.
+     *
+     * @param args The command-line arguments.
+     */
+    public static void main (String[] args) {
+
+	String[] layerTypes  = { "Dumb", "Parity", "CRC", "Staged", "HDLC" };
+	String[] mediumTypes = { "Perfect", "LowNoise" };
+	double   error       = LowNoiseMedium.DEFAULT_ERROR_PROBABILITY;
+	int      frames      = 2000;
+	int      frameBytes  = 64;
+	int      rounds      = 5;
+	String   stages      = "";
+	long     seed        = LowNoiseMedium.DEFAULT_SEED;
+	String   budgetSpec  = "";
+	String   outputPath  = null;
+
+	for (int i = 0; i < args.length; i += 2) {
+	    if (i + 1 >= args.length) {
+		usage();
+	    }
+	    String option = args[i];
+	    String value  = args[i + 1];
+	    if (option.equals("--layers")) {
+		layerTypes = value.split(",");
+	    } else if (option.equals("--mediums")) {
+		mediumTypes = value.split(",");
+	    } else if (option.equals("--error")) {
+		error = Double.parseDouble(value);
+	    } else if (option.equals("--frames")) {
+		frames = Integer.parseInt(value);
+	    } else if (option.equals("--frame-bytes")) {
+		frameBytes = Integer.parseInt(value);
+	    } else if (option.equals("--rounds")) {
+		rounds = Integer.parseInt(value);
+	    } else if (option.equals("--stages")) {
+		stages = value;
+	    } else if (option.equals("--seed")) {
+		seed = Long.parseLong(value);
+	    } else if (option.equals("--budget")) {
+		budgetSpec = value;
+	    } else if (option.equals("--out")) {
+		outputPath = value;
+	    } else {
+		usage();
+	    }
+	}
+	if (frames < 1 || frameBytes < 1 || rounds < 1) {
+	    usage();
+	}
+	Map<String, Long> budgets = parseBudgets(budgetSpec);
+
+	PrintStream output = System.out;
+	if (outputPath != null) {
+	    try {
+		output = new PrintStream(outputPath);
+	    } catch (FileNotFoundException e) {
+		throw new RuntimeException("Could not write " + outputPath);
+	    }
+	}
+
+	LayerConfig  config  = LayerConfig.DEFAULT.withFrameSize(frameBytes)
+	                                          .withStages(stages.isEmpty()
+							      ? new String[0]
+							      : stages.split(","));
+	MediumConfig noise   = MediumConfig.DEFAULT.withErrorProbability(error)
+	                                           .withSeed(seed);
+	byte[]       payload = new byte[frameBytes];
+	new SplittableRandom(seed).nextBytes(payload);
+	Meter        meter   = new Meter();
+
+	output.println("layer,medium,frame_bytes,frames," +
+		       "send_per_frame,medium_per_frame,receive_per_frame,round_trip_per_frame");
+	List<String> excesses = new ArrayList<String>();
+	for (String layerType : layerTypes) {
+	    for (String mediumType : mediumTypes) {
+		Target target = new Target(layerType, mediumType, noise, config, payload, frames);
+		long[] perFrame = new long[MEASURES.length];
+		for (int m = 0; m < MEASURES.length; m += 1) {
+		    perFrame[m] = target.measure(m, meter, rounds);
+		}
+		output.println(String.format(Locale.ROOT, "%s,%s,%d,%d,%s,%s,%s,%s",
+					     layerType, mediumType, frameBytes, frames,
+					     format(perFrame[SEND]),
+					     format(perFrame[MEDIUM]),
+					     format(perFrame[RECEIVE]),
+					     format(perFrame[ROUND_TRIP])));
+		output.flush();
+		for (int m = 0; m < MEASURES.length; m += 1) {
+		    Long budget = budgetFor(budgets, layerType, mediumType, MEASURES[m]);
+		    if (budget != null && perFrame[m] > budget) {
+			excesses.add(layerType + "/" + mediumType + " " + MEASURES[m] +
+				     ": " + perFrame[m] + " bytes per frame, over the budget of " +
+				     budget);
+		    }
+		}
+	    }
+	}
+	if (output != System.out) {
+	    output.close();
+	}
+
+	if (!excesses.isEmpty()) {
+	    for (String excess : excesses) {
+		System.err.println("Over budget: " + excess);
+	    }
+	    System.exit(1);
+	}
+	System.exit(0);
+
+    } // main ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Print the command-line usage and exit.
+     */
+    private static void usage () {
+
+	System.err.println("Usage: java AllocationBudget "                 +
+			   "[--layers <types>] "                           +
+			   "[--mediums <types>] "                          +
+			   "[--error <probability>] "                      +
+			   "[--frames <count>] "                           +
+			   "[--frame-bytes <bytes>] "                      +
+			   "[--rounds <count>] "                           +
+			   "[--stages <stage,...>] "                       +
+			   "[--seed <seed>] "                              +
+			   "[--budget <[layer[/medium].]measure=bytes,...>] " +
+			   "[--out <results file>]\n"                      +
+			   "Lists are comma-separated.  The measures are "  +
+			   "send, medium, receive and round-trip.");
+	System.exit(1);
+
+    } // usage ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Parse a list of budgets.
+     *
+     * @param  spec The comma-separated budgets, each <code>key=bytes</code>.
+     * @return the budgets by key.
+     * @throws RuntimeException if a budget is malformed or names no measure.
+     */
+    private static Map<String, Long> parseBudgets (String spec) {
+
+	Map<String, Long> budgets = new HashMap<String, Long>();
+	if (spec.isEmpty()) {
+	    return budgets;
+	}
+	for (String entry : spec.split(",")) {
+	    int equals = entry.indexOf('=');
+	    if (equals < 1) {
+		throw new RuntimeException("Invalid budget " + entry);
+	    }
+	    String key     = entry.substring(0, equals).trim();
+	    String measure = key.substring(key.lastIndexOf('.') + 1);
+	    if (indexOf(measure) < 0) {
+		throw new RuntimeException("Unknown measure in budget " + entry);
+	    }
+	    try {
+		budgets.put(key, Long.parseLong(entry.substring(equals + 1).trim()));
+	    } catch (NumberFormatException e) {
+		throw new RuntimeException("Invalid budget " + entry);
+	    }
+	}
+	return budgets;
+
+    } // parseBudgets ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @return the most specific budget of a measurement, or <code>null</code>
+     *         if there is none.
+     */
+    private static Long budgetFor (Map<String, Long> budgets,
+				   String            layerType,
+				   String            mediumType,
+				   String            measure) {
+
+	Long budget = budgets.get(layerType + "/" + mediumType + "." + measure);
+	if (budget == null) {
+	    budget = budgets.get(layerType + "." + measure);
+	}
+	if (budget == null) {
+	    budget = budgets.get(measure);
+	}
+	return budget;
+
+    } // budgetFor ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /** @return the index of a measure, or -1 if there is none by that name. */
+    private static int indexOf (String measure) {
+
+	for (int m = 0; m < MEASURES.length; m += 1) {
+	    if (MEASURES[m].equals(measure)) {
+		return m;
+	    }
+	}
+	return -1;
+
+    } // indexOf ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /** @return a measurement, or a dash if it was not taken. */
+    private static String format (long perFrame) {
+
+	return (perFrame < 0) ? "-" : Long.toString(perFrame);
+
+    } // format ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * One layer type over one medium type, with the hosts and mediums of its
+     * measurements, kept across rounds so that buffers grown in the warm-up
+     * round are not counted again.
+     */
+    private static class Target {
+
+	Target (String       layerType,
+		String       mediumType,
+		MediumConfig noise,
+		LayerConfig  config,
+		byte[]       payload,
+		int          frames) {
+
+	    this.payload = payload;
+	    this.frames  = frames;
+
+	    // The round trip: two hosts on one medium.
+	    Medium shared = Medium.create(mediumType, noise);
+	    source        = new Host(shared, layerType, config);
+	    destination   = new Host(shared, layerType, config);
+
+	    // A layer that waits for acknowledgements cannot send to a tap.
+	    openLoop = !(source.getDataLinkLayer() instanceof DuplexDataLinkLayer);
+	    if (openLoop) {
+
+		// Sending: a host and a tap.
+		Medium sending = Medium.create(mediumType, noise);
+		sender         = new Host(sending, layerType, config);
+		tap            = new Tap(sending, true);
+
+		// The medium alone: a bare physical layer replaying to a tap.
+		carrier        = Medium.create(mediumType, noise);
+		replayer       = new PhysicalLayer(carrier);
+		new Tap(carrier, false);
+
+		// Receiving: a host fed the recorded bits directly.
+		receiver       = new Host(Medium.create("Perfect"), layerType, config);
+
+	    }
+
+	}
+
+	/**
+	 * Take one measurement, the least of the rounds after a warm-up.
+	 *
+	 * @return the bytes allocated per frame, or -1 if not measured.
+	 */
+	long measure (int measure, Meter meter, int rounds) {
+
+	    if (measure != ROUND_TRIP && !openLoop) {
+		return -1;
+	    }
+	    long least = Long.MAX_VALUE;
+	    for (int round = 0; round <= rounds; round += 1) {
+		long allocated = run(measure, meter);
+		if (round > 0) {
+		    least = Math.min(least, allocated);
+		}
+	    }
+	    return Math.max(0, least) / frames;
+
+	}
+
+	/** @return the bytes allocated by one round of a measurement. */
+	private long run (int measure, Meter meter) {
+
+	    long before;
+	    long after;
+	    switch (measure) {
+
+	    case SEND:
+		tap.rewind();
+		before = meter.allocated();
+		for (int i = 0; i < frames; i += 1) {
+		    sender.send(payload);
+		}
+		sender.flush();
+		after = meter.allocated();
+		break;
+
+	    case MEDIUM:
+		before = meter.allocated();
+		tap.replay(carrier, replayer);
+		after = meter.allocated();
+		break;
+
+	    case RECEIVE:
+		DataLinkLayer layer = receiver.getDataLinkLayer();
+		before = meter.allocated();
+		tap.replay(layer);
+		layer.drain();
+		after = meter.allocated();
+		receiver.retrieve();
+		break;
+
+	    default:
+		before = meter.allocated();
+		for (int i = 0; i < frames; i += 1) {
+		    source.send(payload);
+		}
+		source.flush();
+		destination.getDataLinkLayer().drain();
+		after = meter.allocated();
+		destination.retrieve();
+		break;
+
+	    }
+	    return after - before - meter.overhead;
+
+	}
+
+	final byte[]  payload;
+	final int     frames;
+	final boolean openLoop;
+
+	// The hosts, mediums and taps of the measurements.
+	Host          source;
+	Host          destination;
+	Host          sender;
+	Tap           tap;
+	Medium        carrier;
+	PhysicalLayer replayer;
+	Host          receiver;
+
+    } // class Target
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * A physical layer that, instead of delivering bits to a data link layer,
+     * records them to be replayed, in arrays kept across rounds.
+     */
+    private static class Tap extends PhysicalLayer {
+
+	Tap (Medium medium, boolean recording) {
+
+	    super(medium);
+	    this.recording = recording;
+
+	}
+
+	/** Record the bits, growing the record only if it is full. */
+	public void receive (long bits, int count) {
+
+	    if (!recording) {
+		return;
+	    }
+	    if (length == words.length) {
+		words  = Arrays.copyOf(words,  2 * length);
+		counts = Arrays.copyOf(counts, 2 * length);
+	    }
+	    words[length]  = bits;
+	    counts[length] = count;
+	    length        += 1;
+
+	}
+
+	/** Discard the record, keeping its arrays. */
+	void rewind () {
+
+	    length = 0;
+
+	}
+
+	/** Transmit the recorded bits on a medium. */
+	void replay (Medium medium, PhysicalLayer sender) {
+
+	    for (int i = 0; i < length; i += 1) {
+		medium.transmit(sender, words[i], counts[i]);
+	    }
+
+	}
+
+	/** Deliver the recorded bits to a data link layer. */
+	void replay (DataLinkLayer layer) {
+
+	    for (int i = 0; i < length; i += 1) {
+		layer.receive(words[i], counts[i]);
+	    }
+
+	}
+
+	final boolean recording;
+	long[]        words  = new long[INITIAL_WORDS];
+	int[]         counts = new int[INITIAL_WORDS];
+	int           length = 0;
+
+    } // class Tap
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Sums the bytes allocated by all live threads.
+     */
+    private static class Meter {
+
+	Meter () {
+
+	    if (!(ManagementFactory.getThreadMXBean()
+		  instanceof com.sun.management.ThreadMXBean)) {
+		throw new RuntimeException("This JVM does not count allocation by thread");
+	    }
+	    threads = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+	    if (!threads.isThreadAllocatedMemorySupported()) {
+		throw new RuntimeException("This JVM does not count allocation by thread");
+	    }
+	    threads.setThreadAllocatedMemoryEnabled(true);
+
+	    // What reading the counters itself allocates, the least of a few.
+	    long least = Long.MAX_VALUE;
+	    for (int i = 0; i < CALIBRATIONS; i += 1) {
+		long before = allocated();
+		least = Math.min(least, allocated() - before);
+	    }
+	    overhead = least;
+
+	}
+
+	/** @return the bytes allocated so far by the threads now alive. */
+	long allocated () {
+
+	    long   total  = 0;
+	    long[] counts = threads.getThreadAllocatedBytes(threads.getAllThreadIds());
+	    for (int i = 0; i < counts.length; i += 1) {
+		if (counts[i] > 0) {
+		    total += counts[i];
+		}
+	    }
+	    return total;
+
+	}
+
+	final com.sun.management.ThreadMXBean threads;
+	long                                  overhead = 0;
+
+    } // class Meter
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // DATA MEMBERS
+
+    // The measurements, and their indices.
+    private static final String[] MEASURES   = { "send", "medium", "receive", "round-trip" };
+    private static final int      SEND       = 0;
+    private static final int      MEDIUM     = 1;
+    private static final int      RECEIVE    = 2;
+    private static final int      ROUND_TRIP = 3;
+
+    /** The initial capacity of a tap's record, in words. */
+    private static final int      INITIAL_WORDS = 1024;
+
+    /** The number of readings taken to find the cost of a reading. */
+    private static final int      CALIBRATIONS  = 16;
+    // =========================================================================
+
+
+
+// =============================================================================
+} // class AllocationBudget
+// =============================================================================
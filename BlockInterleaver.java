@@ -0,0 +1,244 @@
+// =============================================================================
+/**
+ * A block interleaver over bits.  A block of <code>depth</code> bytes is
+ * sent column by column: first the most significant bit of every byte, then
+ * the next bit of every byte, and so on.  A burst of up to
+ * <code>depth</code> flipped bits on the medium therefore flips at most one
+ * bit in each byte of the block, once de-interleaved.
+ *
+ * The permutation is done eight rows at a time: eight bytes are loaded into a
+ * long, transposed as an 8x8 bit matrix with three delta swaps, and each
+ * resulting column byte is stored to its place in the block.  The transpose
+ * is its own inverse, so de-interleaving gathers the column bytes and
+ * transposes them back.
+ *
+ * Sending pads each send to a whole number of blocks with zero bytes, which
+ * fall outside of any frame.  Receiving holds bytes until a whole block has
+ * arrived.
+ *
+ * @file   BlockInterleaver.java
+ * @date   October 2026
+ */
+public class BlockInterleaver {
+// =============================================================================
+
+
+
+    // =========================================================================
+    // PUBLIC METHODS
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * The constructor.
+     *
+     * @param depth The number of bytes per block, a positive multiple of 8.
+     * @throws RuntimeException if the depth is invalid.
+     */
+    public BlockInterleaver (int depth) {
+
+	if (depth < 8 || depth % 8 != 0) {
+	    throw new RuntimeException("Invalid interleaver depth " + depth);
+	}
+	this.depth    = depth;
+	this.received = new byte[depth];
+	this.block    = new byte[depth];
+
+    } // BlockInterleaver ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /** @return the number of bytes per block. */
+    public int getDepth () {
+
+	return depth;
+
+    } // getDepth ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Interleave bytes to be sent, padding them to a whole number of blocks.
+     * Uses no state of this interleaver.
+     *
+     * @param  data The bytes to interleave.
+     * @return the interleaved blocks.
+     */
+    public byte[] interleave (byte[] data) {
+
+	int    blocks = (data.length + depth - 1) / depth;
+	byte[] padded = data;
+	if (data.length != blocks * depth) {
+	    padded = new byte[blocks * depth];
+	    System.arraycopy(data, 0, padded, 0, data.length);
+	}
+	byte[] interleaved = new byte[padded.length];
+	for (int b = 0; b < blocks; b += 1) {
+	    interleave(padded, b * depth, interleaved, b * depth);
+	}
+	return interleaved;
+
+    } // interleave ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Interleave one block.
+     *
+     * @param src       The source of the block.
+     * @param srcOffset The start of the block in the source.
+     * @param dst       The destination.
+     * @param dstOffset The position at which to write the block.
+     */
+    public void interleave (byte[] src, int srcOffset, byte[] dst, int dstOffset) {
+
+	int groups = depth / 8;
+	for (int g = 0; g < groups; g += 1) {
+	    long rows = 0;
+	    for (int r = 0; r < 8; r += 1) {
+		rows = (rows << 8) | (src[srcOffset + 8 * g + r] & 0xff);
+	    }
+	    long columns = transpose(rows);
+	    for (int c = 0; c < 8; c += 1) {
+		dst[dstOffset + c * groups + g] = (byte)(columns >>> (56 - 8 * c));
+	    }
+	}
+
+    } // interleave ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * De-interleave one block.
+     *
+     * @param src       The source of the interleaved block.
+     * @param srcOffset The start of the block in the source.
+     * @param dst       The destination.
+     * @param dstOffset The position at which to write the block.
+     */
+    public void deinterleave (byte[] src, int srcOffset, byte[] dst, int dstOffset) {
+
+	int groups = depth / 8;
+	for (int g = 0; g < groups; g += 1) {
+	    long columns = 0;
+	    for (int c = 0; c < 8; c += 1) {
+		columns = (columns << 8) | (src[srcOffset + c * groups + g] & 0xff);
+	    }
+	    long rows = transpose(columns);
+	    for (int r = 0; r < 8; r += 1) {
+		dst[dstOffset + 8 * g + r] = (byte)(rows >>> (56 - 8 * r));
+	    }
+	}
+
+    } // deinterleave ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Accept one received byte.
+     *
+     * @param  data The received byte.
+     * @return <code>true</code> if it completed a block, which
+     *         <code>getBlock()</code> then holds de-interleaved.
+     */
+    public boolean receive (byte data) {
+
+	received[receivedCount++] = data;
+	if (receivedCount < depth) {
+	    return false;
+	}
+	deinterleave(received, 0, block, 0);
+	receivedCount = 0;
+	return true;
+
+    } // receive ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @return the last de-interleaved block, which is overwritten by the
+     *         next.
+     */
+    public byte[] getBlock () {
+
+	return block;
+
+    } // getBlock ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /** Discard any partially received block. */
+    public void reset () {
+
+	receivedCount = 0;
+
+    } // reset ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // PRIVATE METHODS
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Transpose an 8x8 bit matrix whose rows are the bytes of a long, most
+     * significant first, and whose columns run from the most significant bit
+     * of each byte.
+     */
+    private static long transpose (long x) {
+
+	long t;
+	t = (x ^ (x >>> 7))  & 0x00aa00aa00aa00aaL;
+	x = x ^ t ^ (t << 7);
+	t = (x ^ (x >>> 14)) & 0x0000cccc0000ccccL;
+	x = x ^ t ^ (t << 14);
+	t = (x ^ (x >>> 28)) & 0x00000000f0f0f0f0L;
+	x = x ^ t ^ (t << 28);
+	return x;
+
+    } // transpose ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // DATA MEMBERS
+
+    /** The number of bytes per block. */
+    private final int    depth;
+
+    /** The interleaved bytes of the block being received. */
+    private final byte[] received;
+
+    /** The number of bytes in <code>received</code>. */
+    private int          receivedCount = 0;
+
+    /** The last de-interleaved block. */
+    private final byte[] block;
+    // =========================================================================
+
+
+
+// =============================================================================
+} // class BlockInterleaver
+// =============================================================================
@@ -0,0 +1,174 @@
+// =============================================================================
+// IMPORTS
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+// =============================================================================
+
+
+
+// =============================================================================
+/**
+ * Finds the next occurrence of any of three byte values.  The data is read
+ * eight bytes at a time as little-endian longs, two longs per stride, and
+ * each long is tested for all three values at once with the classic
+ * "has zero byte" bit trick (SIMD within a register).  The tail of a range
+ * shorter than a long is scanned a byte at a time.
+ *
+ * @file   ByteScanner.java
+ * @date   October 2026
+ */
+public final class ByteScanner {
+// =============================================================================
+
+
+
+    // =========================================================================
+    // PUBLIC METHODS
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * The constructor.
+     *
+     * @param first  A value to find.
+     * @param second Another value to find.
+     * @param third  Another value to find.
+     */
+    public ByteScanner (byte first, byte second, byte third) {
+
+	this.first   = first;
+	this.second  = second;
+	this.third   = third;
+	this.first8  = broadcast(first);
+	this.second8 = broadcast(second);
+	this.third8  = broadcast(third);
+
+    } // ByteScanner ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Find the first of the values within a range of bytes.
+     *
+     * @param  data The bytes to scan.
+     * @param  from The start of the range.
+     * @param  to   The end of the range, exclusive.
+     * @return the position of the first byte equal to any of the values;
+     *         <code>to</code> if there is none.
+     */
+    public int next (byte[] data, int from, int to) {
+
+	int i = from;
+
+	// Scan two longs per stride.
+	while (i + STRIDE <= to) {
+	    long match = matches((long)LONGS.get(data, i));
+	    if (match != 0) {
+		return i + (Long.numberOfTrailingZeros(match) >>> 3);
+	    }
+	    match = matches((long)LONGS.get(data, i + Long.BYTES));
+	    if (match != 0) {
+		return i + Long.BYTES + (Long.numberOfTrailingZeros(match) >>> 3);
+	    }
+	    i += STRIDE;
+	}
+	if (i + Long.BYTES <= to) {
+	    long match = matches((long)LONGS.get(data, i));
+	    if (match != 0) {
+		return i + (Long.numberOfTrailingZeros(match) >>> 3);
+	    }
+	    i += Long.BYTES;
+	}
+
+	// Finish byte by byte.
+	while (i < to) {
+	    byte current = data[i];
+	    if (current == first || current == second || current == third) {
+		return i;
+	    }
+	    i += 1;
+	}
+	return to;
+
+    } // next ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // PRIVATE METHODS
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Mark the bytes of a long that equal any of the values.  A byte that
+     * follows a true match may be falsely marked, but the lowest mark is
+     * always a true one, and that is the only one used.
+     *
+     * @return a long with the high bit of each marked byte set.
+     */
+    private long matches (long word) {
+
+	return zeroBytes(word ^ first8) | zeroBytes(word ^ second8) | zeroBytes(word ^ third8);
+
+    } // matches ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    private static long zeroBytes (long word) {
+
+	return (word - LOW_BITS) & ~word & HIGH_BITS;
+
+    } // zeroBytes ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    private static long broadcast (byte value) {
+
+	return (value & 0xffL) * LOW_BITS;
+
+    } // broadcast ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // DATA MEMBERS
+
+    // The values to find, singly and repeated across a long.
+    private final byte first;
+    private final byte second;
+    private final byte third;
+    private final long first8;
+    private final long second8;
+    private final long third8;
+
+    /** Reads longs from byte arrays, with the first byte lowest. */
+    private static final VarHandle LONGS =
+	MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    /** The number of bytes scanned per stride. */
+    private static final int  STRIDE    = 2 * Long.BYTES;
+
+    // The low and high bit of every byte in a long.
+    private static final long LOW_BITS  = 0x0101010101010101L;
+    private static final long HIGH_BITS = 0x8080808080808080L;
+    // =========================================================================
+
+
+
+// =============================================================================
+} // class ByteScanner
+// =============================================================================
@@ -0,0 +1,403 @@
+// =============================================================================
+// IMPORTS
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+// =============================================================================
+
+
+
+// =============================================================================
+/**
+ * Reads a capture written by a <code>MediumCapture</code>.  The file is
+ * memory-mapped, and its blocks are visited in order without copying their
+ * bits.
+ *
+ * @file   CaptureReader.java
+ * @date   October 2026
+ */
+public class CaptureReader {
+// =============================================================================
+
+
+
+    // =========================================================================
+    // PUBLIC METHODS
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Map a capture file and read its header.
+     *
+     * @param path The pathname of the capture file.
+     * @throws RuntimeException if the file cannot be mapped or is not a
+     *                          capture.
+     */
+    public CaptureReader (String path) {
+
+	try (RandomAccessFile file = new RandomAccessFile(path, "r")) {
+	    if (file.length() > Integer.MAX_VALUE) {
+		throw new RuntimeException(path + " is too large a capture");
+	    }
+	    buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY,
+					   0,
+					   file.length());
+	} catch (IOException e) {
+	    throw new RuntimeException("Could not map capture " + path);
+	}
+	if (buffer.remaining() < HEADER_LENGTH ||
+	    buffer.getInt() != MediumCapture.MAGIC ||
+	    buffer.get() != MediumCapture.VERSION) {
+	    throw new RuntimeException(path + " is not a capture");
+	}
+	creationTime = buffer.getLong();
+	flips        = new int[64];
+
+    } // CaptureReader ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Read the creation time from the header of a capture file.
+     *
+     * @param  path The pathname of the capture file.
+     * @return the time, in milliseconds since the epoch, at which the capture
+     *         was created.
+     * @throws IOException if the file cannot be read or is not a capture.
+     */
+    public static long readCreationTime (String path) throws IOException {
+
+	try (DataInputStream input = new DataInputStream(new FileInputStream(path))) {
+	    if (input.readInt() != MediumCapture.MAGIC ||
+		input.readByte() != MediumCapture.VERSION) {
+		throw new IOException(path + " is not a capture");
+	    }
+	    return input.readLong();
+	}
+
+    } // readCreationTime ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Advance to the next block.
+     *
+     * @return <code>true</code> if there is another block; <code>false</code>
+     *         at the end of the capture.
+     * @throws RuntimeException if the capture is malformed.
+     */
+    public boolean next () {
+
+	// Skip the bits of the current block.
+	buffer.position(bitsOffset + ((bitCount + 7) >>> 3));
+	bitCount = 0;
+	if (!buffer.hasRemaining()) {
+	    return false;
+	}
+	if (buffer.get() != MediumCapture.BLOCK_TAG) {
+	    throw new RuntimeException("Malformed capture block");
+	}
+
+	time      = readVarLong();
+	sender    = (int)readVarLong();
+	int count = (int)readVarLong();
+	flipCount = (int)readVarLong();
+	if (flipCount > flips.length) {
+	    flips = new int[Math.max(flipCount, flips.length * 2)];
+	}
+	int position = 0;
+	for (int i = 0; i < flipCount; i += 1) {
+	    position += (int)readVarLong();
+	    flips[i]  = position;
+	}
+	bitsOffset = buffer.position();
+	bitCount   = count;
+	if (bitsOffset + ((bitCount + 7) >>> 3) > buffer.limit()) {
+	    throw new RuntimeException("Truncated capture block");
+	}
+	return true;
+
+    } // next ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /** @return the time, in milliseconds since the epoch, of the capture's creation. */
+    public long getCreationTime () {
+
+	return creationTime;
+
+    } // getCreationTime ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /** @return the nanoseconds from the capture's creation to the current block. */
+    public long getTime () {
+
+	return time;
+
+    } // getTime ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /** @return the index of the sender of the current block. */
+    public int getSender () {
+
+	return sender;
+
+    } // getSender ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /** @return the number of bits in the current block. */
+    public int getBitCount () {
+
+	return bitCount;
+
+    } // getBitCount ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /** @return the number of flipped bits in the current block. */
+    public int getFlipCount () {
+
+	return flipCount;
+
+    } // getFlipCount ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @param  i The index of a flipped bit, in order of position.
+     * @return the position of that bit within the current block.
+     */
+    public int getFlip (int i) {
+
+	return flips[i];
+
+    } // getFlip ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @param  i The index of a byte of packed bits in the current block.
+     * @return the sent bits of that byte, most significant first.
+     */
+    public byte getByte (int i) {
+
+	return buffer.get(bitsOffset + i);
+
+    } // getByte ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Export the frames in a capture as a pcap file, one packet per frame as
+     * delivered (that is, after any flipped bits), with link type
+     * <code>USER0</code>.  A frame runs from a start tag through the next
+     * unescaped stop tag.
+     *
+     * @param pcapPath The pathname of the pcap file to write.
+     */
+    public void exportPcap (String pcapPath) {
+
+	try (DataOutputStream pcap =
+	     new DataOutputStream(new BufferedOutputStream(new FileOutputStream(pcapPath)))) {
+
+	    // The global header, written big-endian.
+	    pcap.writeInt(0xa1b2c3d4);
+	    pcap.writeShort(2);
+	    pcap.writeShort(4);
+	    pcap.writeInt(0);
+	    pcap.writeInt(0);
+	    pcap.writeInt(SNAPSHOT_LENGTH);
+	    pcap.writeInt(LINKTYPE_USER0);
+
+	    // Reassemble each sender's bytes and cut them into frames.
+	    List<FrameAssembler> assemblers = new ArrayList<FrameAssembler>();
+	    while (next()) {
+		while (assemblers.size() <= sender) {
+		    assemblers.add(new FrameAssembler());
+		}
+		FrameAssembler assembler = assemblers.get(sender);
+		int            flip      = 0;
+		for (int i = 0; i < bitCount; i += 1) {
+		    boolean bit = ((getByte(i >>> 3) << (i & 7)) & 0x80) != 0;
+		    if (flip < flipCount && flips[flip] == i) {
+			bit   = !bit;
+			flip += 1;
+		    }
+		    assembler.add(bit, creationTime * 1000000L + time, pcap);
+		}
+	    }
+
+	} catch (IOException e) {
+	    throw new RuntimeException("Could not write pcap " + pcapPath);
+	}
+
+    } // exportPcap ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // PRIVATE METHODS
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /** Read a value written by <code>MediumCapture.writeVarLong()</code>. */
+    private long readVarLong () {
+
+	long value = 0;
+	int  shift = 0;
+	byte current;
+	do {
+	    current = buffer.get();
+	    value  |= (long)(current & 0x7f) << shift;
+	    shift  += 7;
+	} while ((current & 0x80) != 0);
+	return value;
+
+    } // readVarLong ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Builds bytes from one sender's bits, collecting them into frames that are
+     * written as pcap packets.
+     */
+    private static class FrameAssembler {
+
+	void add (boolean bit, long nanos, DataOutputStream pcap) throws IOException {
+
+	    current   = (current << 1) | (bit ? 1 : 0);
+	    bitsHeld += 1;
+	    if (bitsHeld < DataLinkLayer.BITS_PER_BYTE) {
+		return;
+	    }
+	    byte value = (byte)current;
+	    current  = 0;
+	    bitsHeld = 0;
+
+	    // Outside of a frame, wait for a start tag.
+	    if (length == 0) {
+		if (value == START_TAG) {
+		    frameNanos     = nanos;
+		    frame[length++] = value;
+		}
+		return;
+	    }
+
+	    if (length < frame.length) {
+		frame[length] = value;
+	    }
+	    length += 1;
+	    if (escaped) {
+		escaped = false;
+	    } else if (value == ESCAPE_TAG) {
+		escaped = true;
+	    } else if (value == STOP_TAG) {
+		int captured = Math.min(length, frame.length);
+		pcap.writeInt((int)(frameNanos / 1000000000L));
+		pcap.writeInt((int)(frameNanos % 1000000000L / 1000L));
+		pcap.writeInt(captured);
+		pcap.writeInt(length);
+		pcap.write(frame, 0, captured);
+		length = 0;
+	    }
+
+	}
+
+	private final byte[] frame      = new byte[SNAPSHOT_LENGTH];
+	private int          length     = 0;
+	private boolean      escaped    = false;
+	private long         frameNanos = 0;
+	private int          current    = 0;
+	private int          bitsHeld   = 0;
+
+    } // class FrameAssembler
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // DATA MEMBERS
+
+    /** The mapped capture file. */
+    private final MappedByteBuffer buffer;
+
+    /** The time, in milliseconds since the epoch, of the capture's creation. */
+    private final long             creationTime;
+
+    /** The offset in the file of the current block's packed bits. */
+    private int                    bitsOffset = HEADER_LENGTH;
+
+    /** The number of bits in the current block. */
+    private int                    bitCount   = 0;
+
+    /** The time of the current block. */
+    private long                   time;
+
+    /** The sender of the current block. */
+    private int                    sender;
+
+    /** The positions of the flipped bits in the current block. */
+    private int[]                  flips;
+
+    /** The number of flipped bits in the current block. */
+    private int                    flipCount;
+
+    /** The length of the capture file header. */
+    private static final int       HEADER_LENGTH   = 4 + 1 + 8;
+
+    /** The largest frame written whole to a pcap file. */
+    private static final int       SNAPSHOT_LENGTH = 65535;
+
+    /** The pcap link type reserved for private use. */
+    private static final int       LINKTYPE_USER0  = 147;
+
+    // The start tag, stop tag, and the escape tag used by the framing layers.
+    private static final byte      START_TAG  = (byte)'{';
+    private static final byte      STOP_TAG   = (byte)'}';
+    private static final byte      ESCAPE_TAG = (byte)'\\';
+    // =========================================================================
+
+
+
+// =============================================================================
+} // class CaptureReader
+// =============================================================================
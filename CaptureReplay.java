@@ -0,0 +1,144 @@
+// =============================================================================
+// IMPORTS
+
+import java.util.ArrayList;
+import java.util.List;
+// =============================================================================
+
+
+
+// =============================================================================
+/**
+ * Replays a capture into the receive path of a data link layer as fast as
+ * possible, for benchmarking and regression, or exports a capture as pcap.
+ * Each sender's bits go to a layer of their own, and are fed to it as they
+ * are, so captures are only taken without a line code.
+ *
+ * @file   CaptureReplay.java
+ * @date   October 2026
+ */
+public class CaptureReplay {
+// =============================================================================
+
+
+
+    // =========================================================================
+    /**
+     * The entry point.  Interpret the command-line arguments, aborting if they
+     * are invalid, and then either replay or export the capture.
+     *
+     * @param args The command-line arguments.
+     */
+    public static void main (String[] args) {
+
+	if (args.length == 3 && args[0].equals("--pcap")) {
+	    new CaptureReader(args[1]).exportPcap(args[2]);
+	    return;
+	}
+
+	boolean clean    = args.length == 3 && args[0].equals("--clean");
+	int     argIndex = clean ? 1 : 0;
+	if (args.length - argIndex != 2) {
+	    System.err.println("Usage: java CaptureReplay "  +
+			       "[--clean] "                  +
+			       "<capture file> "             +
+			       "<data link layer type>\n"    +
+			       "       java CaptureReplay "  +
+			       "--pcap <capture file> <pcap file>");
+	    System.exit(1);
+	}
+
+	// A receiving host for each sender in the capture, whose data link layer
+	// is fed that sender's bits directly, bypassing the medium.
+	List<Host> receivers = new ArrayList<Host>();
+
+	long   start = System.nanoTime();
+	long   bits  = replay(new CaptureReader(args[argIndex]),
+			      args[argIndex + 1],
+			      receivers,
+			      !clean);
+	long[] delivered = new long[receivers.size()];
+	long   total     = 0;
+	for (int i = 0; i < delivered.length; i += 1) {
+	    delivered[i] = receivers.get(i).retrieve().length;
+	    total       += delivered[i];
+	}
+	double secs  = (System.nanoTime() - start) / 1e9;
+
+	System.out.printf("Replayed %d bits in %.3f s (%.2f Mbit/s)\n",
+			  bits,
+			  secs,
+			  bits / secs / 1e6);
+	System.out.println("Bytes delivered: " + total);
+	if (delivered.length > 1) {
+	    for (int i = 0; i < delivered.length; i += 1) {
+		System.out.println("  from sender " + i + ":  " + delivered[i]);
+	    }
+	}
+
+    } // main ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Feed every captured bit to the receive path of a data link layer, a
+     * separate one for each sender, so that the directions of a duplex
+     * exchange are not mixed.
+     *
+     * @param  capture   The capture to replay.
+     * @param  layerType The type of data link layer to receive the bits.
+     * @param  receivers The receiving hosts, one per sender in order of the
+     *                   sender indices, to which any that are missing are
+     *                   added.
+     * @param  withFlips Whether to flip the bits that the medium flipped.
+     * @return the number of bits replayed.
+     */
+    public static long replay (CaptureReader capture,
+			       String        layerType,
+			       List<Host>    receivers,
+			       boolean       withFlips) {
+
+	long total = 0;
+	while (capture.next()) {
+	    while (receivers.size() <= capture.getSender()) {
+		receivers.add(new Host(Medium.create("Perfect"), layerType));
+	    }
+	    DataLinkLayer layer     = receivers.get(capture.getSender()).getDataLinkLayer();
+	    int           bitCount  = capture.getBitCount();
+	    int           flipCount = withFlips ? capture.getFlipCount() : 0;
+	    int           flip      = 0;
+	    int           nextFlip  = flipCount > 0 ? capture.getFlip(0) : -1;
+	    for (int i = 0; i < bitCount; i += 64) {
+
+		// Pack up to 64 bits into a word, the earliest most significant.
+		int  count = Math.min(64, bitCount - i);
+		int  bytes = (count + 7) >>> 3;
+		long word  = 0;
+		for (int b = 0; b < bytes; b += 1) {
+		    word = (word << 8) | (capture.getByte((i >>> 3) + b) & 0xff);
+		}
+		word >>>= 8 * bytes - count;
+
+		// Flip whichever of those bits the medium flipped.
+		while (nextFlip >= 0 && nextFlip < i + count) {
+		    word    ^= 1L << (count - 1 - (nextFlip - i));
+		    flip    += 1;
+		    nextFlip = flip < flipCount ? capture.getFlip(flip) : -1;
+		}
+		layer.receive(word, count);
+
+	    }
+	    total += bitCount;
+	}
+	return total;
+
+    } // replay ()
+    // =========================================================================
+
+
+
+// =============================================================================
+} // class CaptureReplay
+// =============================================================================
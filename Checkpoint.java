@@ -0,0 +1,385 @@
+// =============================================================================
+// IMPORTS
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.CRC32;
+// =============================================================================
+
+
+
+// =============================================================================
+/**
+ * Periodically saves the state of a one-way simulation to a file, so that a
+ * long run that dies can be resumed from its last snapshot rather than from
+ * the start.  A snapshot holds the offset into the data that has been sent,
+ * the state of the medium (including its source of noise), and the state of
+ * each host: the bytes received, and its layers' partial frames, counters and
+ * line code states.  Settings are not saved; the resumed run must be set up
+ * the same way, which is checked against a description of the run that each
+ * snapshot carries.
+ *
+ * The sending thread calls <code>reached()</code> between sends, when the
+ * medium is quiet.  Once the interval has passed, the state is copied into a
+ * compact binary snapshot there, and then written on a background thread, to
+ * a temporary file that is synced and renamed over the checkpoint, so that a
+ * crash leaves either the old snapshot or the new one.  If the writer falls
+ * behind, only the newest snapshot waiting is written.
+ *
+ * A snapshot is laid out as its magic number, version, the run description
+ * (modified UTF-8), the offset, then the medium's, sender's and receiver's
+ * state, and finally a CRC-32 of everything before it.
+ *
+ * @file   Checkpoint.java
+ * @date   October 2026
+ */
+public class Checkpoint {
+// =============================================================================
+
+
+
+    // =========================================================================
+    // PUBLIC METHODS
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * The constructor.  A snapshot is taken at once and discarded, so that a
+     * setup that cannot be checkpointed fails before the run begins.
+     *
+     * @param path           The checkpoint file.
+     * @param intervalMillis The least time between snapshots.
+     * @param run            A description of the run, which a resumed run
+     *                       must match.
+     * @param medium         The medium between the hosts.
+     * @param sender         The sending host.
+     * @param receiver       The receiving host.
+     * @throws RuntimeException if the interval is not positive, or if the
+     *                          hosts' layers cannot be checkpointed.
+     */
+    public Checkpoint (String path,
+		       long   intervalMillis,
+		       String run,
+		       Medium medium,
+		       Host   sender,
+		       Host   receiver) {
+
+	if (intervalMillis < 1) {
+	    throw new RuntimeException("Invalid checkpoint interval " + intervalMillis);
+	}
+	this.file          = new File(path);
+	this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+	this.run           = run;
+	this.medium        = medium;
+	this.sender        = sender;
+	this.receiver      = receiver;
+	this.nextNanos     = System.nanoTime() + intervalNanos;
+	snapshot(0);
+
+    } // Checkpoint ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Restore the state saved in the checkpoint file, if there is one, into
+     * the medium and hosts, which must be freshly created.
+     *
+     * @return the offset into the data from which to continue sending, or
+     *         <code>0</code> if there is no checkpoint file.
+     * @throws RuntimeException if the file is damaged or is of another run.
+     */
+    public long restore () {
+
+	if (!file.exists()) {
+	    return 0;
+	}
+	byte[] snapshot;
+	try {
+	    snapshot = Files.readAllBytes(file.toPath());
+	} catch (IOException e) {
+	    throw new RuntimeException("Could not read checkpoint " + file);
+	}
+	CRC32 crc = new CRC32();
+	crc.update(snapshot, 0, Math.max(0, snapshot.length - CRC_LENGTH));
+	if (snapshot.length < CRC_LENGTH ||
+	    (int)crc.getValue() != readInt(snapshot, snapshot.length - CRC_LENGTH)) {
+	    throw new RuntimeException("Damaged checkpoint " + file);
+	}
+
+	try {
+	    DataInputStream in =
+		new DataInputStream(new ByteArrayInputStream(snapshot, 0,
+							     snapshot.length - CRC_LENGTH));
+	    if (in.readInt() != MAGIC || in.readShort() != VERSION) {
+		throw new RuntimeException(file + " is not a checkpoint");
+	    }
+	    if (!in.readUTF().equals(run)) {
+		throw new RuntimeException("Checkpoint " + file + " is of a different run");
+	    }
+	    long offset = in.readLong();
+	    medium.readState(in);
+	    sender.readState(in);
+	    receiver.readState(in);
+	    if (in.available() != 0) {
+		throw new RuntimeException("Checkpoint " + file + " is of a different run");
+	    }
+	    return offset;
+	} catch (IOException e) {
+	    throw new RuntimeException("Damaged checkpoint " + file);
+	}
+
+    } // restore ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Note that the data up to the given offset has been sent, and take a
+     * snapshot if the interval has passed.  Must be called by the sending
+     * thread, between sends.
+     *
+     * @param offset The number of bytes of the data sent.
+     */
+    public void reached (long offset) {
+
+	long now = System.nanoTime();
+	if (now - nextNanos < 0) {
+	    return;
+	}
+	nextNanos = now + intervalNanos;
+
+	// Hand the snapshot to the writer, replacing any that it has not yet
+	// begun to write.
+	if (pending.getAndSet(snapshot(offset)) == null) {
+	    writer.execute(new Runnable() {
+		    public void run () {
+			writePending();
+		    }
+		});
+	}
+
+    } // reached ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Wait for the snapshots handed to the writer to be written, then stop it.
+     *
+     * @throws RuntimeException if a snapshot could not be written.
+     */
+    public void close () {
+
+	writer.shutdown();
+	try {
+	    writer.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+	} catch (InterruptedException e) {
+	    throw new RuntimeException("Interrupted while writing checkpoint " + file);
+	}
+	if (failure != null) {
+	    throw failure;
+	}
+
+    } // close ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /** @return the number of snapshots written. */
+    public long getSnapshotsWritten () {
+
+	return written;
+
+    } // getSnapshotsWritten ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // PRIVATE METHODS
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Copy the state of the run into a snapshot, holding the medium so that
+     * no host transmits meanwhile.
+     *
+     * @param  offset The number of bytes of the data sent.
+     * @return the snapshot.
+     */
+    private byte[] snapshot (long offset) {
+
+	ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+	DataOutputStream      out   = new DataOutputStream(bytes);
+	medium.seize();
+	try {
+	    out.writeInt(MAGIC);
+	    out.writeShort(VERSION);
+	    out.writeUTF(run);
+	    out.writeLong(offset);
+	    medium.writeState(out);
+	    sender.writeState(out);
+	    receiver.writeState(out);
+	    out.flush();
+	} catch (IOException e) {
+	    throw new RuntimeException("Unexpected failure in taking a checkpoint");
+	} finally {
+	    medium.release();
+	}
+
+	CRC32 crc = new CRC32();
+	byte[] snapshot = bytes.toByteArray();
+	crc.update(snapshot);
+	byte[] sealed = Arrays.copyOf(snapshot, snapshot.length + CRC_LENGTH);
+	writeInt(sealed, snapshot.length, (int)crc.getValue());
+	return sealed;
+
+    } // snapshot ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Write the newest snapshot waiting, if any, over the checkpoint file.
+     * Called on the writer's thread.
+     */
+    private void writePending () {
+
+	byte[] snapshot = pending.getAndSet(null);
+	if (snapshot == null || failure != null) {
+	    return;
+	}
+	File temporary = new File(file.getPath() + TEMPORARY_SUFFIX);
+	try {
+	    FileOutputStream out = new FileOutputStream(temporary);
+	    try {
+		out.write(snapshot);
+		out.getFD().sync();
+	    } finally {
+		out.close();
+	    }
+	    Files.move(temporary.toPath(),
+		       file.toPath(),
+		       StandardCopyOption.REPLACE_EXISTING,
+		       StandardCopyOption.ATOMIC_MOVE);
+	    written += 1;
+	} catch (IOException e) {
+	    failure = new RuntimeException("Could not write checkpoint " + file);
+	}
+
+    } // writePending ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /** Store a big-endian int into a buffer. */
+    private static void writeInt (byte[] buffer, int index, int value) {
+
+	for (int i = 0; i < CRC_LENGTH; i += 1) {
+	    buffer[index + i] = (byte)(value >>> (8 * (CRC_LENGTH - 1 - i)));
+	}
+
+    } // writeInt ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /** @return a big-endian int from a buffer. */
+    private static int readInt (byte[] buffer, int index) {
+
+	int value = 0;
+	for (int i = 0; i < CRC_LENGTH; i += 1) {
+	    value = (value << 8) | (buffer[index + i] & 0xff);
+	}
+	return value;
+
+    } // readInt ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // DATA MEMBERS
+
+    /** The checkpoint file. */
+    private final File          file;
+
+    /** The least time between snapshots. */
+    private final long          intervalNanos;
+
+    /** The description of the run, which a resumed run must match. */
+    private final String        run;
+
+    // The medium and hosts whose state is saved.
+    private final Medium        medium;
+    private final Host          sender;
+    private final Host          receiver;
+
+    /** When the next snapshot is due.  Used only by the sending thread. */
+    private long                nextNanos;
+
+    /** The newest snapshot not yet being written, if any. */
+    private final AtomicReference<byte[]> pending = new AtomicReference<byte[]>();
+
+    /** The number of snapshots written.  Updated by the writer's thread. */
+    private volatile long       written = 0;
+
+    /** Why the writer stopped, if a snapshot could not be written. */
+    private volatile RuntimeException failure = null;
+
+    /** Writes the snapshots, in order, on a daemon thread. */
+    private final ExecutorService writer =
+	new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+			       new LinkedBlockingQueue<Runnable>(),
+			       new ThreadFactory() {
+				   public Thread newThread (Runnable task) {
+				       Thread thread = new Thread(task, "Checkpoint");
+				       thread.setDaemon(true);
+				       return thread;
+				   }
+			       });
+
+    /** Marks a checkpoint file. */
+    private static final int    MAGIC            = 0x444c434b;
+
+    /** The layout of the snapshots written. */
+    private static final short  VERSION          = 2;
+
+    /** The length of the trailing CRC-32. */
+    private static final int    CRC_LENGTH       = 4;
+
+    /** Names the file written before it replaces the checkpoint. */
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+    // =========================================================================
+
+
+
+// =============================================================================
+} // class Checkpoint
+// =============================================================================
@@ -0,0 +1,115 @@
+// =============================================================================
+// IMPORTS
+
+import java.util.Arrays;
+// =============================================================================
+
+
+
+// =============================================================================
+/**
+ * The 4B5B block code of FDDI and 100BASE-X: each nibble is sent as one of
+ * sixteen 5-bit symbols chosen to have at most one leading and two trailing
+ * zeros, so that no more than three zeros ever run together, at the cost of
+ * a quarter more bandwidth.  The other sixteen symbols are control symbols or
+ * invalid, and as data are code violations.  (Real links then send the
+ * symbols with NRZI; here they go on the medium as they are.)
+ *
+ * A byte is coded at a time, as two symbols, each way by one lookup.
+ *
+ * @file   Code4B5B.java
+ * @date   October 2026
+ */
+public class Code4B5B implements LineCode {
+// =============================================================================
+
+
+
+    // =========================================================================
+    public int dataBits () {
+
+	return 8;
+
+    } // dataBits ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    public int symbolBits () {
+
+	return 10;
+
+    } // symbolBits ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    public int start () {
+
+	return 0;
+
+    } // start ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    public int encode (int state, int data) {
+
+	return encodings[data];
+
+    } // encode ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    public int decode (int state, int symbol) {
+
+	return decodings[symbol];
+
+    } // decode ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // DATA MEMBERS
+
+    /** The 5-bit symbol of each nibble. */
+    private static final int[] NIBBLE_SYMBOLS = {
+	0b11110, 0b01001, 0b10100, 0b10101, 0b01010, 0b01011, 0b01110, 0b01111,
+	0b10010, 0b10011, 0b10110, 0b10111, 0b11010, 0b11011, 0b11100, 0b11101
+    };
+
+    /** The pair of symbols of each byte. */
+    private static final int[] encodings = new int[1 << 8];
+
+    /** The byte of each pair of symbols, flagged if either is not data. */
+    private static final int[] decodings = new int[1 << 10];
+
+    static {
+	int[] nibbles = new int[1 << 5];
+	Arrays.fill(nibbles, -1);
+	for (int nibble = 0; nibble < NIBBLE_SYMBOLS.length; nibble += 1) {
+	    nibbles[NIBBLE_SYMBOLS[nibble]] = nibble;
+	}
+	for (int data = 0; data < encodings.length; data += 1) {
+	    encodings[data] = (NIBBLE_SYMBOLS[data >>> 4] << 5) | NIBBLE_SYMBOLS[data & 0xf];
+	}
+	for (int symbol = 0; symbol < decodings.length; symbol += 1) {
+	    int high = nibbles[symbol >>> 5];
+	    int low  = nibbles[symbol & 0x1f];
+	    decodings[symbol] = ((high < 0 || low < 0) ? VIOLATION : 0) |
+		                (Math.max(high, 0) << 4) | Math.max(low, 0);
+	}
+    }
+    // =========================================================================
+
+
+
+// =============================================================================
+} // class Code4B5B
+// =============================================================================
@@ -0,0 +1,207 @@
+// =============================================================================
+/**
+ * The 8b/10b code of Fibre Channel, Gigabit Ethernet and PCI Express: each
+ * byte HGFEDCBA is sent as a 6-bit sub-block for EDCBA then a 4-bit
+ * sub-block for HGF, transmitted <code>abcdei fghj</code>.  Each sub-block
+ * holds as many ones as zeros, or one pair more of one than the other; the
+ * running disparity records which way the line last leaned, and the next
+ * unbalanced sub-block must lean back, so the line stays DC balanced at the
+ * cost of a quarter more bandwidth.  Only data symbols are coded; the
+ * control symbols (K.28.5 and the rest) are not.
+ *
+ * The state is the running disparity, <code>0</code> when negative and
+ * <code>1</code> when positive, starting negative.  A received symbol that is
+ * not the code of any byte, or not in the current disparity, is a code
+ * violation; the byte it would mean in the other disparity is still taken
+ * as the guess, and the disparity is tracked through it, so one damaged
+ * symbol is not followed by a run of spurious violations.
+ *
+ * A byte is coded at a time, each way by one lookup in a table indexed by
+ * the disparity and the byte or symbol.
+ *
+ * @file   Code8B10B.java
+ * @date   October 2026
+ */
+public class Code8B10B implements LineCode {
+// =============================================================================
+
+
+
+    // =========================================================================
+    public int dataBits () {
+
+	return 8;
+
+    } // dataBits ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    public int symbolBits () {
+
+	return 10;
+
+    } // symbolBits ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    public int start () {
+
+	return NEGATIVE;
+
+    } // start ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    public int encode (int state, int data) {
+
+	return encodings[(state << 8) | data];
+
+    } // encode ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    public int decode (int state, int symbol) {
+
+	return decodings[(state << 10) | symbol];
+
+    } // decode ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // PRIVATE METHODS
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @return the disparity after a sub-block of the given width: unchanged
+     *         if it is balanced, otherwise the way it leans.
+     */
+    private static int lean (int disparity, int subBlock, int width) {
+
+	int ones = Integer.bitCount(subBlock);
+	return (2 * ones == width) ? disparity : (2 * ones > width) ? POSITIVE : NEGATIVE;
+
+    } // lean ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /** @return the disparity after a whole symbol. */
+    private static int lean (int disparity, int symbol) {
+
+	return lean(lean(disparity, symbol >>> 4, 6), symbol & 0xf, 4);
+
+    } // lean ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /** @return the symbol of a byte, with the disparity after it. */
+    private static int encodeByte (int disparity, int data) {
+
+	int x     = data & 0x1f;
+	int y     = data >>> 5;
+	int six   = SIX_BIT[disparity][x];
+	int after = lean(disparity, six, 6);
+
+	// The alternate D.x.A7 avoids a run of five equal bits across the
+	// sub-blocks.
+	int four;
+	if (y == 7 && ((after == NEGATIVE && (x == 17 || x == 18 || x == 20)) ||
+		       (after == POSITIVE && (x == 11 || x == 13 || x == 14)))) {
+	    four = (after == NEGATIVE) ? 0b0111 : 0b1000;
+	} else {
+	    four = FOUR_BIT[after][y];
+	}
+	int symbol = (six << 4) | four;
+	return symbol | (lean(after, four, 4) << STATE_SHIFT);
+
+    } // encodeByte ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // DATA MEMBERS
+
+    // The running disparities.
+    private static final int NEGATIVE = 0;
+    private static final int POSITIVE = 1;
+
+    /** The 6-bit sub-blocks of EDCBA, in negative then positive disparity. */
+    private static final int[][] SIX_BIT = {
+	{ 0b100111, 0b011101, 0b101101, 0b110001, 0b110101, 0b101001, 0b011001, 0b111000,
+	  0b111001, 0b100101, 0b010101, 0b110100, 0b001101, 0b101100, 0b011100, 0b010111,
+	  0b011011, 0b100011, 0b010011, 0b110010, 0b001011, 0b101010, 0b011010, 0b111010,
+	  0b110011, 0b100110, 0b010110, 0b110110, 0b001110, 0b101110, 0b011110, 0b101011 },
+	{ 0b011000, 0b100010, 0b010010, 0b110001, 0b001010, 0b101001, 0b011001, 0b000111,
+	  0b000110, 0b100101, 0b010101, 0b110100, 0b001101, 0b101100, 0b011100, 0b101000,
+	  0b100100, 0b100011, 0b010011, 0b110010, 0b001011, 0b101010, 0b011010, 0b000101,
+	  0b001100, 0b100110, 0b010110, 0b001001, 0b001110, 0b010001, 0b100001, 0b010100 }
+    };
+
+    /** The 4-bit sub-blocks of HGF, in negative then positive disparity. */
+    private static final int[][] FOUR_BIT = {
+	{ 0b1011, 0b1001, 0b0101, 0b1100, 0b1101, 0b1010, 0b0110, 0b1110 },
+	{ 0b0100, 0b1001, 0b0101, 0b0011, 0b0010, 0b1010, 0b0110, 0b0001 }
+    };
+
+    /** The symbol of each disparity and byte, with the disparity after it. */
+    private static final int[] encodings = new int[2 << 8];
+
+    /** The byte of each disparity and symbol, with the disparity after it. */
+    private static final int[] decodings = new int[2 << 10];
+
+    static {
+	for (int disparity = NEGATIVE; disparity <= POSITIVE; disparity += 1) {
+	    for (int data = 0; data < (1 << 8); data += 1) {
+		encodings[(disparity << 8) | data] = encodeByte(disparity, data);
+	    }
+	}
+
+	// Every symbol is a violation, unless it is a byte's code in the other
+	// disparity, which is the guess, or in this one, which is valid.
+	for (int disparity = NEGATIVE; disparity <= POSITIVE; disparity += 1) {
+	    for (int symbol = 0; symbol < (1 << 10); symbol += 1) {
+		decodings[(disparity << 10) | symbol] =
+		    VIOLATION | (lean(disparity, symbol) << STATE_SHIFT);
+	    }
+	}
+	for (int disparity = NEGATIVE; disparity <= POSITIVE; disparity += 1) {
+	    for (int data = 0; data < (1 << 8); data += 1) {
+		int symbol = encodings[(disparity << 8) | data] & VALUE_MASK;
+		int other  = ((1 - disparity) << 10) | symbol;
+		if ((decodings[other] & VALUE_MASK) == 0) {
+		    decodings[other] |= data;
+		}
+	    }
+	}
+	for (int disparity = NEGATIVE; disparity <= POSITIVE; disparity += 1) {
+	    for (int data = 0; data < (1 << 8); data += 1) {
+		int result = encodings[(disparity << 8) | data];
+		decodings[(disparity << 10) | (result & VALUE_MASK)] =
+		    data | (result & ~VALUE_MASK);
+	    }
+	}
+    }
+    // =========================================================================
+
+
+
+// =============================================================================
+} // class Code8B10B
+// =============================================================================
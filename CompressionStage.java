@@ -0,0 +1,408 @@
+// =============================================================================
+// IMPORTS
+
+import java.util.Arrays;
+// =============================================================================
+
+
+
+// =============================================================================
+/**
+ * A payload stage that compresses each send with <code>Lz4Codec</code>.  The
+ * payload is cut into blocks, each preceded by a header: a mode byte
+ * (<code>RAW</code> or <code>LZ4</code>), then the raw length and the encoded
+ * length as unsigned varints.  A block whose byte entropy shows it to be
+ * incompressible is stored raw without trying the codec, as is any block that
+ * the codec fails to shrink.
+ *
+ * The decoder treats the frame data it is given as one stream, and emits each
+ * block once all of it has arrived.  A malformed block means that frames were
+ * lost, so the decoder skips forward a byte at a time until it finds a
+ * well-formed header, and carries on decoding from there.  A raw block that
+ * lost its tail cannot be told from a good one, and is delivered damaged.
+ *
+ * @file   CompressionStage.java
+ * @date   October 2026
+ */
+public class CompressionStage implements PayloadStage {
+// =============================================================================
+
+
+
+    // =========================================================================
+    // PUBLIC METHODS
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * The constructor.
+     */
+    public CompressionStage () {
+
+	codec   = new Lz4Codec();
+	pending = new byte[HEADER_LENGTH];
+
+    } // CompressionStage ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    public byte[] encode (byte[] data) {
+
+	long   start   = System.nanoTime();
+	int    blocks  = (data.length + BLOCK_SIZE - 1) / BLOCK_SIZE;
+	byte[] encoded = new byte[blocks * HEADER_LENGTH +
+				  blocks * Lz4Codec.maxCompressedLength(BLOCK_SIZE)];
+	int    out     = 0;
+	for (int offset = 0; offset < data.length; offset += BLOCK_SIZE) {
+
+	    int length = Math.min(BLOCK_SIZE, data.length - offset);
+
+	    // Leave room for the largest header, then try to compress.
+	    int body           = out + HEADER_LENGTH;
+	    int compressedSize = -1;
+	    if (entropy(data, offset, length) < ENTROPY_LIMIT) {
+		compressedSize = codec.compress(data, offset, length, encoded, body);
+	    } else {
+		bypassedBlocks += 1;
+	    }
+
+	    // Write the header just before the body, compressed or raw.
+	    if (compressedSize >= 0 && compressedSize < length) {
+		out  = writeHeader(LZ4, length, compressedSize, encoded, out, body);
+		out += compressedSize;
+	    } else {
+		out = writeHeader(RAW, length, length, encoded, out, body);
+		System.arraycopy(data, offset, encoded, out, length);
+		out += length;
+	    }
+	    encodedBlocks += 1;
+
+	}
+	encoded = Arrays.copyOf(encoded, out);
+
+	rawBytesIn      += data.length;
+	encodedBytesOut += out;
+	encodeNanos     += System.nanoTime() - start;
+	return encoded;
+
+    } // encode ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    public byte[] decode (byte[] data) {
+
+	long start = System.nanoTime();
+
+	// Append the data to whatever is pending.
+	if (pendingLength + data.length > pending.length) {
+	    pending = Arrays.copyOf(pending, Math.max(pending.length * 2,
+						      pendingLength + data.length));
+	}
+	System.arraycopy(data, 0, pending, pendingLength, data.length);
+	pendingLength += data.length;
+
+	// Decode every complete block.
+	byte[] decoded       = new byte[0];
+	int    decodedLength = 0;
+	int    position      = 0;
+	while (true) {
+
+	    // Parse the header, if it has all arrived, skipping past it if it
+	    // is malformed.
+	    int in = position;
+	    if (in >= pendingLength) {
+		break;
+	    }
+	    int mode = pending[in++];
+	    if (mode != RAW && mode != LZ4) {
+		position = skip(position);
+		continue;
+	    }
+	    long rawLength = readVarint(in);
+	    if (rawLength == INCOMPLETE) {
+		break;
+	    } else if (rawLength == MALFORMED) {
+		position = skip(position);
+		continue;
+	    }
+	    in += varintLength(rawLength);
+	    long bodyLength = readVarint(in);
+	    if (bodyLength == INCOMPLETE) {
+		break;
+	    } else if (bodyLength == MALFORMED) {
+		position = skip(position);
+		continue;
+	    }
+	    in += varintLength(bodyLength);
+	    if (rawLength == 0 ||
+		rawLength > BLOCK_SIZE ||
+		(mode == RAW && bodyLength != rawLength) ||
+		(mode == LZ4 && bodyLength > Lz4Codec.maxCompressedLength((int)rawLength))) {
+		position = skip(position);
+		continue;
+	    }
+	    if (bodyLength > pendingLength - in) {
+		break;
+	    }
+
+	    // Decode the body.
+	    if (decodedLength + rawLength > decoded.length) {
+		decoded = Arrays.copyOf(decoded, Math.max(decoded.length * 2,
+							  decodedLength + (int)rawLength));
+	    }
+	    if (mode == RAW) {
+		System.arraycopy(pending, in, decoded, decodedLength, (int)rawLength);
+	    } else {
+		try {
+		    Lz4Codec.decompress(pending, in, (int)bodyLength,
+					decoded, decodedLength, (int)rawLength);
+		} catch (RuntimeException e) {
+		    position = skip(position);
+		    continue;
+		}
+	    }
+	    decodedLength += rawLength;
+	    position       = in + (int)bodyLength;
+	    decodedBlocks += 1;
+	    resyncing      = false;
+
+	}
+
+	// Keep only what remains of a partial block.
+	System.arraycopy(pending, position, pending, 0, pendingLength - position);
+	pendingLength -= position;
+
+	decodedBytesOut += decodedLength;
+	decodeNanos     += System.nanoTime() - start;
+	return (decodedLength == decoded.length) ? decoded
+	                                         : Arrays.copyOf(decoded, decodedLength);
+
+    } // decode ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    public String summary () {
+
+	StringBuilder summary = new StringBuilder("lz4:");
+	if (encodedBlocks > 0) {
+	    summary.append(String.format(" compressed %d bytes to %d (ratio %.2f)" +
+					 " in %d blocks, %d bypassed;" +
+					 " encoding took %.3f ms (%.1f MB/s)",
+					 rawBytesIn,
+					 encodedBytesOut,
+					 (double)rawBytesIn / Math.max(1, encodedBytesOut),
+					 encodedBlocks,
+					 bypassedBlocks,
+					 encodeNanos / 1e6,
+					 rawBytesIn / 1e6 / Math.max(1e-9, encodeNanos / 1e9)));
+	}
+	if (decodedBlocks > 0 || discardedBlocks > 0) {
+	    summary.append(String.format(" decoded %d blocks to %d bytes, %d discarded;" +
+					 " decoding took %.3f ms",
+					 decodedBlocks,
+					 decodedBytesOut,
+					 discardedBlocks,
+					 decodeNanos / 1e6));
+	}
+	if (encodedBlocks == 0 && decodedBlocks == 0 && discardedBlocks == 0) {
+	    summary.append(" idle");
+	}
+	return summary.toString();
+
+    } // summary ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // PRIVATE METHODS
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @return the Shannon entropy of a range of bytes, in bits per byte.
+     */
+    private static double entropy (byte[] data, int offset, int length) {
+
+	int[] counts = new int[256];
+	for (int i = offset; i < offset + length; i += 1) {
+	    counts[data[i] & 0xff] += 1;
+	}
+	double entropy = 0;
+	for (int i = 0; i < counts.length; i += 1) {
+	    if (counts[i] > 0) {
+		double p  = (double)counts[i] / length;
+		entropy  -= p * Math.log(p);
+	    }
+	}
+	return entropy / Math.log(2);
+
+    } // entropy ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Write a block header.  A compressed body was written after room for the
+     * largest header, so it is first moved down to follow this header.
+     *
+     * @return the position following the header, where the body starts.
+     */
+    private static int writeHeader (int mode, int rawLength, int bodyLength,
+				    byte[] dst, int out, int body) {
+
+	int length = 1 + varintLength(rawLength) + varintLength(bodyLength);
+	if (mode == LZ4 && out + length < body) {
+	    System.arraycopy(dst, body, dst, out + length, bodyLength);
+	}
+	dst[out++] = (byte)mode;
+	out = writeVarint(rawLength, dst, out);
+	out = writeVarint(bodyLength, dst, out);
+	return out;
+
+    } // writeHeader ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    private static int writeVarint (long value, byte[] dst, int out) {
+
+	while (value >= 0x80) {
+	    dst[out++] = (byte)(value | 0x80);
+	    value    >>>= 7;
+	}
+	dst[out++] = (byte)value;
+	return out;
+
+    } // writeVarint ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    private static int varintLength (long value) {
+
+	int length = 1;
+	while (value >= 0x80) {
+	    value  >>>= 7;
+	    length  += 1;
+	}
+	return length;
+
+    } // varintLength ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @return the varint pending at the given position;
+     *         <code>INCOMPLETE</code> if it has not all arrived; or
+     *         <code>MALFORMED</code> if it is longer than any block length
+     *         needs, or not in its shortest form.
+     */
+    private long readVarint (int in) {
+
+	long value = 0;
+	for (int i = 0; i < MAX_VARINT_LENGTH; i += 1) {
+	    if (in + i >= pendingLength) {
+		return INCOMPLETE;
+	    }
+	    int current = pending[in + i];
+	    value |= (long)(current & 0x7f) << (7 * i);
+	    if ((current & 0x80) == 0) {
+		return (current == 0 && i > 0) ? MALFORMED : value;
+	    }
+	}
+	return MALFORMED;
+
+    } // readVarint ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Step past the start of a malformed block, to look for the next header.
+     * The first of a run of malformed positions counts as a discarded block.
+     *
+     * @param  position Where the malformed block starts.
+     * @return the next position to try.
+     */
+    private int skip (int position) {
+
+	if (!resyncing) {
+	    resyncing        = true;
+	    discardedBlocks += 1;
+	}
+	return position + 1;
+
+    } // skip ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // DATA MEMBERS
+
+    /** The codec, with its reusable hash table. */
+    private final Lz4Codec codec;
+
+    /** Received data that does not yet form a complete block. */
+    private byte[]         pending;
+
+    /** The number of bytes in <code>pending</code>. */
+    private int            pendingLength   = 0;
+
+    /** Whether the decoder is looking for a header after a malformed block. */
+    private boolean        resyncing       = false;
+
+    // The statistics of encoding and decoding.
+    private long           rawBytesIn      = 0;
+    private long           encodedBytesOut = 0;
+    private long           encodedBlocks   = 0;
+    private long           bypassedBlocks  = 0;
+    private long           encodeNanos     = 0;
+    private long           decodedBytesOut = 0;
+    private long           decodedBlocks   = 0;
+    private long           discardedBlocks = 0;
+    private long           decodeNanos     = 0;
+
+    /** The largest amount of raw data in one block. */
+    public static final int     BLOCK_SIZE    = 64 * 1024;
+
+    /** The entropy, in bits per byte, above which a block is stored raw. */
+    public static final double  ENTROPY_LIMIT = 7.0;
+
+    // The block modes.
+    private static final int    RAW = 0;
+    private static final int    LZ4 = 1;
+
+    /** The largest header: a mode byte and two three-byte varints. */
+    private static final int    HEADER_LENGTH = 7;
+
+    /** The longest varint, enough for any block length. */
+    private static final int    MAX_VARINT_LENGTH = 3;
+
+    // What readVarint() returns in place of a value.
+    private static final long   INCOMPLETE = -1;
+    private static final long   MALFORMED  = -2;
+    // =========================================================================
+
+
+
+// =============================================================================
+} // class CompressionStage
+// =============================================================================
@@ -0,0 +1,186 @@
+// =============================================================================
+/**
+ * A cyclic redundancy check of 8 to 64 bits, computed a byte at a time with a
+ * precomputed table.  The parameters follow the usual catalogue of CRCs: the
+ * width, the generator polynomial without its leading term, the initial
+ * register, whether each byte is taken least significant bit first (in which
+ * case the register is kept reflected too), and a final XOR.
+ *
+ * @file   CrcDetector.java
+ * @date   October 2026
+ */
+public class CrcDetector implements ErrorDetector {
+// =============================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Construct an 8-bit CRC that divides most significant bit first,
+     * starting from a zero remainder, so the trailer is the remainder of the
+     * data followed by 8 zero bits.
+     *
+     * @param generator The generator polynomial, without its leading
+     *                  <code>x^8</code> term.
+     */
+    public CrcDetector (int generator) {
+
+	this(8, generator, 0, false, 0);
+
+    } // CrcDetector ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * The constructor.  Builds the table of remainders.
+     *
+     * @param width     The number of bits in the CRC, a multiple of 8.
+     * @param generator The generator polynomial, without its leading term.
+     * @param initial   The initial value of the register.
+     * @param reflected Whether bytes are divided least significant bit first.
+     * @param finalXor  The value XORed with the register to form the trailer.
+     * @throws RuntimeException if the width is not supported.
+     */
+    public CrcDetector (int width, long generator, long initial, boolean reflected, long finalXor) {
+
+	if (width < 8 || width > 64 || width % 8 != 0) {
+	    throw new RuntimeException("Unsupported CRC width " + width);
+	}
+	this.width     = width;
+	this.mask      = (width == 64) ? -1L : (1L << width) - 1;
+	this.reflected = reflected;
+	this.initial   = reflected ? reflect(initial & mask, width) : initial & mask;
+	this.finalXor  = finalXor & mask;
+	this.table     = new long[256];
+
+	long top = 1L << (width - 1);
+	long reflectedGenerator = reflect(generator & mask, width);
+	for (int i = 0; i < 256; i += 1) {
+	    long remainder;
+	    if (reflected) {
+		remainder = i;
+		for (int bit = 0; bit < 8; bit += 1) {
+		    remainder = ((remainder & 1) != 0) ? (remainder >>> 1) ^ reflectedGenerator
+			                               : (remainder >>> 1);
+		}
+	    } else {
+		remainder = (long)i << (width - 8);
+		for (int bit = 0; bit < 8; bit += 1) {
+		    remainder = ((remainder & top) != 0) ? (remainder << 1) ^ generator
+			                                 : (remainder << 1);
+		}
+	    }
+	    table[i] = remainder & mask;
+	}
+
+    } // CrcDetector ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    public int length () {
+
+	return width / 8;
+
+    } // length ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    public long start () {
+
+	return initial;
+
+    } // start ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    public long update (long state, byte data) {
+
+	if (reflected) {
+	    return table[(int)(state ^ data) & 0xff] ^ (state >>> 8);
+	}
+	return (table[(int)((state >>> (width - 8)) ^ data) & 0xff] ^ (state << 8)) & mask;
+
+    } // update ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    public long update (long state, byte[] data, int from, int to) {
+
+	if (reflected) {
+	    for (int i = from; i < to; i += 1) {
+		state = table[(int)(state ^ data[i]) & 0xff] ^ (state >>> 8);
+	    }
+	} else {
+	    int shift = width - 8;
+	    for (int i = from; i < to; i += 1) {
+		state = table[(int)((state >>> shift) ^ data[i]) & 0xff] ^ (state << 8);
+	    }
+	    state &= mask;
+	}
+	return state;
+
+    } // update ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    public long trailer (long state) {
+
+	return state ^ finalXor;
+
+    } // trailer ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @return the low <code>width</code> bits of a value, in reverse order.
+     */
+    private static long reflect (long value, int width) {
+
+	return Long.reverse(value) >>> (64 - width);
+
+    } // reflect ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // DATA MEMBERS
+
+    /** The number of bits in the CRC. */
+    private final int     width;
+
+    /** The low <code>width</code> bits. */
+    private final long    mask;
+
+    /** Whether bytes are divided least significant bit first. */
+    private final boolean reflected;
+
+    /** The initial register, reflected if the CRC is. */
+    private final long    initial;
+
+    /** The value XORed with the register to form the trailer. */
+    private final long    finalXor;
+
+    /** The remainder of each byte value followed by <code>width</code> zero bits. */
+    private final long[]  table;
+    // =========================================================================
+
+
+
+// =============================================================================
+} // class CrcDetector
+// =============================================================================
@@ -1,10 +1,13 @@
 // =============================================================================
 // IMPORTS
 
-import java.util.LinkedList;
-import java.util.Queue;
-import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
 // =============================================================================
 
 
@@ -33,7 +36,8 @@ public abstract class DataLinkLayer {
 
     // =========================================================================
     /**
-     * Create the requested data link layer type and return it.
+     * Create the requested data link layer type with the default configuration
+     * and return it.
      *
      * @param  type          The subclass of which to create an instance.
      * @param  physicalLayer The physical layer by which to communicate.
@@ -47,51 +51,76 @@ public abstract class DataLinkLayer {
 					PhysicalLayer physicalLayer,
 					Host          host) {
 
+	return create(type, LayerConfig.DEFAULT, physicalLayer, host);
+
+    } // create ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Create the requested data link layer type and return it.  The type is
+     * looked up in the <code>ProviderRegistry</code>.
+     *
+     * @param  type          The name of the type of which to create an instance.
+     * @param  config        The configuration of the new layer.
+     * @param  physicalLayer The physical layer by which to communicate.
+     * @param  host          The host for which this layer is communicating.
+     * @return The newly created data link layer.
+     * @throws RuntimeException if the given type is not a valid subclass, or if
+     *                          the given physical layer doesn't exist (is
+     *                          <code>null</code>).
+     */
+    public static DataLinkLayer create (String        type,
+					LayerConfig   config,
+					PhysicalLayer physicalLayer,
+					Host          host) {
+
 	if (physicalLayer == null) {
 	    throw new RuntimeException("Null physical layer");
 	}
 	
-	// Look up the class by name.
-	String   className          = type + "DataLinkLayer";
-	Class<?> dataLinkLayerClass = null;
-	try {
-	    dataLinkLayerClass = Class.forName(className);
-	} catch (ClassNotFoundException e) {
-	    throw new RuntimeException("Unknown data link layer subclass " +
-				       className);
-	}
+	// Make one of these objects with its type's provider.
+	DataLinkLayer dataLinkLayer = ProviderRegistry.layerProvider(type).create(config);
 
-	// Make one of these objects, and then see if it really is a
-	// DataLinkLayer subclass.
-	Object o = null;
-	try {
-	    o = dataLinkLayerClass.getDeclaredConstructor().newInstance();
-	} catch (NoSuchMethodException e) {
-	    throw new RuntimeException("Could not call constructor for " + className);  
-	} catch (InstantiationException e) {
-	    throw new RuntimeException("Could not instantiate " + className);
-	} catch (IllegalAccessException e) {
-	    throw new RuntimeException("Could not access " + className);
-	} catch (InvocationTargetException e) {
-	    throw new RuntimeException("Could not invoke target on " + className);
-	}
-	DataLinkLayer dataLinkLayer = null;
-	try {
-	    dataLinkLayer = (DataLinkLayer)o;
-	} catch (ClassCastException e) {
-	    throw new RuntimeException(className +
-				       " is not a subclass of DataLinkLayer");
+	// Apply the settings common to all layers.
+	if (config.getFrameSize() > 0) {
+	    dataLinkLayer.setFrameSize(config.getFrameSize());
+	}
+	if (config.getDetector() != null) {
+	    dataLinkLayer.setDetector(ErrorDetectors.forName(config.getDetector()));
+	}
+	dataLinkLayer.setParallelSend(config.getParallelSend());
+	dataLinkLayer.setInterleaveDepth(config.getInterleaveDepth());
+	if (config.getMaxFrameLength() > 0) {
+	    dataLinkLayer.setMaxFrameLength(config.getMaxFrameLength());
+	}
+	if (config.getDeliveryMode() != DeliveryMode.STORE_AND_FORWARD) {
+	    dataLinkLayer.setDeliveryMode(config.getDeliveryMode());
+	}
+	dataLinkLayer.setVerifierThreads(config.getVerifierThreads());
+	if (config.getAggregateThreshold() > 0) {
+	    if (config.getDeliveryMode() == DeliveryMode.SPECULATIVE) {
+		throw new RuntimeException("Aggregation cannot split speculatively " +
+					   "delivered data");
+	    }
+	    dataLinkLayer.setAggregation(config.getAggregateThreshold(),
+					 config.getAggregateDelayMillis());
 	}
 
-
-	// Register this new data link layer with the physical layer.
+	// Register this new data link layer with the physical layer, coding its
+	// bits as configured.
+	if (config.getLineCode() != null) {
+	    physicalLayer.setLineCode(LineCodes.forName(config.getLineCode()));
+	}
+	dataLinkLayer.typeName      = type;
 	dataLinkLayer.physicalLayer = physicalLayer;
 	physicalLayer.register(dataLinkLayer);
 	dataLinkLayer.register(host);
 	
 	// Create incoming buffer space.
-	dataLinkLayer.bitBuffer  = new LinkedList<Boolean>();
-	dataLinkLayer.byteBuffer = new LinkedList<Byte>();
+	dataLinkLayer.byteBuffer = new byte[INITIAL_BYTE_BUFFER_SIZE];
 	return dataLinkLayer;
 
     } // create ()
@@ -119,27 +148,355 @@ public abstract class DataLinkLayer {
 
     // =========================================================================
     /**
-     * Send a sequence of bytes through the physical layer.  Expected to be
-     * called by the client.
+     * Send a message through the physical layer.  Expected to be called by the
+     * client.  If aggregation is enabled, the message is buffered with others
+     * and sent later as part of a batch; otherwise it is sent at once.
      *
      * @param data The sequence of bytes to send.
      */
     public void send (byte[] data) {
 
-	// Call on the underlying physical layer to send the data.
-	byte[] framedData = createFrame(data);
-	for (int i = 0; i < framedData.length; i += 1) {
-	    transmit(framedData[i]);
+	if (aggregator != null) {
+	    aggregator.add(data);
+	} else {
+	    sendPayload(data);
 	}
 
-    }
+    } // send ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Send any messages held by the aggregator at once.
+     */
+    public void flush () {
+
+	if (aggregator != null) {
+	    aggregator.flush();
+	}
+
+    } // flush ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Pack many small messages into each send (see
+     * <code>MessageAggregator</code>), and split them apart on receipt.  Both
+     * ends of a link must agree.
+     *
+     * @param fillThreshold    The number of buffered bytes that causes a
+     *                         flush.
+     * @param flushDelayMillis The longest that a message waits before it is
+     *                         flushed.
+     * @throws RuntimeException if either setting is invalid.
+     */
+    public void setAggregation (int fillThreshold, long flushDelayMillis) {
+
+	flush();
+	aggregator = new MessageAggregator(this, fillThreshold, flushDelayMillis);
+
+    } // setAggregation ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /** @return the aggregator of this layer's messages, or <code>null</code>. */
+    public MessageAggregator getAggregator () {
+
+	return aggregator;
+
+    } // getAggregator ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Frame a sequence of bytes and send it through the physical layer.  If
+     * parallel sending is enabled, the layer splits its data into fixed-size
+     * frames, and the data is large enough, then the frames are created in
+     * parallel before being transmitted in order.
+     *
+     * @param data The sequence of bytes to send.
+     */
+    protected void sendPayload (byte[] data) {
+
+	LinkEvents.FrameEncoded event = new LinkEvents.FrameEncoded();
+	event.begin();
+	bytesFramed.addAndGet(data.length);
+	if (parallelSend && frameSize > 0 && data.length >= PARALLEL_THRESHOLD) {
+	    byte[][] framedChunks = createFramesInParallel(data);
+	    int      length       = 0;
+	    for (int i = 0; i < framedChunks.length; i += 1) {
+		length += framedChunks[i].length;
+	    }
+	    event.record(typeName, length, sendsFramed.getAndIncrement());
+	    for (int i = 0; i < framedChunks.length; i += 1) {
+		transmit(framedChunks[i]);
+	    }
+	} else {
+	    byte[] framed = createFrame(data);
+	    event.record(typeName, framed.length, sendsFramed.getAndIncrement());
+	    transmit(framed);
+	}
+
+    } // sendPayload ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Enable or disable parallel frame creation for large sends.  Only layers
+     * that divide data into fixed-size frames (a positive
+     * <code>frameSize</code>) are affected.
+     *
+     * @param parallelSend Whether to create frames in parallel.
+     */
+    public void setParallelSend (boolean parallelSend) {
+
+	this.parallelSend = parallelSend;
+
+    } // setParallelSend ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Enable or disable block interleaving of the bits on the medium (see
+     * <code>BlockInterleaver</code>).  Both ends of a link must agree.
+     *
+     * @param depth The number of bytes per block, a multiple of 8, or
+     *              <code>0</code> to disable interleaving.
+     * @throws RuntimeException if the depth is invalid.
+     */
+    public void setInterleaveDepth (int depth) {
+
+	interleaver = (depth == 0) ? null : new BlockInterleaver(depth);
+
+    } // setInterleaveDepth ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Limit the length of a received frame.  A frame that grows longer is
+     * abandoned and counted as an overrun, and everything up to the next
+     * start tag is discarded.
+     *
+     * @param length The largest number of bytes that a frame may hold, once
+     *               unescaped.
+     * @throws RuntimeException if the length is not positive.
+     */
+    public void setMaxFrameLength (int length) {
+
+	if (length < 1) {
+	    throw new RuntimeException("Invalid maximum frame length " + length);
+	}
+	maxFrameLength = length;
+
+    } // setMaxFrameLength ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @return the largest number of bytes that a received frame may hold.
+     *         Unless set, a layer that splits data into frames allows
+     *         <code>frameSize</code> bytes plus <code>MAX_TRAILER_LENGTH</code>,
+     *         and a layer that frames each send whole has no limit
+     *         (<code>Integer.MAX_VALUE</code>), so that no send is too large.
+     */
+    public int getMaxFrameLength () {
+
+	if (maxFrameLength > 0) {
+	    return maxFrameLength;
+	}
+	return (frameSize > 0) ? frameSize + MAX_TRAILER_LENGTH : Integer.MAX_VALUE;
+
+    } // getMaxFrameLength ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /** @return the number of received frames abandoned for being too long. */
+    public long getFrameOverruns () {
+
+	return frameOverruns;
+
+    } // getFrameOverruns ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @return the number of bytes that this layer has put on the medium,
+     *         including framing, trailers and retransmissions.
+     */
+    public long getBytesTransmitted () {
+
+	physicalLayer.seize();
+	try {
+	    return bytesTransmitted;
+	} finally {
+	    physicalLayer.release();
+	}
+
+    } // getBytesTransmitted ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /** @return the number of data bytes that this layer has framed to send. */
+    public long getBytesFramed () {
+
+	return bytesFramed.get();
+
+    } // getBytesFramed ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /** @return the number of received frames that failed their checks. */
+    public long getChecksumFailures () {
+
+	return checksumFailures.get();
+
+    } // getChecksumFailures ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /** @return the number of times that a partial frame was abandoned. */
+    public long getResyncs () {
+
+	return resyncs;
+
+    } // getResyncs ()
     // =========================================================================
 
 
 
     // =========================================================================
     /**
-     * Embed a raw sequence of bytes into a framed sequence.
+     * @return the number of received symbols that the physical layer found to
+     *         be code violations.
+     */
+    public long getCodeViolations () {
+
+	return physicalLayer.getCodeViolations();
+
+    } // getCodeViolations ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @return the name of this layer's type, as given to <code>create()</code>,
+     *         or else its class.
+     */
+    public String getTypeName () {
+
+	return typeName;
+
+    } // getTypeName ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /** @return the number of received bytes discarded from a full byte buffer. */
+    public long getBufferOverruns () {
+
+	return bufferOverruns;
+
+    } // getBufferOverruns ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Set the maximum number of data bytes in each frame.  Layers that frame
+     * each send as a whole ignore this setting.
+     *
+     * @param frameSize The number of data bytes per frame.
+     * @throws RuntimeException if the frame size is not positive.
+     */
+    public void setFrameSize (int frameSize) {
+
+	if (frameSize < 1) {
+	    throw new RuntimeException("Invalid frame size " + frameSize);
+	}
+	if (this.frameSize > 0) {
+	    this.frameSize = frameSize;
+	}
+
+    } // setFrameSize ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Select the error detection that this layer applies to each frame.
+     * Layers that cannot change their error detection reject this.
+     *
+     * @param detector The detector to use.
+     * @throws RuntimeException if this layer cannot use the detector.
+     */
+    public void setDetector (ErrorDetector detector) {
+
+	throw new RuntimeException(getClass().getName() +
+				   " cannot change its error detection");
+
+    } // setDetector ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Select when received data is handed to the client.  Layers deliver
+     * whole frames unless they support another mode.  Frames checked by
+     * verifier threads are always delivered whole, so a layer that supports
+     * another mode must refuse it when verifier threads are in use.
+     *
+     * @param mode The delivery mode.
+     * @throws RuntimeException if this layer does not support the mode.
+     */
+    public void setDeliveryMode (DeliveryMode mode) {
+
+	if (mode != DeliveryMode.STORE_AND_FORWARD) {
+	    throw new RuntimeException(getClass().getName() +
+				       " does not support " + mode + " delivery");
+	}
+
+    } // setDeliveryMode ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Embed a raw sequence of bytes into a framed sequence.  If this layer has
+     * a positive <code>frameSize</code>, then this method may be called
+     * concurrently on different chunks of one send, and so it must not modify
+     * the state of this layer.
      *
      * @param  data The raw sequence of bytes to be framed.
      * @return A complete frame.
@@ -149,6 +506,105 @@ public abstract class DataLinkLayer {
 
 
 
+    // =========================================================================
+    /**
+     * Divide the data at frame boundaries into chunks, and frame the chunks in
+     * parallel.
+     *
+     * @param  data The raw sequence of bytes to be framed.
+     * @return The framed chunks, in the order in which they must be sent.
+     */
+    private byte[][] createFramesInParallel (final byte[] data) {
+
+	// Each chunk holds a whole number of frames.
+	final int chunkSize = Math.max(frameSize,
+				       (PARALLEL_CHUNK_SIZE / frameSize) * frameSize);
+	final byte[][] framedChunks = new byte[(data.length + chunkSize - 1) /
+					       chunkSize][];
+
+	// Recursively split the range of chunks, framing each one at the leaves.
+	class FrameTask extends RecursiveAction {
+
+	    FrameTask (int first, int last) {
+		this.first = first;
+		this.last  = last;
+	    }
+
+	    protected void compute () {
+		if (last - first == 1) {
+		    int start = first * chunkSize;
+		    int end   = Math.min(start + chunkSize, data.length);
+		    framedChunks[first] = createFrame(Arrays.copyOfRange(data,
+									  start,
+									  end));
+		} else {
+		    int middle = (first + last) >>> 1;
+		    invokeAll(new FrameTask(first, middle),
+			      new FrameTask(middle, last));
+		}
+	    }
+
+	    private final int first;
+	    private final int last;
+
+	    private static final long serialVersionUID = 1L;
+
+	}
+	ForkJoinPool.commonPool().invoke(new FrameTask(0, framedChunks.length));
+
+	return framedChunks;
+
+    } // createFramesInParallel ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Transmit a sequence of framed bytes, holding the medium throughout so
+     * that the transmissions of hosts on other threads do not interleave.
+     * If bit interleaving is enabled, the bytes are first interleaved.
+     *
+     * @param framedData The bytes to send.
+     */
+    protected void transmit (byte[] framedData) {
+
+	LinkEvents.FrameTransmitted event = new LinkEvents.FrameTransmitted();
+	event.begin();
+	if (interleaver != null) {
+	    framedData = interleaver.interleave(framedData);
+	}
+	long sequence;
+	physicalLayer.seize();
+	try {
+	    // Pack the bytes into words, the earliest byte most significant.
+	    int i = 0;
+	    for (; i + BYTES_PER_WORD <= framedData.length; i += BYTES_PER_WORD) {
+		long word = 0;
+		for (int b = 0; b < BYTES_PER_WORD; b += 1) {
+		    word = (word << BITS_PER_BYTE) | (framedData[i + b] & 0xff);
+		}
+		physicalLayer.send(word, BYTES_PER_WORD * BITS_PER_BYTE);
+	    }
+	    if (i < framedData.length) {
+		long word = 0;
+		for (int b = i; b < framedData.length; b += 1) {
+		    word = (word << BITS_PER_BYTE) | (framedData[b] & 0xff);
+		}
+		physicalLayer.send(word, (framedData.length - i) * BITS_PER_BYTE);
+	    }
+	    bytesTransmitted += framedData.length;
+	    sequence          = transmissions++;
+	} finally {
+	    physicalLayer.release();
+	}
+	event.record(typeName, framedData.length, sequence);
+
+    } // transmit ()
+    // =========================================================================
+
+
+
     // =========================================================================
     /**
      * Transmit a byte as bits.  Expected to be called by a subclass
@@ -163,16 +619,8 @@ public abstract class DataLinkLayer {
 			      data);
 	}
 
-	// Transmit one bit at a time, most to least significant.
-	for (int i = BITS_PER_BYTE - 1; i >= 0; i -= 1) {
-
-	    // Grab the current bit...
-	    boolean bit = ((1 << i) & data) != 0;
-
-	    // ...and send it.
-	    physicalLayer.send(bit);
-
-	}
+	// Transmit the bits as one word, most to least significant.
+	physicalLayer.send(data & 0xff, BITS_PER_BYTE);
 
     }
     // =========================================================================
@@ -182,10 +630,7 @@ public abstract class DataLinkLayer {
     // =========================================================================
     /**
      * Deliver a bit into this layer.  Expected to be called by the physical
-     * layer.  Accumulate bits into a buffer, and with each full byte received,
-     * accumulate those bits into a byte buffer.  Each byte added to the buffer
-     * is examined to determine whether a whole frame has been received, and if
-     * so, then processed.
+     * layer.
      *
      * @param bit The value to receive, where <code>false</code> indicates a
      *            <code>0</code>, and <code>true</code> indicates a
@@ -193,37 +638,101 @@ public abstract class DataLinkLayer {
      */
     public void receive (boolean bit) {
 
-	// Add the new bit to the buffer.
-	bitBuffer.add(bit);
+	receive(bit ? 1L : 0L, 1);
+
+    } // receive ()
+    // =========================================================================
 
-	// If this bit completes a byte, then add it to the byte buffer.
-	if (bitBuffer.size() >= BITS_PER_BYTE) {
 
-	    // Build up the byte from the bits...
-	    byte newByte = 0;
-	    for (int i = 0; i < BITS_PER_BYTE; i += 1) {
-		bit = bitBuffer.remove();
-		newByte = (byte)((newByte << 1) | (bit ? 1 : 0));
-	    }
 
-	    // ...and add it to the byte buffer.
-	    byteBuffer.add(newByte);
-	    if (debug) {
-		System.out.printf("DataLinkLayer.receive(): Got new byte = %c\n",
-				  newByte);
+    // =========================================================================
+    /**
+     * Deliver up to 64 bits into this layer.  Expected to be called by the
+     * physical layer.  Accumulate bits into a buffer, and with each full byte
+     * received, accumulate those bits into a byte buffer.  Each byte added to
+     * the buffer is examined to determine whether a whole frame has been
+     * received, and if so, then processed.
+     *
+     * @param bits  The word holding the bits, in its low-order
+     *              <code>count</code> bits, the earliest most significant.
+     * @param count The number of bits, from 1 to 64.
+     */
+    public void receive (long bits, int count) {
+
+	while (count > 0) {
+
+	    // Take as many of the earliest bits as complete the current byte.
+	    int taken = Math.min(BITS_PER_BYTE - bitCount, count);
+	    count    -= taken;
+	    bitBuffer = (bitBuffer << taken) | (int)((bits >>> count) & ((1 << taken) - 1));
+	    bitCount += taken;
+
+	    // If these bits complete a byte, then add it to the byte buffer.
+	    if (bitCount == BITS_PER_BYTE) {
+
+		// Take the byte from the bits...
+		byte newByte = (byte)bitBuffer;
+		bitBuffer = 0;
+		bitCount  = 0;
+
+		// ...and, once de-interleaved if interleaving, add it to the
+		// byte buffer.
+		if (interleaver == null) {
+		    receive(newByte);
+		} else if (interleaver.receive(newByte)) {
+		    byte[] block = interleaver.getBlock();
+		    for (int i = 0; i < block.length; i += 1) {
+			receive(block[i]);
+		    }
+		}
+
 	    }
 
-	    // Attempt to process the buffered bytes as a frame.  If a complete
-	    // frame is found and its contents extraction, deliver those
-	    // contents to the client.
+	}
+
+    } // receive ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Add a received byte to the byte buffer, then attempt to process the
+     * buffered bytes as a frame.
+     *
+     * @param newByte The received byte.
+     */
+    private void receive (byte newByte) {
+
+	// A subclass that leaves bytes unconsumed must not hold more than a
+	// fully escaped frame's worth; past that, they cannot form a valid frame.
+	if (byteCount >= 2 * ((long)getMaxFrameLength() + 1)) {
+	    bufferOverruns += byteCount;
+	    resynchronized(byteCount);
+	    byteCount       = 0;
+	}
+	if (byteCount == byteBuffer.length) {
+	    byteBuffer = Arrays.copyOf(byteBuffer, byteBuffer.length * 2);
+	}
+	byteBuffer[byteCount++] = newByte;
+	if (debug) {
+	    System.out.printf("DataLinkLayer.receive(): Got new byte = %c\n",
+			      newByte);
+	}
+
+	// If a complete frame is found and its contents extraction, deliver
+	// those contents to the client.  With a verifier, the extracted frame
+	// is instead checked in parallel and delivered in order later.
+	if (verifier != null) {
+	    byte[] frame = extractFrame();
+	    if (frame != null) {
+		verifier.submit(frame);
+	    }
+	} else {
 	    byte[] originalData = processFrame();
 	    if (originalData != null) {
-		if (debug) {
-		    System.out.println("DataLinkLayer.receive(): Got a whole frame!");
-		}
-		client.receive(originalData);
+		deliver(originalData);
 	    }
-
 	}
 
     } // receive ()
@@ -240,8 +749,338 @@ public abstract class DataLinkLayer {
      * @return if possible, the extracted data from the frame; <code>null</code>
      *         otherwise.
      */
-    abstract protected byte[] processFrame ();
-    // ===============================================================
+    protected byte[] processFrame () {
+
+	byte[] frame = extractFrame();
+	if (frame == null) {
+	    return null;
+	}
+	return checkFrame(frame);
+
+    } // processFrame ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Determine whether the byte buffer contains a complete frame.  If so,
+     * remove it from the buffer and return its contents, stripped of framing
+     * tags but still carrying any error-management metadata.
+     *
+     * @return if possible, the extracted frame; <code>null</code> otherwise.
+     */
+    abstract protected byte[] extractFrame ();
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Check the correctness of an extracted frame, removing any
+     * error-management metadata.  When a verifier is in use, this method is
+     * called concurrently from its worker threads, and so it must not modify
+     * the state of this layer.  By default, a frame is always correct.
+     *
+     * @param  frame The extracted frame.
+     * @return the data carried by the frame if it is correct;
+     *         <code>null</code> otherwise.
+     */
+    protected byte[] checkFrame (byte[] frame) {
+
+	return frame;
+
+    } // checkFrame ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Count data bytes framed to send, for a subclass that frames without
+     * <code>sendPayload()</code> of this class.
+     *
+     * @param length The number of data bytes framed.
+     */
+    protected void framed (int length) {
+
+	bytesFramed.addAndGet(length);
+
+    } // framed ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Count a received frame that failed its check, and record it for the
+     * flight recorder.  Called by the thread delivering bits, and by the
+     * verifier's threads, at once.
+     *
+     * @param length The length of the frame, with its trailers.
+     */
+    protected void checksumFailed (int length) {
+
+	LinkEvents.checksumFailed(typeName, length, checksumFailures.getAndIncrement());
+
+    } // checksumFailed ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Called by the physical layer when a received symbol is a code
+     * violation, after the bits before it and before its own guessed bits.
+     * Interleaved bytes arrive only with the rest of their block, so then the
+     * violation cannot be placed within a frame, and is only counted.
+     */
+    void receiveCodeViolation () {
+
+	if (interleaver == null) {
+	    codeViolation();
+	}
+
+    } // receiveCodeViolation ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Note that a code violation was received after the bytes received so
+     * far.  A subclass may reject the frame being received, as damaged,
+     * without waiting for its check.
+     */
+    protected void codeViolation () {
+    } // codeViolation ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Count received bytes abandoned in looking for the next frame, and record
+     * them for the flight recorder.  Called by the thread delivering bits.
+     *
+     * @param length The number of bytes abandoned.
+     */
+    protected void resynchronized (int length) {
+
+	LinkEvents.resync(typeName, length, resyncs++);
+
+    } // resynchronized ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Discard everything received so far, as if this layer had just been
+     * created.  Subclasses that keep their own receiving state must also
+     * reset it.
+     */
+    protected void resetReceiver () {
+
+	bitBuffer = 0;
+	bitCount  = 0;
+	byteCount = 0;
+	if (interleaver != null) {
+	    interleaver.reset();
+	}
+
+    } // resetReceiver ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Remove bytes from the front of the byte buffer.
+     *
+     * @param count The number of bytes to remove.
+     */
+    protected void consumeBytes (int count) {
+
+	System.arraycopy(byteBuffer, count, byteBuffer, 0, byteCount - count);
+	byteCount -= count;
+
+    } // consumeBytes ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Deliver correct data to the client.  Frames are delivered one at a time
+     * and in the order in which they were received.  With aggregation, the
+     * client is instead given each message that the data completes.
+     *
+     * @param data The data extracted from a correct frame.
+     */
+    protected void deliver (byte[] data) {
+
+	if (debug) {
+	    System.out.println("DataLinkLayer.deliver(): Got a whole frame!");
+	}
+	if (aggregator == null) {
+	    client.receive(data);
+	} else {
+	    for (byte[] message : aggregator.split(data)) {
+		client.receive(message);
+	    }
+	}
+
+    } // deliver ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Deliver part of a frame that has not yet been checked, for streaming
+     * delivery.  If the frame turns out to be damaged, only what the client
+     * buffered can be withdrawn.
+     *
+     * @param  data The data extracted so far from the frame.
+     * @return the number of bytes that the client buffered.
+     */
+    protected int deliverUnchecked (byte[] data) {
+
+	if (aggregator == null) {
+	    return client.receive(data);
+	}
+	int buffered = 0;
+	for (byte[] message : aggregator.split(data)) {
+	    buffered += client.receive(message);
+	}
+	return buffered;
+
+    } // deliverUnchecked ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Check received frames with a pool of verifier threads rather than on the
+     * thread delivering bits.
+     *
+     * @param threads The number of verifier threads, or <code>0</code> to check
+     *                each frame as it is extracted.
+     */
+    public void setVerifierThreads (int threads) {
+
+	if (verifier != null) {
+	    verifier.drain();
+	    verifier.shutdown();
+	    verifier = null;
+	}
+	if (threads > 0) {
+	    verifier = new FrameVerifier(this, threads);
+	}
+
+    } // setVerifierThreads ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /** @return whether received frames are checked by verifier threads. */
+    protected boolean hasVerifierThreads () {
+
+	return verifier != null;
+
+    } // hasVerifierThreads ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Wait until every frame extracted so far has been checked and, if
+     * correct, delivered to the client.
+     */
+    public void drain () {
+
+	if (verifier != null) {
+	    verifier.drain();
+	}
+
+    } // drain ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Write the state that a checkpoint must carry for this layer to continue
+     * where it left off: the bits and bytes received but not yet taken as a
+     * frame, the counters, and the state of the physical layer.  Settings are
+     * not written; they are applied again when the layer is created.  Called
+     * only between sends, when the medium is quiet.  Subclasses that keep
+     * their own receiving state must also write it, after this layer's.
+     *
+     * @param  out The stream to write to.
+     * @throws IOException if the state cannot be written.
+     * @throws RuntimeException if this layer holds state that cannot be
+     *                          checkpointed: an interleaver, verifier
+     *                          threads, or an aggregator.
+     */
+    protected void writeState (DataOutputStream out) throws IOException {
+
+	if (interleaver != null || verifier != null || aggregator != null) {
+	    throw new RuntimeException("Interleaving, verifier threads and " +
+				       "aggregation cannot be checkpointed");
+	}
+	out.writeInt(bitBuffer);
+	out.writeByte(bitCount);
+	out.writeInt(byteCount);
+	out.write(byteBuffer, 0, byteCount);
+	out.writeLong(frameOverruns);
+	out.writeLong(bufferOverruns);
+	out.writeLong(bytesTransmitted);
+	out.writeLong(transmissions);
+	out.writeLong(sendsFramed.get());
+	out.writeLong(bytesFramed.get());
+	out.writeLong(checksumFailures.get());
+	out.writeLong(resyncs);
+	physicalLayer.writeState(out);
+
+    } // writeState ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Restore the state written by <code>writeState()</code> into a layer
+     * created with the same settings.
+     *
+     * @param  in The stream to read from.
+     * @throws IOException if the state cannot be read.
+     */
+    protected void readState (DataInputStream in) throws IOException {
+
+	bitBuffer = in.readInt();
+	bitCount  = in.readByte();
+	byteCount = in.readInt();
+	if (byteCount > byteBuffer.length) {
+	    byteBuffer = new byte[byteCount];
+	}
+	in.readFully(byteBuffer, 0, byteCount);
+	frameOverruns    = in.readLong();
+	bufferOverruns   = in.readLong();
+	bytesTransmitted = in.readLong();
+	transmissions    = in.readLong();
+	sendsFramed.set(in.readLong());
+	bytesFramed.set(in.readLong());
+	checksumFailures.set(in.readLong());
+	resyncs          = in.readLong();
+	physicalLayer.readState(in);
+
+    } // readState ()
+    // =========================================================================
 
 
 
@@ -254,15 +1093,103 @@ public abstract class DataLinkLayer {
     /** The host that is using this layer. */
     protected Host           client;
 
-    /** The buffer of bits recently received, building up the current byte. */
-    protected Queue<Boolean> bitBuffer;
+    /**
+     * The bits recently received, building up the current byte, with the
+     * earliest most significant.
+     */
+    protected int            bitBuffer    = 0;
+
+    /** The number of bits in <code>bitBuffer</code>. */
+    protected int            bitCount     = 0;
+
+    /**
+     * The buffer of bytes recently received, building up the current frame.
+     * The first <code>byteCount</code> bytes are valid; a subclass consumes
+     * them with <code>consumeBytes()</code>.
+     */
+    protected byte[]         byteBuffer;
+
+    /** The number of bytes in <code>byteBuffer</code>. */
+    protected int            byteCount    = 0;
+
+    /**
+     * The maximum number of data bytes that a subclass places in each frame,
+     * or <code>0</code> if each send is framed as a whole.
+     */
+    protected int            frameSize    = 0;
+
+    /** The largest received frame, or 0 for the default. */
+    private int              maxFrameLength = 0;
+
+    /**
+     * The number of received frames abandoned for being too long.  Updated
+     * only by the receiving thread, and read by others.
+     */
+    protected volatile long  frameOverruns  = 0;
+
+    /**
+     * The number of received bytes discarded from a full byte buffer.
+     * Updated only by the receiving thread, and read by others.
+     */
+    protected volatile long  bufferOverruns = 0;
+
+    /** The number of bytes put on the medium.  Updated holding the medium. */
+    private long             bytesTransmitted = 0;
+
+    /** The number of transmissions made.  Updated holding the medium. */
+    private long             transmissions    = 0;
+
+    /** The number of sends framed. */
+    private final AtomicLong sendsFramed      = new AtomicLong();
+
+    /** The number of data bytes framed. */
+    private final AtomicLong bytesFramed      = new AtomicLong();
 
-    /** The buffer of bytes recently received, building up the current frame. */
-    protected Queue<Byte>    byteBuffer;
+    /**
+     * The number of frames failing their checks.  Counted by the receiving
+     * thread and the verifier's threads alike.
+     */
+    private final AtomicLong checksumFailures = new AtomicLong();
+
+    /**
+     * The number of partial frames abandoned.  Updated only by the receiving
+     * thread, and read by others.
+     */
+    private volatile long    resyncs          = 0;
+
+    /** The name of this layer's type. */
+    private String           typeName         = getClass().getSimpleName();
+
+    /** The interleaver of the bits on the medium, if any. */
+    private BlockInterleaver interleaver;
+
+    /** The pool checking received frames, if any. */
+    private FrameVerifier    verifier     = null;
+
+    /** Whether large sends are framed in parallel. */
+    private boolean          parallelSend = false;
+
+    /** Packs small messages into batches, if aggregating. */
+    private MessageAggregator aggregator  = null;
+
+    /** The smallest send, in bytes, that is framed in parallel. */
+    public static final int     PARALLEL_THRESHOLD  = 64 * 1024;
+
+    /** The approximate number of data bytes framed by each parallel task. */
+    public static final int     PARALLEL_CHUNK_SIZE = 16 * 1024;
+
+    /** The number of bytes packed into each word sent to the medium. */
+    public static final int     BYTES_PER_WORD = 8;
 
     /** The number of bits in a byte. */
     public static final int     BITS_PER_BYTE = 8;
 
+    /** The room allowed beyond the data for a frame's trailers. */
+    public static final int     MAX_TRAILER_LENGTH       = 64;
+
+    /** The initial capacity of the byte buffer. */
+    private static final int    INITIAL_BYTE_BUFFER_SIZE = 64;
+
     /** Whether to emit debugging information. */
     public static final boolean debug         = false;
     // =========================================================================
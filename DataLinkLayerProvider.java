@@ -0,0 +1,42 @@
+// =============================================================================
+/**
+ * Creates data link layers of one type.  Providers are discovered with
+ * <code>java.util.ServiceLoader</code> from
+ * <code>META-INF/services/DataLinkLayerProvider</code>, and are looked up by
+ * name when hosts are created.
+ *
+ * @file   DataLinkLayerProvider.java
+ * @date   October 2026
+ */
+public interface DataLinkLayerProvider {
+// =============================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @return the name by which this type is requested, such as
+     *         <code>CRC</code>.
+     */
+    public String name ();
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Create a new, unregistered data link layer of this type.  The caller
+     * applies the settings in the configuration that are common to all layers,
+     * and registers the layer with its physical layer and host.
+     *
+     * @param  config The configuration of the new layer.
+     * @return the new data link layer.
+     */
+    public DataLinkLayer create (LayerConfig config);
+    // =========================================================================
+
+
+
+// =============================================================================
+} // interface DataLinkLayerProvider
+// =============================================================================
@@ -0,0 +1,83 @@
+// =============================================================================
+/**
+ * When a data link layer hands the data of a received frame to its host.
+ *
+ * @file   DeliveryMode.java
+ * @date   October 2026
+ */
+public enum DeliveryMode {
+// =============================================================================
+
+
+
+    /** Deliver each frame whole, once it has ended and passed its check. */
+    STORE_AND_FORWARD ("store"),
+
+    /**
+     * Deliver each data byte as soon as it is unescaped.  Only for layers
+     * with no error detection, since nothing is left to check.
+     */
+    CUT_THROUGH       ("cut-through"),
+
+    /**
+     * Deliver each data byte as soon as it can no longer be part of a
+     * trailer, and retract the frame's bytes from the host if the frame then
+     * fails its check or is abandoned.
+     */
+    SPECULATIVE       ("speculative");
+
+
+
+    // =========================================================================
+    DeliveryMode (String name) {
+
+	this.name = name;
+
+    } // DeliveryMode ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @param  name The name of a mode: <code>store</code>,
+     *              <code>cut-through</code>, or <code>speculative</code>.
+     * @return the mode.
+     * @throws RuntimeException if there is no such mode.
+     */
+    public static DeliveryMode forName (String name) {
+
+	for (DeliveryMode mode : values()) {
+	    if (mode.name.equals(name)) {
+		return mode;
+	    }
+	}
+	throw new RuntimeException("Unknown delivery mode " + name);
+
+    } // forName ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    public String toString () {
+
+	return name;
+
+    } // toString ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // DATA MEMBERS
+
+    /** The name of the mode on the command line. */
+    private final String name;
+    // =========================================================================
+
+
+
+// =============================================================================
+} // enum DeliveryMode
+// =============================================================================
@@ -0,0 +1,541 @@
+// =============================================================================
+// IMPORTS
+
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+// =============================================================================
+
+
+
+// =============================================================================
+/**
+ * Measures how often corrupted frames get past each layer's error detection.
+ * Each trial frames a random payload with a layer's own
+ * <code>createFrame()</code>, corrupts the framed bits according to an error
+ * model, and feeds them to the same layer's <code>processFrame()</code>.  A
+ * trial whose frame was corrupted ends in one of three ways:
+ *
+ *   detected    Nothing was delivered.
+ *   corrected   Only the original payload was delivered.
+ *   undetected  Something other than the original payload was delivered.
+ *
+ * No layer yet corrects errors, so a corrected trial means that the damage
+ * happened not to matter.  Trials run in chunks across a pool, each chunk
+ * with its own layer and its own stream split from one seeded
+ * <code>SplittableRandom</code>, so the results depend only on the seed and
+ * the chunking, not on scheduling.  The rates are reported with Wilson score
+ * intervals.
+ *
+ * With <code>--interleave</code>, each framed payload is padded and block
+ * interleaved before it is corrupted, and de-interleaved after, as a layer
+ * with that interleaving depth would do.
+ *
+ * The error models are:
+ *
+ *   single      One bit, chosen uniformly, is flipped.
+ *   burst:L     The first and last bits of a random L-bit window are
+ *               flipped, and each bit between them with probability 1/2.
+ *   ber:P       Each bit is flipped independently with probability P, as
+ *               on a <code>LowNoise</code> medium.
+ *
+ * @file   DetectionTrials.java
+ * @date   October 2026
+ */
+public class DetectionTrials {
+// =============================================================================
+
+
+
+    // =========================================================================
+    /**
+     * The entry point.  Interpret the command-line arguments, aborting if they
+     * are invalid, and then run the trials.
+     *
+     * @param args The command-line arguments.
+     */
+    public static void main (String[] args) {
+
+	String[] layerTypes = { "Dumb", "Parity", "CRC" };
+	String[] detectors  = { };
+	String[] models     = { "single", "burst:16", "ber:0.001" };
+	long     trials     = 1000000;
+	int      frameBytes = DataLinkLayer.BITS_PER_BYTE;
+	int      interleave = 0;
+	int      threads    = Runtime.getRuntime().availableProcessors();
+	long     seed       = LowNoiseMedium.DEFAULT_SEED;
+	String   outputPath = null;
+
+	for (int i = 0; i < args.length; i += 2) {
+	    if (i + 1 >= args.length) {
+		usage();
+	    }
+	    String option = args[i];
+	    String value  = args[i + 1];
+	    if (option.equals("--layers")) {
+		layerTypes = value.isEmpty() ? new String[0] : value.split(",");
+	    } else if (option.equals("--detectors")) {
+		detectors = value.isEmpty() ? new String[0] : value.split(",");
+	    } else if (option.equals("--models")) {
+		models = value.split(",");
+	    } else if (option.equals("--trials")) {
+		trials = (long)Double.parseDouble(value);
+	    } else if (option.equals("--frame-bytes")) {
+		frameBytes = Integer.parseInt(value);
+	    } else if (option.equals("--interleave")) {
+		interleave = Integer.parseInt(value);
+	    } else if (option.equals("--threads")) {
+		threads = Integer.parseInt(value);
+	    } else if (option.equals("--seed")) {
+		seed = Long.parseLong(value);
+	    } else if (option.equals("--out")) {
+		outputPath = value;
+	    } else {
+		usage();
+	    }
+	}
+	if (trials < 1 || frameBytes < 1 || threads < 1) {
+	    usage();
+	}
+
+	// Each layer type is a target as it is; each detector is a target as
+	// the sole stage of a staged layer.
+	List<Target> targets = new ArrayList<Target>();
+	LayerConfig  config  = LayerConfig.DEFAULT.withFrameSize(frameBytes)
+	                                          .withInterleaveDepth(interleave);
+	for (String layerType : layerTypes) {
+	    targets.add(new Target(layerType, layerType, config));
+	}
+	for (String detector : detectors) {
+	    ErrorDetectors.forName(detector);
+	    targets.add(new Target("Staged/" + detector, "Staged", config.withStages(detector)));
+	}
+	List<ErrorModel> errorModels = new ArrayList<ErrorModel>();
+	for (String model : models) {
+	    errorModels.add(ErrorModel.parse(model));
+	}
+
+	PrintStream output = System.out;
+	if (outputPath != null) {
+	    try {
+		output = new PrintStream(outputPath);
+	    } catch (FileNotFoundException e) {
+		throw new RuntimeException("Could not write " + outputPath);
+	    }
+	}
+
+	output.println("target,model,frame_bytes,trials,errored,detected,corrected,undetected," +
+		       "detected_rate,detected_low,detected_high,corrected_rate,"            +
+		       "undetected_rate,undetected_low,undetected_high,trials_per_sec");
+	ExecutorService  pool   = Executors.newFixedThreadPool(threads);
+	SplittableRandom random = new SplittableRandom(seed);
+	try {
+	    for (Target target : targets) {
+		for (ErrorModel model : errorModels) {
+		    long  start = System.nanoTime();
+		    Tally tally = run(pool, threads, target, model, frameBytes, trials, random.split());
+		    double secs = (System.nanoTime() - start) / 1e9;
+		    print(output, target, model, frameBytes, tally, secs);
+		    output.flush();
+		}
+	    }
+	} finally {
+	    pool.shutdownNow();
+	}
+	if (output != System.out) {
+	    output.close();
+	}
+
+    } // main ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Print the command-line usage and exit.
+     */
+    private static void usage () {
+
+	System.err.println("Usage: java DetectionTrials "       +
+			   "[--layers <types>] "                +
+			   "[--detectors <names>] "             +
+			   "[--models <single|burst:L|ber:P>] " +
+			   "[--trials <count>] "                +
+			   "[--frame-bytes <bytes>] "           +
+			   "[--interleave <depth>] "            +
+			   "[--threads <count>] "               +
+			   "[--seed <seed>] "                   +
+			   "[--out <results file>]\n"           +
+			   "Lists are comma-separated.");
+	System.exit(1);
+
+    } // usage ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Run the trials of one target under one error model, in chunks across
+     * the pool.
+     *
+     * @return the combined counts.
+     */
+    private static Tally run (ExecutorService        pool,
+			      int                    threads,
+			      final Target           target,
+			      final ErrorModel       model,
+			      final int              frameBytes,
+			      long                   trials,
+			      SplittableRandom       random) {
+
+	long chunks    = Math.min(trials, (long)threads * CHUNKS_PER_THREAD);
+	long perChunk  = trials / chunks;
+	long remainder = trials % chunks;
+	List<Future<Tally>> futures = new ArrayList<Future<Tally>>();
+	for (long c = 0; c < chunks; c += 1) {
+	    final long             count  = perChunk + (c < remainder ? 1 : 0);
+	    final SplittableRandom stream = random.split();
+	    futures.add(pool.submit(new Callable<Tally>() {
+		    public Tally call () {
+			return trial(target, model, frameBytes, count, stream);
+		    }
+		}));
+	}
+
+	Tally total = new Tally();
+	try {
+	    for (Future<Tally> future : futures) {
+		total.add(future.get());
+	    }
+	} catch (InterruptedException e) {
+	    throw new RuntimeException("Trials interrupted");
+	} catch (ExecutionException e) {
+	    throw new RuntimeException("Trials failed: " + e.getCause());
+	}
+	return total;
+
+    } // run ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Run a chunk of trials with a layer of its own.
+     *
+     * @return the counts of the chunk.
+     */
+    private static Tally trial (Target           target,
+				ErrorModel       model,
+				int              frameBytes,
+				long             count,
+				SplittableRandom random) {
+
+	DataLinkLayer    layer       = target.create();
+	int              depth       = target.config.getInterleaveDepth();
+	BlockInterleaver interleaver = (depth == 0) ? null : new BlockInterleaver(depth);
+	byte[]           block       = new byte[depth];
+	byte[]           data        = new byte[frameBytes];
+	Tally            tally       = new Tally();
+	for (long t = 0; t < count; t += 1) {
+
+	    random.nextBytes(data);
+	    byte[] frame = layer.createFrame(data);
+	    if (interleaver != null) {
+		frame = interleaver.interleave(frame);
+	    }
+	    if (model.corrupt(frame, random) == 0) {
+		tally.clean += 1;
+		continue;
+	    }
+	    if (interleaver != null) {
+		for (int b = 0; b < frame.length; b += depth) {
+		    interleaver.deinterleave(frame, b, block, 0);
+		    System.arraycopy(block, 0, frame, b, depth);
+		}
+	    }
+
+	    // Receive the damaged frame from a clean start.
+	    layer.resetReceiver();
+	    if (layer.byteBuffer.length < frame.length) {
+		layer.byteBuffer = new byte[frame.length];
+	    }
+	    System.arraycopy(frame, 0, layer.byteBuffer, 0, frame.length);
+	    layer.byteCount = frame.length;
+
+	    boolean delivered = false;
+	    boolean wrong     = false;
+	    while (layer.byteCount > 0) {
+		int    before   = layer.byteCount;
+		byte[] received = layer.processFrame();
+		if (received != null) {
+		    delivered = true;
+		    wrong    |= !Arrays.equals(received, data);
+		} else if (layer.byteCount == before) {
+		    break;
+		}
+	    }
+	    if (wrong) {
+		tally.undetected += 1;
+	    } else if (delivered) {
+		tally.corrected += 1;
+	    } else {
+		tally.detected += 1;
+	    }
+
+	}
+	return tally;
+
+    } // trial ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    private static void print (PrintStream output,
+			       Target      target,
+			       ErrorModel  model,
+			       int         frameBytes,
+			       Tally       tally,
+			       double      secs) {
+
+	long     errored    = tally.detected + tally.corrected + tally.undetected;
+	double[] detected   = wilson(tally.detected, errored);
+	double[] undetected = wilson(tally.undetected, errored);
+	output.println(String.format(Locale.ROOT,
+				     "%s,%s,%d,%d,%d,%d,%d,%d,%.6g,%.6g,%.6g,%.6g,%.6g,%.6g,%.6g,%.0f",
+				     target.name,
+				     model.name,
+				     frameBytes,
+				     errored + tally.clean,
+				     errored,
+				     tally.detected,
+				     tally.corrected,
+				     tally.undetected,
+				     rate(tally.detected, errored),
+				     detected[0],
+				     detected[1],
+				     rate(tally.corrected, errored),
+				     rate(tally.undetected, errored),
+				     undetected[0],
+				     undetected[1],
+				     (errored + tally.clean) / secs));
+
+    } // print ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    private static double rate (long count, long total) {
+
+	return (total == 0) ? 0 : (double)count / total;
+
+    } // rate ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @return the 95% Wilson score interval of a proportion, as its low and
+     *         high bounds.
+     */
+    private static double[] wilson (long successes, long trials) {
+
+	if (trials == 0) {
+	    return new double[] { 0, 1 };
+	}
+	double n      = trials;
+	double p      = successes / n;
+	double z2     = Z * Z;
+	double scale  = 1 + z2 / n;
+	double center = (p + z2 / (2 * n)) / scale;
+	double half   = Z * Math.sqrt(p * (1 - p) / n + z2 / (4 * n * n)) / scale;
+	return new double[] { Math.max(0, center - half), Math.min(1, center + half) };
+
+    } // wilson ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * A layer under test: a layer type with its configuration.
+     */
+    private static class Target {
+
+	Target (String name, String layerType, LayerConfig config) {
+
+	    this.name      = name;
+	    this.layerType = layerType;
+	    this.config    = config;
+
+	}
+
+	/** @return a new layer of this target, attached to a medium of its own. */
+	DataLinkLayer create () {
+
+	    return new Host(Medium.create("Perfect"), layerType, config).getDataLinkLayer();
+
+	}
+
+	final String      name;
+	final String      layerType;
+	final LayerConfig config;
+
+    } // class Target
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * A way of corrupting the bits of a frame.
+     */
+    private static abstract class ErrorModel {
+
+	ErrorModel (String name) {
+
+	    this.name = name;
+
+	}
+
+	/**
+	 * Corrupt a frame in place.
+	 *
+	 * @return the number of bits flipped.
+	 */
+	abstract int corrupt (byte[] frame, SplittableRandom random);
+
+	/**
+	 * @return the model named by a command-line argument.
+	 * @throws RuntimeException if the name is not a valid model.
+	 */
+	static ErrorModel parse (final String name) {
+
+	    if (name.equals("single")) {
+		return new ErrorModel(name) {
+		    int corrupt (byte[] frame, SplittableRandom random) {
+			flip(frame, random.nextInt(frame.length * 8));
+			return 1;
+		    }
+		};
+	    } else if (name.startsWith("burst:")) {
+		final int length = Integer.parseInt(name.substring(6));
+		if (length < 1) {
+		    throw new RuntimeException("Invalid burst length " + length);
+		}
+		return new ErrorModel(name) {
+		    int corrupt (byte[] frame, SplittableRandom random) {
+			int bits  = frame.length * 8;
+			int span  = Math.min(length, bits);
+			int start = random.nextInt(bits - span + 1);
+			int flips = 1;
+			flip(frame, start);
+			for (int bit = start + 1; bit < start + span - 1; bit += 1) {
+			    if (random.nextBoolean()) {
+				flip(frame, bit);
+				flips += 1;
+			    }
+			}
+			if (span > 1) {
+			    flip(frame, start + span - 1);
+			    flips += 1;
+			}
+			return flips;
+		    }
+		};
+	    } else if (name.startsWith("ber:")) {
+		final double probability = Double.parseDouble(name.substring(4));
+		if (!(probability > 0 && probability < 1)) {
+		    throw new RuntimeException("Invalid bit error rate " + probability);
+		}
+		final double logKeep = Math.log1p(-probability);
+		return new ErrorModel(name) {
+		    // Skip ahead by geometrically distributed gaps between flips,
+		    // rather than drawing for every bit.
+		    int corrupt (byte[] frame, SplittableRandom random) {
+			int  bits  = frame.length * 8;
+			int  flips = 0;
+			long bit   = -1;
+			while (true) {
+			    bit += 1 + (long)(Math.log(1 - random.nextDouble()) / logKeep);
+			    if (bit >= bits) {
+				return flips;
+			    }
+			    flip(frame, (int)bit);
+			    flips += 1;
+			}
+		    }
+		};
+	    }
+	    throw new RuntimeException("Unknown error model " + name);
+
+	}
+
+	/** Flip one bit, counting from the most significant bit of the first byte. */
+	static void flip (byte[] frame, int bit) {
+
+	    frame[bit >>> 3] ^= (byte)(0x80 >>> (bit & 7));
+
+	}
+
+	final String name;
+
+    } // class ErrorModel
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * The outcomes of a number of trials.
+     */
+    private static class Tally {
+
+	void add (Tally other) {
+
+	    clean      += other.clean;
+	    detected   += other.detected;
+	    corrected  += other.corrected;
+	    undetected += other.undetected;
+
+	}
+
+	long clean      = 0;
+	long detected   = 0;
+	long corrected  = 0;
+	long undetected = 0;
+
+    } // class Tally
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // DATA MEMBERS
+
+    /** The number of chunks per thread, to balance uneven chunks. */
+    private static final int    CHUNKS_PER_THREAD = 8;
+
+    /** The normal quantile of a 95% confidence interval. */
+    private static final double Z = 1.959964;
+    // =========================================================================
+
+
+
+// =============================================================================
+} // class DetectionTrials
+// =============================================================================
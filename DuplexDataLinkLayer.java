@@ -0,0 +1,707 @@
+// =============================================================================
+// IMPORTS
+
+import java.io.DataOutputStream;
+import java.util.Arrays;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+// =============================================================================
+
+
+
+// =============================================================================
+/**
+ * A reliable data link layer for hosts that send in both directions at once.
+ * Each frame begins with a two-byte header, a sequence number and an
+ * acknowledgement, followed by up to <code>frameSize</code> data bytes, and
+ * ends with a CRC-32.  Frames are sent with go-back-N: up to
+ * <code>WINDOW_SIZE</code> frames may be unacknowledged, and if the oldest
+ * has not been acknowledged within the retransmission timeout, all of them
+ * are sent again.
+ *
+ * The simulated medium has no latency of its own, so the timeout cannot be a
+ * fixed time: the round trip is however long the other host's threads take
+ * to answer.  It is therefore measured, as TCP does: each acknowledgement
+ * gives a sample, timed from when the newest frame it covers was last sent,
+ * and the timeout is the smoothed round trip plus four times its mean
+ * deviation, kept between <code>MIN_RETRANSMIT_MILLIS</code> and
+ * <code>MAX_RETRANSMIT_MILLIS</code>.  It is doubled after each expiry, and
+ * restored once the window advances.  Karn's rule, which times only frames
+ * sent once, is not needed: delivery is synchronous, so a frame is sent
+ * again only once it or an earlier frame has been lost, and its
+ * acknowledgement is then of the last copy.  On a noisy medium, few frames
+ * would otherwise be timed at all.
+ *
+ * The acknowledgement is cumulative, naming the next sequence number expected
+ * from the other host, and rides on whatever data frame is next sent the other
+ * way, resent frames included.  While this host is sending, an
+ * acknowledgement waits for a quarter of the timeout to catch a data frame.
+ * It is sent at once, in a frame of its own, when no data frame will leave
+ * soon (this host is not sending, or its window is full), when the other
+ * host's window is full of frames owed one, or when a frame arrives out of
+ * order.  An acknowledgement on its own that does not advance the window, or
+ * that stops short of the frames last resent, therefore reports a lost frame,
+ * and the window is sent again at once, without waiting for the timeout.
+ *
+ * Each frame holds the medium only while it is transmitted, so that the
+ * frames of the two directions interleave.  As the type <code>Duplex</code>.
+ *
+ * @file   DuplexDataLinkLayer.java
+ * @date   October 2026
+ */
+public class DuplexDataLinkLayer extends StagedDataLinkLayer {
+// =============================================================================
+
+
+
+    // =========================================================================
+    // PUBLIC METHODS
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Each frame carries up to <code>DEFAULT_FRAME_SIZE</code> data bytes.
+     */
+    public DuplexDataLinkLayer () {
+
+	super(0, ErrorDetectors.forName("crc32"));
+	this.lock       = new ReentrantLock();
+	this.windowOpen = lock.newCondition();
+	setFrameSize(DEFAULT_FRAME_SIZE);
+
+    } // DuplexDataLinkLayer ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Set the maximum number of data bytes in each frame, and limit received
+     * frames to match.
+     *
+     * @param frameSize The number of data bytes per frame.
+     * @throws RuntimeException if the frame size is not positive.
+     */
+    public void setFrameSize (int frameSize) {
+
+	if (frameSize < 1) {
+	    throw new RuntimeException("Invalid frame size " + frameSize);
+	}
+	segmentSize = frameSize;
+	setMaxFrameLength(frameSize + HEADER_LENGTH + MAX_TRAILER_LENGTH);
+
+    } // setFrameSize ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Only whole, checked frames may be delivered, since a frame's data is
+     * discarded if it arrives out of order.
+     *
+     * @param mode The delivery mode.
+     * @throws RuntimeException if the mode is not store-and-forward.
+     */
+    public void setDeliveryMode (DeliveryMode mode) {
+
+	if (mode != DeliveryMode.STORE_AND_FORWARD) {
+	    throw new RuntimeException("Duplex layers need store-and-forward delivery");
+	}
+
+    } // setDeliveryMode ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Send any messages held by the aggregator, then wait until every frame
+     * sent so far has been acknowledged.
+     */
+    public void flush () {
+
+	super.flush();
+	lock.lock();
+	try {
+	    while (outstanding > 0) {
+		windowOpen.awaitUninterruptibly();
+	    }
+	} finally {
+	    lock.unlock();
+	}
+
+    } // flush ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /** @return a description of what this layer has sent. */
+    public String summary () {
+
+	lock.lock();
+	try {
+	    return String.format("duplex: %d data frames (%d retransmitted," +
+				 " %d windows resent early)," +
+				 " %d acknowledgements piggybacked," +
+				 " %d sent alone; %d frames discarded" +
+				 " out of order; timeout %.3f ms",
+				 dataFrames,
+				 retransmissions,
+				 fastRetransmissions,
+				 piggybackedAcks,
+				 ackFrames,
+				 outOfOrder,
+				 timeoutNanos / 1e6);
+	} finally {
+	    lock.unlock();
+	}
+
+    } // summary ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // SENDING
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Divide the data into frames and send each one, waiting whenever the
+     * window is full.
+     *
+     * @param data The sequence of bytes to send.
+     */
+    protected void sendPayload (byte[] data) {
+
+	lock.lock();
+	try {
+	    sending = true;
+	} finally {
+	    lock.unlock();
+	}
+	try {
+	    sendSegments(data);
+	} finally {
+	    // No data frame will carry what is owed now.
+	    lock.lock();
+	    try {
+		sending = false;
+		if (ackOwed) {
+		    scheduleAcknowledgement(0);
+		}
+	    } finally {
+		lock.unlock();
+	    }
+	}
+
+    } // sendPayload ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Divide the data into frames and send each one, waiting whenever the
+     * window is full.
+     *
+     * @param data The sequence of bytes to send.
+     */
+    private void sendSegments (byte[] data) {
+
+	for (int start = 0; start < data.length; start += segmentSize) {
+	    int    end    = Math.min(start + segmentSize, data.length);
+	    byte[] framed;
+	    lock.lock();
+	    try {
+		while (outstanding == WINDOW_SIZE) {
+		    if (ackOwed) {
+			scheduleAcknowledgement(0);
+		    }
+		    windowOpen.awaitUninterruptibly();
+		}
+		byte[] segment = new byte[HEADER_LENGTH + end - start];
+		segment[0] = (byte)nextSequence;
+		segment[1] = (byte)expected;
+		System.arraycopy(data, start, segment, HEADER_LENGTH, end - start);
+		framed = createFrame(segment);
+		framed(end - start);
+		int slot = nextSequence & WINDOW_MASK;
+		unacknowledged[slot] = segment;
+		sentTimes[slot]      = System.nanoTime();
+		nextSequence  = (nextSequence + 1) & SEQUENCE_MASK;
+		outstanding  += 1;
+		dataFrames   += 1;
+		if (ackOwed) {
+		    piggybackedAcks += 1;
+		    ackOwed          = false;
+		    owedFrames       = 0;
+		}
+		if (outstanding == 1) {
+		    sentAt = sentTimes[slot];
+		    scheduleRetransmission(timeoutNanos);
+		}
+	    } finally {
+		lock.unlock();
+	    }
+	    transmit(framed);
+	}
+
+    } // sendSegments ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * If the oldest unacknowledged frame has waited too long, send it and
+     * every later frame again.  Runs on the timer thread.
+     */
+    private void retransmit () {
+
+	byte[][] frames;
+	lock.lock();
+	try {
+	    retransmitScheduled = false;
+	    if (outstanding == 0) {
+		return;
+	    }
+	    long waited = System.nanoTime() - sentAt;
+	    if (waited < timeoutNanos) {
+		scheduleRetransmission(timeoutNanos - waited);
+		return;
+	    }
+	    timeoutNanos = Math.min(2 * timeoutNanos, MAX_TIMEOUT_NANOS);
+	    frames       = resendWindow();
+	} finally {
+	    lock.unlock();
+	}
+	for (int i = 0; i < frames.length; i += 1) {
+	    transmit(frames[i]);
+	}
+
+    } // retransmit ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Frame every unacknowledged segment again, and restart the timer.  Each
+     * carries the acknowledgement as it is now, not as it was when first
+     * sent: a frame held for long enough that the other host has since sent
+     * a whole sequence space would otherwise acknowledge frames that it has
+     * never received.  The lock must be held.
+     *
+     * @return the frames to send again, oldest first.
+     */
+    private byte[][] resendWindow () {
+
+	long     now    = System.nanoTime();
+	byte[][] frames = new byte[outstanding][];
+	for (int i = 0; i < outstanding; i += 1) {
+	    int    slot    = (base + i) & WINDOW_MASK;
+	    byte[] segment = unacknowledged[slot];
+	    segment[1]      = (byte)expected;
+	    frames[i]       = createFrame(segment);
+	    sentTimes[slot] = now;
+	}
+	if (ackOwed) {
+	    piggybackedAcks += 1;
+	    ackOwed          = false;
+	    owedFrames       = 0;
+	}
+	retransmissions += outstanding;
+	recoveryPoint    = nextSequence;
+	recovering       = true;
+	sentAt           = now;
+	scheduleRetransmission(timeoutNanos);
+	return frames;
+
+    } // resendWindow ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Send an acknowledgement on its own, unless one has since left on a data
+     * frame.  Runs on the timer thread.
+     */
+    private void acknowledge () {
+
+	byte[] framed;
+	lock.lock();
+	try {
+	    ackDueAt = Long.MAX_VALUE;
+	    if (!ackOwed) {
+		return;
+	    }
+	    ackOwed    = false;
+	    owedFrames = 0;
+	    ackFrames += 1;
+	    framed     = createFrame(new byte[] { (byte)nextSequence, (byte)expected });
+	} finally {
+	    lock.unlock();
+	}
+	transmit(framed);
+
+    } // acknowledge ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /** Schedule a check for retransmission.  The lock must be held. */
+    private void scheduleRetransmission (long delayNanos) {
+
+	if (!retransmitScheduled) {
+	    retransmitScheduled = true;
+	    timer.schedule(new Runnable() {
+		    public void run () {
+			retransmit();
+		    }
+		}, delayNanos, TimeUnit.NANOSECONDS);
+	}
+
+    } // scheduleRetransmission ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Schedule an acknowledgement to be sent on its own, unless one is
+     * already due sooner.  The lock must be held.
+     */
+    private void scheduleAcknowledgement (long delayNanos) {
+
+	long dueAt = System.nanoTime() + delayNanos;
+	if (dueAt - ackDueAt < 0) {
+	    ackDueAt = dueAt;
+	    timer.schedule(new Runnable() {
+		    public void run () {
+			acknowledge();
+		    }
+		}, delayNanos, TimeUnit.NANOSECONDS);
+	}
+
+    } // scheduleAcknowledgement ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Note that an acknowledgement is owed, and decide how long it may wait
+     * for a data frame to carry it.  The lock must be held.
+     *
+     * @param lost Whether the frame arrived out of order, so that the other
+     *             host should learn of the loss at once.
+     */
+    private void oweAcknowledgement (boolean lost) {
+
+	ackOwed     = true;
+	owedFrames += 1;
+	if (lost || !sending || outstanding == WINDOW_SIZE || owedFrames >= WINDOW_SIZE) {
+	    scheduleAcknowledgement(0);
+	} else {
+	    scheduleAcknowledgement(timeoutNanos / 4);
+	}
+
+    } // oweAcknowledgement ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Take a sample of the round trip, and recompute the timeout from the
+     * smoothed round trip and its mean deviation.  The lock must be held.
+     */
+    private void sampleRoundTrip (long sample) {
+
+	if (smoothedNanos == 0) {
+	    smoothedNanos  = sample;
+	    deviationNanos = sample / 2;
+	} else {
+	    deviationNanos += (Math.abs(sample - smoothedNanos) - deviationNanos) / 4;
+	    smoothedNanos  += (sample - smoothedNanos) / 8;
+	}
+	measuredNanos = Math.max(MIN_TIMEOUT_NANOS,
+				 Math.min(MAX_TIMEOUT_NANOS,
+					  smoothedNanos + 4 * deviationNanos));
+
+    } // sampleRoundTrip ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // RECEIVING
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Apply the acknowledgement carried by a correct frame, then deliver its
+     * data if it is the next expected.
+     *
+     * @param data The header and data extracted from a correct frame.
+     */
+    protected void deliver (byte[] data) {
+
+	if (data.length < HEADER_LENGTH) {
+	    return;
+	}
+	int      sequence = data[0] & SEQUENCE_MASK;
+	int      ack      = data[1] & SEQUENCE_MASK;
+	boolean  accepted = false;
+	byte[][] resend   = null;
+	lock.lock();
+	try {
+
+	    // Release every frame that the acknowledgement covers, timing the
+	    // newest of them from when it was last sent.
+	    long now     = System.nanoTime();
+	    int  covered = (ack - base) & SEQUENCE_MASK;
+	    if (covered > 0 && covered <= outstanding) {
+		sampleRoundTrip(now - sentTimes[(ack - 1) & WINDOW_MASK]);
+		for (int i = 0; i < covered; i += 1) {
+		    unacknowledged[(base + i) & WINDOW_MASK] = null;
+		}
+		base          = ack;
+		outstanding  -= covered;
+		sentAt        = now;
+		timeoutNanos  = measuredNanos;
+		windowOpen.signalAll();
+		int unrepaired = (recoveryPoint - base) & SEQUENCE_MASK;
+		if (unrepaired == 0 || unrepaired > outstanding) {
+		    recovering = false;
+		}
+	    }
+
+	    // A lone acknowledgement that advances nothing, or that stops short
+	    // of the frames resent, reports a loss.  Lone acknowledgements and
+	    // the resending they prompt share the timer thread, so one can have
+	    // been sent before the frames last resent arrived only if it was
+	    // already due, which costs no more than a needless resend.
+	    if (data.length == HEADER_LENGTH && outstanding > 0 && covered <= outstanding &&
+		(covered == 0 || recovering)) {
+		resend               = resendWindow();
+		fastRetransmissions += 1;
+	    }
+
+	    // Accept only the next data frame in sequence, but acknowledge
+	    // every data frame, so that a lost acknowledgement is replaced.
+	    if (data.length > HEADER_LENGTH) {
+		if (sequence == expected) {
+		    expected = (expected + 1) & SEQUENCE_MASK;
+		    accepted = true;
+		} else {
+		    outOfOrder += 1;
+		}
+		oweAcknowledgement(!accepted);
+	    }
+
+	} finally {
+	    lock.unlock();
+	}
+	if (accepted) {
+	    super.deliver(Arrays.copyOfRange(data, HEADER_LENGTH, data.length));
+	}
+	if (resend != null) {
+	    transmitLater(resend);
+	}
+
+    } // deliver ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Send frames from the timer thread.  Frames are received on whatever
+     * thread transmitted them, or on a verifier's thread, which may hold
+     * the medium or the verifier while delivering; transmitting from there
+     * could deadlock.
+     *
+     * @param frames The frames to send, in order.
+     */
+    private void transmitLater (final byte[][] frames) {
+
+	timer.execute(new Runnable() {
+		public void run () {
+		    for (int i = 0; i < frames.length; i += 1) {
+			transmit(frames[i]);
+		    }
+		}
+	    });
+
+    } // transmitLater ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Refuse to be checkpointed: the window of unacknowledged frames is
+     * driven by timers, and cannot be stopped at a quiet point.
+     */
+    protected void writeState (DataOutputStream out) {
+
+	throw new RuntimeException("A duplex layer cannot be checkpointed");
+
+    } // writeState ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Provides this data link layer under the name <code>Duplex</code>.
+     */
+    public static class Provider implements DataLinkLayerProvider {
+
+	public String name () {
+	    return "Duplex";
+	}
+
+	public DataLinkLayer create (LayerConfig config) {
+	    return new DuplexDataLinkLayer();
+	}
+
+    } // class Provider
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // DATA MEMBERS
+
+    /** Guards the window and the acknowledgement state. */
+    private final ReentrantLock lock;
+
+    /** Signalled when frames are acknowledged. */
+    private final Condition     windowOpen;
+
+    /** The maximum number of data bytes in each frame. */
+    private int                 segmentSize;
+
+    /** The sent segments not yet acknowledged, indexed by sequence number. */
+    private final byte[][]      unacknowledged = new byte[WINDOW_SIZE][];
+
+    /** The sequence number of the oldest unacknowledged frame. */
+    private int                 base           = 0;
+
+    /** The sequence number of the next frame to send. */
+    private int                 nextSequence   = 0;
+
+    /** The number of frames sent but not yet acknowledged. */
+    private int                 outstanding    = 0;
+
+    /** When the oldest unacknowledged frame was last sent or acknowledged. */
+    private long                sentAt         = 0;
+
+    /** When each unacknowledged frame was last sent. */
+    private final long[]        sentTimes      = new long[WINDOW_SIZE];
+
+    // The smoothed round trip and its mean deviation, or zero before the
+    // first sample.
+    private long                smoothedNanos  = 0;
+    private long                deviationNanos = 0;
+
+    /** The timeout given by the round trip, before any doubling. */
+    private long                measuredNanos  = INITIAL_TIMEOUT_NANOS;
+
+    /** How long the oldest unacknowledged frame waits before retransmission. */
+    private long                timeoutNanos   = INITIAL_TIMEOUT_NANOS;
+
+    // The next sequence number when the window was last resent, and whether
+    // some of the frames resent are still unacknowledged.
+    private int                 recoveryPoint  = 0;
+    private boolean             recovering     = false;
+
+    /** Whether <code>sendPayload()</code> is running, so data frames may follow. */
+    private boolean             sending        = false;
+
+    /** The sequence number of the next data frame expected. */
+    private int                 expected       = 0;
+
+    /** Whether a received data frame has not yet been acknowledged. */
+    private boolean             ackOwed        = false;
+
+    /** The received data frames not yet acknowledged. */
+    private int                 owedFrames     = 0;
+
+    /** Whether the timer will check for retransmission. */
+    private boolean             retransmitScheduled = false;
+
+    /** When the timer will next acknowledge, or the largest time if never. */
+    private long                ackDueAt            = Long.MAX_VALUE;
+
+    // The statistics of sending and receiving.
+    private long                dataFrames      = 0;
+    private long                retransmissions = 0;
+    private long                fastRetransmissions = 0;
+    private long                piggybackedAcks = 0;
+    private long                ackFrames       = 0;
+    private long                outOfOrder      = 0;
+
+    /** The default number of data bytes in each frame. */
+    public static final int     DEFAULT_FRAME_SIZE = 32;
+
+    /** The number of frames that may be unacknowledged at once. */
+    public static final int     WINDOW_SIZE        = 16;
+
+    /** The retransmission timeout before the round trip has been measured. */
+    public static final long    INITIAL_RETRANSMIT_MILLIS = 20;
+
+    // The bounds on the retransmission timeout.
+    public static final long    MIN_RETRANSMIT_MILLIS = 1;
+    public static final long    MAX_RETRANSMIT_MILLIS = 1000;
+
+    /** The length of the sequence number and acknowledgement. */
+    private static final int    HEADER_LENGTH      = 2;
+
+    /** Reduces a number to the sequence number space. */
+    private static final int    SEQUENCE_MASK      = 0xff;
+
+    /** Reduces a sequence number to its slot in the window. */
+    private static final int    WINDOW_MASK        = WINDOW_SIZE - 1;
+
+    // The bounds on the retransmission timeout, in nanoseconds.
+    private static final long   INITIAL_TIMEOUT_NANOS =
+	TimeUnit.MILLISECONDS.toNanos(INITIAL_RETRANSMIT_MILLIS);
+    private static final long   MIN_TIMEOUT_NANOS =
+	TimeUnit.MILLISECONDS.toNanos(MIN_RETRANSMIT_MILLIS);
+    private static final long   MAX_TIMEOUT_NANOS =
+	TimeUnit.MILLISECONDS.toNanos(MAX_RETRANSMIT_MILLIS);
+
+    /** Runs the retransmissions and acknowledgements of every layer. */
+    private static final ScheduledExecutorService timer =
+	new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+		public Thread newThread (Runnable task) {
+		    Thread thread = new Thread(task, "DuplexDataLinkLayer");
+		    thread.setDaemon(true);
+		    return thread;
+		}
+	    });
+    // =========================================================================
+
+
+
+// =============================================================================
+} // class DuplexDataLinkLayer
+// =============================================================================
@@ -0,0 +1,80 @@
+// =============================================================================
+/**
+ * An error-detecting code computed over the data of a frame and appended to it
+ * as a trailer.  A detector holds no state of its own: the running state of a
+ * computation is passed in and returned as a <code>long</code>, so one
+ * detector may be shared by concurrent framers and verifiers, and its updates
+ * may be fused into any other pass over the data.
+ *
+ * Detectors are looked up by name in <code>ErrorDetectors</code>.
+ *
+ * @file   ErrorDetector.java
+ * @date   October 2026
+ */
+public interface ErrorDetector {
+// =============================================================================
+
+
+
+    // =========================================================================
+    /** @return the number of bytes in the trailer, at most 8. */
+    public int length ();
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /** @return the state before any data has been seen. */
+    public long start ();
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @param  state The state after the preceding data.
+     * @param  data  The next byte of data.
+     * @return the state after the given byte.
+     */
+    public long update (long state, byte data);
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Update the state with a range of bytes.  Detectors whose arithmetic can
+     * be deferred across bytes should override this.
+     *
+     * @param  state The state after the preceding data.
+     * @param  data  The buffer holding the next bytes of data.
+     * @param  from  The start of the range.
+     * @param  to    The end of the range, exclusive.
+     * @return the state after the given bytes.
+     */
+    public default long update (long state, byte[] data, int from, int to) {
+
+	for (int i = from; i < to; i += 1) {
+	    state = update(state, data[i]);
+	}
+	return state;
+
+    } // update ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @param  state The state after all of the data.
+     * @return the trailer, in the low <code>length()</code> bytes, to be sent
+     *         most significant byte first.
+     */
+    public long trailer (long state);
+    // =========================================================================
+
+
+
+// =============================================================================
+} // interface ErrorDetector
+// =============================================================================
@@ -0,0 +1,157 @@
+// =============================================================================
+// IMPORTS
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+// =============================================================================
+
+
+
+// =============================================================================
+/**
+ * Looks up error detectors by name.  Detectors are stateless, so each name
+ * maps to one shared instance.  The built-in detectors, roughly in order of
+ * increasing strength and per-byte cost, are:
+ *
+ *   parity      A single parity byte.
+ *   crc8        An 8-bit CRC with generator 0x1D5, as CRC layers use.
+ *   internet    The RFC 1071 Internet checksum.
+ *   fletcher16  Fletcher's checksum over bytes.
+ *   fletcher32  Fletcher's checksum over 16-bit words.
+ *   adler32     The Adler-32 checksum.
+ *   crc16       CRC-16/CCITT-FALSE.
+ *   crc16-x25   CRC-16/X-25, the frame check sequence of HDLC.
+ *   crc32       The CRC-32 of Ethernet and zip.
+ *   crc32c      The Castagnoli CRC-32 of iSCSI and SCTP.
+ *
+ * Further detectors may be added with <code>register()</code>.
+ *
+ * @file   ErrorDetectors.java
+ * @date   October 2026
+ */
+public final class ErrorDetectors {
+// =============================================================================
+
+
+
+    // =========================================================================
+    // PUBLIC METHODS
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Find a detector by name.
+     *
+     * @param  name The name of the detector, such as <code>crc32</code>.
+     * @return the detector.
+     * @throws RuntimeException if there is no such detector.
+     */
+    public static ErrorDetector forName (String name) {
+
+	ErrorDetector detector = detectors.get(name);
+	if (detector == null) {
+	    throw new RuntimeException("Unknown error detector " + name);
+	}
+	return detector;
+
+    } // forName ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @param  name The name of a detector.
+     * @return whether there is a detector of that name.
+     */
+    public static boolean exists (String name) {
+
+	return detectors.containsKey(name);
+
+    } // exists ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Add a detector under a name.
+     *
+     * @param name     The name of the detector.
+     * @param detector The detector, which must hold no state.
+     * @throws RuntimeException if the name is already taken.
+     */
+    public static void register (String name, ErrorDetector detector) {
+
+	if (detectors.putIfAbsent(name, detector) != null) {
+	    throw new RuntimeException("Duplicate error detector " + name);
+	}
+	synchronized (names) {
+	    names.add(name);
+	}
+
+    } // register ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /** @return the names of the detectors, in the order of registration. */
+    public static List<String> names () {
+
+	synchronized (names) {
+	    return new ArrayList<String>(names);
+	}
+
+    } // names ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // PRIVATE METHODS
+    // =========================================================================
+
+
+
+    // =========================================================================
+    private ErrorDetectors () {
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // DATA MEMBERS
+
+    /** The detectors, by name. */
+    private static final ConcurrentMap<String, ErrorDetector> detectors =
+	new ConcurrentHashMap<String, ErrorDetector>();
+
+    /** The names of the detectors, in the order of registration. */
+    private static final List<String> names = new ArrayList<String>();
+
+    // Register the built-in detectors.
+    static {
+	register("parity",     new ParityDetector());
+	register("crc8",       new CrcDetector(0xd5));
+	register("internet",   new InternetChecksumDetector());
+	register("fletcher16", new FletcherDetector(16));
+	register("fletcher32", new FletcherDetector(32));
+	register("adler32",    new AdlerDetector());
+	register("crc16",      new CrcDetector(16, 0x1021, 0xffff, false, 0));
+	register("crc16-x25",  new CrcDetector(16, 0x1021, 0xffff, true, 0xffff));
+	register("crc32",      new CrcDetector(32, 0x04c11db7L, 0xffffffffL, true, 0xffffffffL));
+	register("crc32c",     new CrcDetector(32, 0x1edc6f41L, 0xffffffffL, true, 0xffffffffL));
+    }
+    // =========================================================================
+
+
+
+// =============================================================================
+} // class ErrorDetectors
+// =============================================================================
@@ -0,0 +1,157 @@
+// =============================================================================
+/**
+ * Fletcher's checksum: two running sums, the second summing the first, each
+ * modulo 255 over bytes (Fletcher-16) or modulo 65535 over big-endian 16-bit
+ * words (Fletcher-32, with an odd final byte padded with zero).  The trailer
+ * is the second sum followed by the first.
+ *
+ * @file   FletcherDetector.java
+ * @date   October 2026
+ */
+public class FletcherDetector implements ErrorDetector {
+// =============================================================================
+
+
+
+    // =========================================================================
+    /**
+     * The constructor.
+     *
+     * @param width The number of bits in the checksum: 16 or 32.
+     * @throws RuntimeException if the width is not supported.
+     */
+    public FletcherDetector (int width) {
+
+	if (width != 16 && width != 32) {
+	    throw new RuntimeException("Unsupported Fletcher width " + width);
+	}
+	this.half    = width / 2;
+	this.modulus = (1L << half) - 1;
+
+    } // FletcherDetector ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    public int length () {
+
+	return half / 4;
+
+    } // length ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    public long start () {
+
+	return 0;
+
+    } // start ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * For Fletcher-32, the state holds a pending high byte, flagged above the
+     * sums, until the low byte of its word arrives.
+     */
+    public long update (long state, byte data) {
+
+	if (half == 8) {
+	    return add(state, data & 0xff);
+	}
+	if ((state & PENDING) == 0) {
+	    return state | PENDING | ((long)(data & 0xff) << 32);
+	}
+	long word = ((state >>> 32) & 0xff) << 8 | (data & 0xff);
+	return add(state & SUMS, word);
+
+    } // update ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * For Fletcher-16, defer the modulus across runs of bytes short enough
+     * that the sums cannot overflow.
+     */
+    public long update (long state, byte[] data, int from, int to) {
+
+	if (half != 8) {
+	    for (int i = from; i < to; i += 1) {
+		state = update(state, data[i]);
+	    }
+	    return state;
+	}
+	long sum1 = state & 0xff;
+	long sum2 = (state >>> 8) & 0xff;
+	while (from < to) {
+	    int end = Math.min(to, from + DEFERRED_BYTES);
+	    for (int i = from; i < end; i += 1) {
+		sum1 += data[i] & 0xff;
+		sum2 += sum1;
+	    }
+	    sum1 %= modulus;
+	    sum2 %= modulus;
+	    from  = end;
+	}
+	return (sum2 << 8) | sum1;
+
+    } // update ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    public long trailer (long state) {
+
+	if ((state & PENDING) != 0) {
+	    state = add(state & SUMS, ((state >>> 32) & 0xff) << 8);
+	}
+	return state & SUMS;
+
+    } // trailer ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /** @return the state after adding a byte or word to both sums. */
+    private long add (long state, long value) {
+
+	long lowMask = (1L << half) - 1;
+	long sum1    = ((state & lowMask) + value) % modulus;
+	long sum2    = (((state >>> half) & lowMask) + sum1) % modulus;
+	return (sum2 << half) | sum1;
+
+    } // add ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // DATA MEMBERS
+
+    /** The number of bits in each sum. */
+    private final int         half;
+
+    /** The modulus of each sum. */
+    private final long        modulus;
+
+    // The parts of the state of Fletcher-32.
+    private static final long SUMS    = 0xffffffffL;
+    private static final long PENDING = 1L << 40;
+
+    /** The number of bytes after which Fletcher-16 must reduce its sums. */
+    private static final int  DEFERRED_BYTES = 1 << 16;
+    // =========================================================================
+
+
+
+// =============================================================================
+} // class FletcherDetector
+// =============================================================================
@@ -0,0 +1,258 @@
+// =============================================================================
+// IMPORTS
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.locks.ReentrantLock;
+// =============================================================================
+
+
+
+// =============================================================================
+/**
+ * A pool of worker threads that checks the frames extracted by a data link
+ * layer.  Frames are checked in parallel, and then resequenced in a reorder
+ * buffer so that the correct ones are delivered to the client in the order in
+ * which they were received.
+ *
+ * Frames are delivered outside this verifier's monitor, so that a layer or
+ * client that transmits from <code>deliver()</code> cannot deadlock with a
+ * thread that holds the medium while submitting a frame.  A separate lock
+ * keeps those deliveries in order.
+ *
+ * @file   FrameVerifier.java
+ * @date   October 2026
+ */
+public class FrameVerifier {
+// =============================================================================
+
+
+
+    // =========================================================================
+    // PUBLIC METHODS
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * The constructor.
+     *
+     * @param layer   The data link layer whose frames are checked.
+     * @param threads The number of worker threads.
+     */
+    public FrameVerifier (DataLinkLayer layer, int threads) {
+
+	this.layer     = layer;
+	this.workers   = Executors.newFixedThreadPool(threads, daemonThreads);
+	this.reorder   = new byte[WINDOW][];
+	this.checked   = new boolean[WINDOW];
+	this.available = new Semaphore(WINDOW);
+
+    } // FrameVerifier ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Queue an extracted frame to be checked.  Blocks if the reorder buffer is
+     * full, waiting for the oldest frames to be checked.
+     *
+     * @param frame The extracted frame.
+     */
+    public void submit (final byte[] frame) {
+
+	available.acquireUninterruptibly();
+	final long sequence;
+	synchronized (this) {
+	    sequence = submitted;
+	    submitted += 1;
+	}
+	workers.execute(new Runnable() {
+		public void run () {
+		    // A check that fails outright still completes its slot, so
+		    // that the frames behind it are delivered.
+		    byte[] data = null;
+		    try {
+			data = layer.checkFrame(frame);
+		    } finally {
+			complete(sequence, data, frame.length);
+		    }
+		}
+	    });
+
+    } // submit ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Wait until every submitted frame has been checked and, if correct,
+     * delivered.
+     */
+    public synchronized void drain () {
+
+	boolean interrupted = false;
+	while (delivered < submitted) {
+	    try {
+		wait();
+	    } catch (InterruptedException e) {
+		interrupted = true;
+	    }
+	}
+	if (interrupted) {
+	    Thread.currentThread().interrupt();
+	}
+
+    } // drain ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Stop the worker threads.  Frames not yet checked are abandoned.
+     */
+    public void shutdown () {
+
+	workers.shutdownNow();
+
+    } // shutdown ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // PRIVATE METHODS
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Record the result of checking a frame, and then deliver every frame at
+     * the head of the reorder buffer whose check is complete.
+     *
+     * @param sequence The position of the frame in the received order.
+     * @param data     The data from the frame if it is correct;
+     *                 <code>null</code> otherwise.
+     * @param length   The length of the frame.
+     */
+    private void complete (long sequence, byte[] data, int length) {
+
+	if (data == null) {
+	    layer.checksumFailed(length);
+	}
+	synchronized (this) {
+	    int slot = (int)(sequence % WINDOW);
+	    reorder[slot] = data;
+	    checked[slot] = true;
+	}
+
+	// Whichever thread holds the ordering lock delivers for the others;
+	// a thread that finds it held waits, then delivers what is left.
+	ordering.lock();
+	try {
+	    byte[][] ready;
+	    while ((ready = takeReady()).length > 0) {
+		for (int i = 0; i < ready.length; i += 1) {
+		    if (ready[i] != null) {
+			layer.deliver(ready[i]);
+		    }
+		}
+		synchronized (this) {
+		    delivered += ready.length;
+		    notifyAll();
+		}
+		available.release(ready.length);
+	    }
+	} finally {
+	    ordering.unlock();
+	}
+
+    } // complete ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Take the checked frames at the head of the reorder buffer.  Their slots
+     * stay reserved until they have been delivered.
+     *
+     * @return the data of each frame taken, in order, <code>null</code> for
+     *         each damaged one.
+     */
+    private synchronized byte[][] takeReady () {
+
+	int count = 0;
+	while (count < WINDOW && checked[(int)((taken + count) % WINDOW)]) {
+	    count += 1;
+	}
+	byte[][] ready = new byte[count][];
+	for (int i = 0; i < count; i += 1) {
+	    int slot = (int)(taken % WINDOW);
+	    ready[i]      = reorder[slot];
+	    reorder[slot] = null;
+	    checked[slot] = false;
+	    taken += 1;
+	}
+	return ready;
+
+    } // takeReady ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // DATA MEMBERS
+
+    /** The layer whose frames are checked and delivered. */
+    private final DataLinkLayer   layer;
+
+    /** The threads that check frames. */
+    private final ExecutorService workers;
+
+    /** The checked data awaiting in-order delivery, indexed by sequence. */
+    private final byte[][]        reorder;
+
+    /** Whether the frame in each slot of the reorder buffer has been checked. */
+    private final boolean[]       checked;
+
+    /** The free slots in the reorder buffer. */
+    private final Semaphore       available;
+
+    /** The number of frames submitted for checking. */
+    private long                  submitted = 0;
+
+    /** The number of frames taken from the reorder buffer to be delivered. */
+    private long                  taken     = 0;
+
+    /** The number of frames checked and delivered (or dropped) in order. */
+    private long                  delivered = 0;
+
+    /** Keeps deliveries in order, without holding this verifier's monitor. */
+    private final ReentrantLock   ordering  = new ReentrantLock();
+
+    /** The number of frames that may be awaiting delivery at once. */
+    private static final int      WINDOW = 1024;
+
+    /** Creates worker threads that do not keep the simulation alive. */
+    private static final ThreadFactory daemonThreads = new ThreadFactory() {
+	    public Thread newThread (Runnable task) {
+		Thread thread = new Thread(task, "FrameVerifier");
+		thread.setDaemon(true);
+		return thread;
+	    }
+	};
+    // =========================================================================
+
+
+
+// =============================================================================
+} // class FrameVerifier
+// =============================================================================
@@ -0,0 +1,710 @@
+// =============================================================================
+// IMPORTS
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+// =============================================================================
+
+
+
+// =============================================================================
+/**
+ * A data link layer that frames data as HDLC does, in the unnumbered
+ * information frames of PPP's HDLC-like framing:
+ *
+ *   flag  address  control  information  FCS      flag
+ *   0x7E  0xFF     0x03     data         2 bytes  0x7E
+ *
+ * The FCS is the CRC-16 of X.25 over the address, control and information,
+ * sent least significant byte first.  Each byte is sent least significant bit
+ * first, and between the flags, a <code>0</code> is inserted after every five
+ * consecutive <code>1</code>s, so that six never appear together except in a
+ * flag.  Seven or more together abort a frame, and are how the line idles.
+ * Consecutive frames of one send share the flag between them, and each send
+ * ends idling to a whole byte, by at least seven <code>1</code>s.
+ *
+ * The stuffing and destuffing go a byte at a time, through tables indexed by
+ * the number of <code>1</code>s just seen and the next byte.  Only a received
+ * byte holding a flag or an abort is taken a bit at a time.
+ *
+ * @file   HDLCDataLinkLayer.java
+ * @date   October 2026
+ */
+public class HDLCDataLinkLayer extends DataLinkLayer {
+// =============================================================================
+
+
+
+    // =========================================================================
+    // PUBLIC METHODS
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Each frame carries up to <code>DEFAULT_FRAME_SIZE</code> data bytes,
+     * with the X.25 CRC-16 as its FCS.
+     */
+    public HDLCDataLinkLayer () {
+
+	this.frameSize = DEFAULT_FRAME_SIZE;
+	this.fcs       = ErrorDetectors.forName("crc16-x25");
+	this.frame     = new byte[INITIAL_FRAME_SIZE];
+	this.completed = new byte[INITIAL_FRAME_SIZE];
+
+    } // HDLCDataLinkLayer ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Replace the FCS with the given detector, such as <code>crc32</code> for
+     * HDLC's 32-bit FCS.  Its trailer is sent least significant byte first.
+     *
+     * @param detector The detector to use.
+     */
+    public void setDetector (ErrorDetector detector) {
+
+	this.fcs = detector;
+
+    } // setDetector ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // FRAMING
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Divide the data into frames, and stuff each from its address to its FCS,
+     * a byte at a time, between flags.
+     *
+     * @param  data The raw sequence of bytes to be framed.
+     * @return The complete frames, idling to a whole byte.
+     */
+    protected byte[] createFrame (byte[] data) {
+
+	// Frames that split the data carry nothing if there is no data.
+	int frameCount = (data.length + frameSize - 1) / frameSize;
+	if (frameCount == 0) {
+	    return new byte[0];
+	}
+
+	// Room for a stuffed bit per five, the flags, and the idle bits.
+	int    fcsLength = fcs.length();
+	int    content   = data.length + frameCount * (HEADER.length + fcsLength);
+	byte[] framed    = new byte[content + content / 5 + frameCount + 4];
+	Stuffer stuffer  = new Stuffer(framed);
+	stuffer.flag();
+	int start = 0;
+	for (int f = 0; f < frameCount; f += 1) {
+
+	    int  end   = Math.min(start + frameSize, data.length);
+	    long state = fcs.start();
+	    state = fcs.update(state, HEADER, 0, HEADER.length);
+	    state = fcs.update(state, data, start, end);
+	    long trailer = fcs.trailer(state);
+
+	    for (int i = 0; i < HEADER.length; i += 1) {
+		stuffer.stuff(HEADER[i]);
+	    }
+	    for (int i = start; i < end; i += 1) {
+		stuffer.stuff(data[i]);
+	    }
+	    for (int b = 0; b < fcsLength; b += 1) {
+		stuffer.stuff((byte)(trailer >>> (8 * b)));
+	    }
+	    stuffer.flag();
+	    start = end;
+
+	}
+	stuffer.idle();
+
+	return (stuffer.out == framed.length) ? framed : Arrays.copyOf(framed, stuffer.out);
+
+    } // createFrame ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // DEFRAMING
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Destuff the buffered bytes, extracting and checking a frame.
+     *
+     * @return the information of a complete, correct frame;
+     *         <code>null</code> if no frame is complete or if the completed
+     *         frame is damaged.
+     */
+    protected byte[] processFrame () {
+
+	if (!deframe()) {
+	    return null;
+	}
+	byte[] data = completedViolated ? null : check(completed, completedLength);
+	if (data == null) {
+	    checksumFailed(completedLength);
+	}
+	return data;
+
+    } // processFrame ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Destuff the buffered bytes, extracting a frame without checking it.
+     *
+     * @return the contents of a complete frame, from its address to its FCS;
+     *         <code>null</code> if no frame is complete.
+     */
+    protected byte[] extractFrame () {
+
+	if (!deframe()) {
+	    return null;
+	}
+	if (completedViolated) {
+	    checksumFailed(completedLength);
+	    return null;
+	}
+	return Arrays.copyOf(completed, completedLength);
+
+    } // extractFrame ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Check the FCS and header of an extracted frame.  Uses no state of this
+     * layer, and so may be called concurrently.
+     *
+     * @param  frame The extracted frame, from its address to its FCS.
+     * @return the information if the frame is correct; <code>null</code>
+     *         otherwise.
+     */
+    protected byte[] checkFrame (byte[] frame) {
+
+	return check(frame, frame.length);
+
+    } // checkFrame ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Discard everything received so far, including any partial frame.
+     */
+    protected void resetReceiver () {
+
+	super.resetReceiver();
+	hunting     = true;
+	ones        = 0;
+	pending     = 0;
+	pendingBits = 0;
+	frameLength = 0;
+	violated    = false;
+
+    } // resetReceiver ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Mark the frame being received, if any, as damaged by a code violation.
+     */
+    protected void codeViolation () {
+
+	if (!hunting) {
+	    violated = true;
+	}
+
+    } // codeViolation ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Write the frame being received, with the destuffer's run of ones and
+     * the bits it is holding back.
+     */
+    protected void writeState (DataOutputStream out) throws IOException {
+
+	super.writeState(out);
+	out.writeBoolean(hunting);
+	out.writeByte(ones);
+	out.writeLong(pending);
+	out.writeByte(pendingBits);
+	out.writeBoolean(violated);
+	out.writeInt(frameLength);
+	out.write(frame, 0, frameLength);
+
+    } // writeState ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    protected void readState (DataInputStream in) throws IOException {
+
+	super.readState(in);
+	hunting     = in.readBoolean();
+	ones        = in.readByte();
+	pending     = in.readLong();
+	pendingBits = in.readByte();
+	violated    = in.readBoolean();
+	frameLength = in.readInt();
+	if (frameLength > frame.length) {
+	    frame = new byte[frameLength];
+	}
+	in.readFully(frame, 0, frameLength);
+
+    } // readState ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // PRIVATE METHODS
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @return the information of a frame whose header and FCS are correct, or
+     *         <code>null</code>.
+     */
+    private byte[] check (byte[] frame, int length) {
+
+	int fcsLength = fcs.length();
+	int dataStart = HEADER.length;
+	int dataEnd   = length - fcsLength;
+	if (dataEnd < dataStart) {
+	    return null;
+	}
+	for (int i = 0; i < HEADER.length; i += 1) {
+	    if (frame[i] != HEADER[i]) {
+		return null;
+	    }
+	}
+	long trailer = fcs.trailer(fcs.update(fcs.start(), frame, 0, dataEnd));
+	for (int b = 0; b < fcsLength; b += 1) {
+	    if (frame[dataEnd + b] != (byte)(trailer >>> (8 * b))) {
+		return null;
+	    }
+	}
+	return Arrays.copyOfRange(frame, dataStart, dataEnd);
+
+    } // check ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Destuff the buffered bytes, consuming them up to the end of a frame or
+     * of the buffer.  A byte without a flag or an abort takes one lookup.
+     *
+     * @return <code>true</code> if a frame was completed, whose contents are
+     *         then the first <code>completedLength</code> bytes of
+     *         <code>completed</code>.
+     */
+    private boolean deframe () {
+
+	int     i        = 0;
+	boolean complete = false;
+	while (i < byteCount && !complete) {
+	    int line  = byteBuffer[i++] & 0xff;
+	    int entry = DESTUFFING[(ones << 8) | line];
+	    if ((entry & EVENT) == 0) {
+		ones = (entry >>> NEXT_SHIFT) & ONES_MASK;
+		if (!hunting) {
+		    append(entry & 0xff, (entry >>> COUNT_SHIFT) & COUNT_MASK);
+		}
+	    } else {
+		for (int bit = 7; bit >= 0; bit -= 1) {
+		    complete |= receiveBit((line >>> bit) & 1);
+		}
+	    }
+	}
+	consumeBytes(i);
+	return complete;
+
+    } // deframe ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Take one received bit, in a byte that holds a flag or an abort.
+     *
+     * @return whether the bit completed a frame.
+     */
+    private boolean receiveBit (int bit) {
+
+	int entry = step(ones, bit);
+	ones = (entry >>> NEXT_SHIFT) & ONES_MASK;
+	if ((entry & FLAG) != 0) {
+	    boolean complete = endFrame();
+	    startFrame();
+	    return complete;
+	}
+	if ((entry & ABORT) != 0) {
+	    // The line idles as ones, so seven of them straight after a flag,
+	    // before a whole byte, end no frame.
+	    if (!hunting && (frameLength > 0 || pendingBits >= HELD_BITS)) {
+		resynchronized(frameLength);
+	    }
+	    hunting = true;
+	    return false;
+	}
+	if (!hunting) {
+	    append(entry & 0xff, (entry >>> COUNT_SHIFT) & COUNT_MASK);
+	}
+	return false;
+
+    } // receiveBit ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Append destuffed bits to the frame, holding back the last six, which
+     * may turn out to begin a flag.  Each byte's bits arrive least
+     * significant first.
+     */
+    private void append (int bits, int count) {
+
+	pending      = (pending << count) | bits;
+	pendingBits += count;
+	while (pendingBits >= HELD_BITS + 8) {
+	    pendingBits -= 8;
+	    int limit = (int)Math.min(Integer.MAX_VALUE,
+				      (long)getMaxFrameLength() + HEADER.length + fcs.length());
+	    if (frameLength == limit) {
+		resynchronized(frameLength);
+		frameOverruns += 1;
+		hunting        = true;
+		return;
+	    }
+	    if (frameLength == frame.length) {
+		frame = Arrays.copyOf(frame, Math.min(frame.length * 2, limit));
+	    }
+	    frame[frameLength++] = REVERSED[(int)(pending >>> pendingBits) & 0xff];
+	}
+
+    } // append ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * End the current frame at a flag, whose bits but its last were taken as
+     * destuffed data.
+     *
+     * @return whether a frame of whole bytes, long enough to hold its header
+     *         and FCS, was completed, in which case it is moved to
+     *         <code>completed</code>.
+     */
+    private boolean endFrame () {
+
+	// Only the flag's own bits are held back from a frame of whole bytes.
+	if (hunting || (frameLength == 0 && pendingBits == HELD_BITS)) {
+	    return false;
+	}
+	if (pendingBits != HELD_BITS || frameLength < HEADER.length + fcs.length()) {
+	    resynchronized(frameLength);
+	    return false;
+	}
+	byte[] full       = frame;
+	frame             = completed;
+	completed         = full;
+	completedLength   = frameLength;
+	completedViolated = violated;
+	return true;
+
+    } // endFrame ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /** Begin a frame after a flag. */
+    private void startFrame () {
+
+	hunting     = false;
+	pending     = 0;
+	pendingBits = 0;
+	violated    = false;
+	frameLength = 0;
+
+    } // startFrame ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Receive one bit between flags.
+     *
+     * @param  ones The number of consecutive <code>1</code>s just received,
+     *              from 0 to 6, or 7 for seven or more.
+     * @param  bit  The bit.
+     * @return the destuffed bit, if any, with its count and the next number
+     *         of <code>1</code>s, and <code>FLAG</code> or <code>ABORT</code>
+     *         if the bit completes one.
+     */
+    private static int step (int ones, int bit) {
+
+	if (bit == 1) {
+	    if (ones < 5) {
+		return 1 | (1 << COUNT_SHIFT) | ((ones + 1) << NEXT_SHIFT);
+	    }
+	    if (ones == 5) {
+		return 6 << NEXT_SHIFT;
+	    }
+	    return (ones == 6 ? ABORT : 0) | (7 << NEXT_SHIFT);
+	}
+	if (ones == 5 || ones == 7) {
+	    return 0;
+	}
+	if (ones == 6) {
+	    return FLAG;
+	}
+	return 1 << COUNT_SHIFT;
+
+    } // step ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Provides this data link layer under the name <code>HDLC</code>.
+     */
+    public static class Provider implements DataLinkLayerProvider {
+
+	public String name () {
+	    return "HDLC";
+	}
+
+	public DataLinkLayer create (LayerConfig config) {
+	    return new HDLCDataLinkLayer();
+	}
+
+    } // class Provider
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Writes stuffed bits into a buffer, a byte of data at a time.
+     */
+    private static class Stuffer {
+
+	Stuffer (byte[] out) {
+
+	    this.buffer = out;
+
+	}
+
+	/** Write a byte of data, stuffed, least significant bit first. */
+	void stuff (byte data) {
+
+	    int entry = STUFFING[(ones << 8) | (data & 0xff)];
+	    ones = entry >>> STUFFED_NEXT_SHIFT;
+	    write(entry & STUFFED_MASK, (entry >>> STUFFED_COUNT_SHIFT) & COUNT_MASK);
+
+	}
+
+	/** Write a flag. */
+	void flag () {
+
+	    write(FLAG_BYTE, 8);
+	    ones = 0;
+
+	}
+
+	/** Idle to a whole byte, with at least seven ones. */
+	void idle () {
+
+	    int count = IDLE_BITS + (8 - (held + IDLE_BITS) % 8) % 8;
+	    write((1 << count) - 1, count);
+
+	}
+
+	private void write (int value, int count) {
+
+	    bits  = (bits << count) | value;
+	    held += count;
+	    while (held >= 8) {
+		held -= 8;
+		buffer[out++] = (byte)(bits >>> held);
+	    }
+
+	}
+
+	final byte[] buffer;
+	int          out  = 0;
+	int          ones = 0;
+	long         bits = 0;
+	int          held = 0;
+
+    } // class Stuffer
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // DATA MEMBERS
+
+    /** The FCS. */
+    private ErrorDetector fcs;
+
+    /** The frame being received, destuffed. */
+    private byte[]        frame;
+
+    /** The number of bytes in the frame being received. */
+    private int           frameLength = 0;
+
+    // The last frame completed, its length, and whether it held a code
+    // violation.  Swapped with the frame being received as each completes.
+    private byte[]        completed;
+    private int           completedLength   = 0;
+    private boolean       completedViolated = false;
+
+    /** Whether the receiver is looking for a flag, rather than in a frame. */
+    private boolean       hunting     = true;
+
+    /** The number of consecutive ones just received. */
+    private int           ones        = 0;
+
+    // The destuffed bits not yet in the frame, in their low bits.
+    private long          pending     = 0;
+    private int           pendingBits = 0;
+
+    /** Whether a code violation was received within the current frame. */
+    private boolean       violated    = false;
+
+    /** The address and control of an unnumbered information frame. */
+    private static final byte[] HEADER = { (byte)0xff, (byte)0x03 };
+
+    /** The flag. */
+    private static final int    FLAG_BYTE = 0x7e;
+
+    /** The least number of ones that a send idles with. */
+    private static final int    IDLE_BITS = 7;
+
+    /** The destuffed bits held back, as they may begin a flag. */
+    private static final int    HELD_BITS = 6;
+
+    /** The default number of data bytes per frame. */
+    public static final int     DEFAULT_FRAME_SIZE = 64;
+
+    /** The initial capacity of the frame being received. */
+    private static final int    INITIAL_FRAME_SIZE = 64;
+
+    // The packing of the results of a step, and of the destuffing table:
+    // up to eight destuffed bits, their count, the next number of ones, and
+    // whether a flag or an abort was seen.
+    private static final int    COUNT_SHIFT = 8;
+    private static final int    COUNT_MASK  = 0xf;
+    private static final int    NEXT_SHIFT  = 12;
+    private static final int    ONES_MASK   = 0x7;
+    private static final int    FLAG        = 1 << 16;
+    private static final int    ABORT       = 1 << 17;
+    private static final int    EVENT       = FLAG | ABORT;
+
+    // The packing of the stuffing table: up to ten stuffed bits, their
+    // count, and the next number of ones.
+    private static final int    STUFFED_MASK        = 0x3ff;
+    private static final int    STUFFED_COUNT_SHIFT = 10;
+    private static final int    STUFFED_NEXT_SHIFT  = 14;
+
+    /** Each byte with its bits in the reverse order. */
+    private static final byte[] REVERSED = new byte[256];
+
+    /** The stuffed bits of each number of ones, from 0 to 4, and byte. */
+    private static final int[]  STUFFING = new int[5 << 8];
+
+    /** The destuffed bits of each number of ones, from 0 to 7, and byte. */
+    private static final int[]  DESTUFFING = new int[8 << 8];
+
+    static {
+	for (int b = 0; b < 256; b += 1) {
+	    REVERSED[b] = (byte)(Integer.reverse(b) >>> 24);
+	}
+
+	// Stuff each byte least significant bit first.
+	for (int start = 0; start < 5; start += 1) {
+	    for (int b = 0; b < 256; b += 1) {
+		int ones  = start;
+		int bits  = 0;
+		int count = 0;
+		for (int i = 0; i < 8; i += 1) {
+		    int bit = (b >>> i) & 1;
+		    bits    = (bits << 1) | bit;
+		    count  += 1;
+		    ones    = (bit == 1) ? ones + 1 : 0;
+		    if (ones == 5) {
+			bits   = bits << 1;
+			count += 1;
+			ones   = 0;
+		    }
+		}
+		STUFFING[(start << 8) | b] = bits | (count << STUFFED_COUNT_SHIFT) |
+		                             (ones << STUFFED_NEXT_SHIFT);
+	    }
+	}
+
+	// Destuff each byte as it arrives, most significant bit first; a
+	// byte with a flag or an abort is left to be taken a bit at a time.
+	for (int start = 0; start < 8; start += 1) {
+	    for (int b = 0; b < 256; b += 1) {
+		int ones  = start;
+		int bits  = 0;
+		int count = 0;
+		int event = 0;
+		for (int i = 7; i >= 0; i -= 1) {
+		    int entry = step(ones, (b >>> i) & 1);
+		    event    |= entry & EVENT;
+		    ones      = (entry >>> NEXT_SHIFT) & ONES_MASK;
+		    int n     = (entry >>> COUNT_SHIFT) & COUNT_MASK;
+		    bits      = (bits << n) | (entry & 1 & ((1 << n) - 1));
+		    count    += n;
+		}
+		DESTUFFING[(start << 8) | b] = (event != 0) ? EVENT
+		                             : bits | (count << COUNT_SHIFT) |
+		                               (ones << NEXT_SHIFT);
+	    }
+	}
+    }
+    // =========================================================================
+
+
+
+// =============================================================================
+} // class HDLCDataLinkLayer
+// =============================================================================
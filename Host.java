@@ -1,15 +1,25 @@
 // =============================================================================
 // IMPORTS
 
-import java.util.Queue;
-import java.util.LinkedList;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 // =============================================================================
 
 
 
 // =============================================================================
 /**
- * A single host, comprising a single network stack, connected to a medium.
+ * A single host, comprising a single network stack, connected to a medium.  A
+ * host may run an application workload on a thread of its own, blocking in
+ * <code>take()</code> until data arrives.  Where the JVM supports them, these
+ * are virtual threads, so that many thousands of hosts may run at once.
  *
  * @file   Host.java
  * @author Scott F. Kaplan (sfkaplan@cs.amherst.edu)
@@ -29,13 +39,28 @@ public class Host {
     // =========================================================================
     public Host (Medium medium, String dataLinkLayerType) {
 
+	this(medium, dataLinkLayerType, LayerConfig.DEFAULT);
+
+    } // Host ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    public Host (Medium medium, String dataLinkLayerType, LayerConfig config) {
+
 	this.medium        = medium;
 	this.physicalLayer = PhysicalLayer.create(medium);
 	this.dataLinkLayer = DataLinkLayer.create(dataLinkLayerType,
+						  config,
 						  this.physicalLayer,
 						  this);
 
-	this.buffer = new LinkedList<Byte>();
+	this.buffer      = new byte[INITIAL_BUFFER_SIZE];
+	this.maxBuffered = (config.getMaxBufferedBytes() > 0) ? config.getMaxBufferedBytes()
+	                                                      : MAX_BUFFER_SIZE;
+	this.lock        = new ReentrantLock();
+	this.dataArrived = lock.newCondition();
 
     } // Host ()
     // =========================================================================
@@ -57,20 +82,64 @@ public class Host {
 
 
 
+    // =========================================================================
+    /**
+     * Send at once any messages that the data link layer is holding to
+     * aggregate with later ones.  A layer that retransmits also waits until
+     * everything sent has been acknowledged.
+     */
+    public void flush () {
+
+	dataLinkLayer.flush();
+
+    } // flush ()
+    // =========================================================================
+
+
+
     // =========================================================================
     /**
      * Receive bytes from the lower layer.  Buffer those until they are
-     * retrieved.
+     * retrieved, waking any thread blocked in <code>take()</code>.  May be
+     * called by the data link layer's verifier threads, or by the thread of
+     * another host sending on the medium.  If buffering the data would exceed
+     * the configured limit, the data is instead discarded and counted.
      *
-     * @param data The data received and to be buffered.
+     * @param  data The data received and to be buffered.
+     * @return the number of bytes buffered: all of them, or <code>0</code> if
+     *         they were discarded.
      */
-    public void receive (byte[] data) {
-
-	// Add the bytes into the buffer.
-	for (int i = 0; i < data.length; i += 1) {
-	    buffer.add(data[i]);
+    public int receive (byte[] data) {
+
+	long sequence;
+	lock.lock();
+	try {
+
+	    if (count + (long)data.length > maxBuffered) {
+		droppedBytes += data.length;
+		return 0;
+	    }
+	    sequence = receipts++;
+
+	    // Add the bytes into the buffer, growing it if needed.
+	    if (count + data.length > buffer.length) {
+		byte[] larger = new byte[(int)Math.min(Math.max(buffer.length * 2L,
+								count + data.length),
+						       maxBuffered)];
+		System.arraycopy(buffer, 0, larger, 0, count);
+		buffer = larger;
+	    }
+	    System.arraycopy(data, 0, buffer, count, data.length);
+	    count         += data.length;
+	    receivedBytes += data.length;
+	    dataArrived.signalAll();
+
+	} finally {
+	    lock.unlock();
 	}
-	
+	LinkEvents.frameReceived(dataLinkLayer.getTypeName(), data.length, sequence);
+	return data.length;
+
     } // receive ()
     // =========================================================================
 
@@ -78,26 +147,368 @@ public class Host {
 
     // =========================================================================
     /**
-     * Retrieve and return any bytes that have been received and buffered.
+     * Withdraw the most recently received bytes, because the data link layer
+     * delivered them speculatively and their frame then failed its check.
+     * The layer names only the bytes and receipts that <code>receive()</code>
+     * buffered, so nothing older is withdrawn.  Bytes already taken by the
+     * workload cannot be withdrawn, and stay counted as received.
+     *
+     * @param  length   The number of bytes buffered from the damaged frame.
+     * @param  receipts The number of times they were received.
+     * @return the number of bytes actually withdrawn.
+     */
+    public int retract (int length, int receipts) {
+
+	lock.lock();
+	try {
+	    int withdrawn = Math.min(length, count);
+	    count              -= withdrawn;
+	    receivedBytes      -= withdrawn;
+	    this.receipts      -= receipts;
+	    return withdrawn;
+	} finally {
+	    lock.unlock();
+	}
+
+    } // retract ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @return the number of times that data has been received and buffered,
+     *         which is the number of frames delivered unless aggregating or
+     *         streaming.  Data discarded because the buffer was full is not
+     *         counted.
+     */
+    public long getReceipts () {
+
+	lock.lock();
+	try {
+	    return receipts;
+	} finally {
+	    lock.unlock();
+	}
+
+    } // getReceipts ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @return the number of bytes received and buffered, including those since
+     *         taken, but not those since withdrawn.
+     */
+    public long getReceivedBytes () {
+
+	lock.lock();
+	try {
+	    return receivedBytes;
+	} finally {
+	    lock.unlock();
+	}
+
+    } // getReceivedBytes ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /** @return the number of received bytes discarded because the buffer was full. */
+    public long getDroppedBytes () {
+
+	lock.lock();
+	try {
+	    return droppedBytes;
+	} finally {
+	    lock.unlock();
+	}
+
+    } // getDroppedBytes ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Retrieve and return any bytes that have been received and buffered,
+     * first waiting for the data link layer to finish checking the frames it
+     * has already received.
      *
      * @return the buffered bytes.
      */
     public byte[] retrieve () {
 
-	// Remove the bytes from the buffer, adding them to a newly formed array
-	// to be returned.
-	byte[] received = new byte[buffer.size()];
-	for (int i = 0; i < received.length; i += 1) {
-	    received[i] = buffer.remove();
-	}
+	dataLinkLayer.drain();
 
-	return received;
+	lock.lock();
+	try {
+	    return remove(count);
+	} finally {
+	    lock.unlock();
+	}
 	
     } // retrieve ()
     // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Block until exactly the given number of bytes have been received, and
+     * then remove and return them.
+     *
+     * @param  length The number of bytes to take.
+     * @return the first <code>length</code> buffered bytes.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public byte[] take (int length) throws InterruptedException {
+
+	lock.lock();
+	try {
+	    while (count < length) {
+		dataArrived.await();
+	    }
+	    return remove(length);
+	} finally {
+	    lock.unlock();
+	}
+
+    } // take ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Block until exactly the given number of bytes have been received, or
+     * until no byte has arrived for the timeout.  The wait restarts whenever
+     * data arrives, so that a long transfer that is still making progress is
+     * not abandoned.
+     *
+     * @param  length  The number of bytes to take.
+     * @param  timeout The longest time to wait without any data arriving.
+     * @param  unit    The unit of the timeout.
+     * @return the first <code>length</code> buffered bytes, or
+     *         <code>null</code> if they stopped arriving first.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public byte[] take (int length, long timeout, TimeUnit unit)
+	throws InterruptedException {
+
+	long remaining = unit.toNanos(timeout);
+	lock.lock();
+	try {
+	    int buffered = count;
+	    while (count < length) {
+		if (count != buffered) {
+		    buffered  = count;
+		    remaining = unit.toNanos(timeout);
+		} else if (remaining <= 0) {
+		    return null;
+		}
+		remaining = dataArrived.awaitNanos(remaining);
+	    }
+	    return remove(length);
+	} finally {
+	    lock.unlock();
+	}
+
+    } // take ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Run an application workload on a thread of this host's own.
+     *
+     * @param  workload The workload, given this host.
+     * @return the started thread.
+     * @throws RuntimeException if this host is already running a workload.
+     */
+    public Thread start (final Consumer<Host> workload) {
+
+	if (thread != null && thread.isAlive()) {
+	    throw new RuntimeException("Host is already running a workload");
+	}
+	final Host host = this;
+	thread = threadFactory.newThread(new Runnable() {
+		public void run () {
+		    workload.accept(host);
+		}
+	    });
+	thread.start();
+	return thread;
+
+    } // start ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Wait for this host's workload, if any, to finish.
+     *
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public void join () throws InterruptedException {
+
+	if (thread != null) {
+	    thread.join();
+	}
+
+    } // join ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @return <code>true</code> if workloads run on virtual threads;
+     *         <code>false</code> if they run on platform threads.
+     */
+    public static boolean usesVirtualThreads () {
+
+	return virtualThreads;
+
+    } // usesVirtualThreads ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Provide access to this host's data link layer so that it can be
+     * configured.
+     *
+     * @return the data link layer in this host's network stack.
+     */
+    public DataLinkLayer getDataLinkLayer () {
+
+	return dataLinkLayer;
+
+    } // getDataLinkLayer ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Write the state that a checkpoint must carry for this host to continue
+     * where it left off: the bytes received and not yet taken, the counts of
+     * what has been received, and the state of the data link layer.  Called
+     * only between sends, when the medium is quiet.
+     *
+     * @param  out The stream to write to.
+     * @throws IOException if the state cannot be written.
+     */
+    void writeState (DataOutputStream out) throws IOException {
+
+	lock.lock();
+	try {
+	    out.writeInt(count);
+	    out.write(buffer, 0, count);
+	    out.writeLong(receipts);
+	    out.writeLong(receivedBytes);
+	    out.writeLong(droppedBytes);
+	} finally {
+	    lock.unlock();
+	}
+	dataLinkLayer.writeState(out);
+
+    } // writeState ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Restore the state written by <code>writeState()</code> into a host
+     * created with the same settings.
+     *
+     * @param  in The stream to read from.
+     * @throws IOException if the state cannot be read.
+     */
+    void readState (DataInputStream in) throws IOException {
+
+	lock.lock();
+	try {
+	    count = in.readInt();
+	    if (count > buffer.length) {
+		buffer = new byte[count];
+	    }
+	    in.readFully(buffer, 0, count);
+	    receipts      = in.readLong();
+	    receivedBytes = in.readLong();
+	    droppedBytes  = in.readLong();
+	} finally {
+	    lock.unlock();
+	}
+	dataLinkLayer.readState(in);
+
+    } // readState ()
+    // =========================================================================
     
 
 
+    // =========================================================================
+    // PRIVATE METHODS
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Remove bytes from the front of the buffer.  The lock must be held.
+     *
+     * @param  length The number of bytes to remove.
+     * @return the removed bytes.
+     */
+    private byte[] remove (int length) {
+
+	byte[] removed = new byte[length];
+	System.arraycopy(buffer, 0, removed, 0, length);
+	System.arraycopy(buffer, length, buffer, 0, count - length);
+	count -= length;
+	return removed;
+
+    } // remove ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Choose the factory for workload threads: virtual threads if this JVM
+     * provides them (Java 21 and later), and daemon platform threads otherwise.
+     * Found reflectively so that the simulator still runs on older JVMs.
+     */
+    private static ThreadFactory createThreadFactory () {
+
+	try {
+	    Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+	    Method factory = Class.forName("java.lang.Thread$Builder").getMethod("factory");
+	    virtualThreads = true;
+	    return (ThreadFactory)factory.invoke(builder);
+	} catch (ReflectiveOperationException e) {
+	    virtualThreads = false;
+	    return new ThreadFactory() {
+		public Thread newThread (Runnable task) {
+		    Thread thread = new Thread(null, task, "Host", PLATFORM_STACK_SIZE);
+		    thread.setDaemon(true);
+		    return thread;
+		}
+	    };
+	}
+
+    } // createThreadFactory ()
+    // =========================================================================
+
+
+
     // =========================================================================
     // DATA MEMBERS
 
@@ -111,7 +522,46 @@ public class Host {
     private DataLinkLayer dataLinkLayer;
 
     /** The buffered bytes received via the network stack. */
-    private Queue<Byte>   buffer;
+    private byte[]        buffer;
+
+    /** The number of bytes in the buffer. */
+    private int           count = 0;
+
+    /** The most bytes that the buffer may hold. */
+    private final int     maxBuffered;
+
+    /** The number of received bytes discarded because the buffer was full. */
+    private long          droppedBytes = 0;
+
+    /** The number of times that data has been received and buffered. */
+    private long          receipts     = 0;
+
+    /** The number of bytes received and buffered. */
+    private long          receivedBytes = 0;
+
+    /** Guards the buffer.  Parks, rather than pins, virtual threads. */
+    private final ReentrantLock lock;
+
+    /** Signalled when bytes are added to the buffer. */
+    private final Condition     dataArrived;
+
+    /** The thread running this host's workload, if any. */
+    private Thread        thread = null;
+
+    /** The initial capacity of the buffer. */
+    private static final int     INITIAL_BUFFER_SIZE = 64;
+
+    /** The largest buffer, when no limit is set: the largest array possible. */
+    private static final int     MAX_BUFFER_SIZE = Integer.MAX_VALUE - 8;
+
+    /** The stack size requested for platform workload threads. */
+    private static final long    PLATFORM_STACK_SIZE = 256 * 1024;
+
+    /** Whether workload threads are virtual. */
+    private static boolean       virtualThreads;
+
+    /** Creates the workload threads. */
+    private static final ThreadFactory threadFactory = createThreadFactory();
 
     /** Whether to emit debugging information. */
     private static final boolean debug = false;
@@ -0,0 +1,163 @@
+// =============================================================================
+// IMPORTS
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+// =============================================================================
+
+
+
+// =============================================================================
+/**
+ * Simulates many chatty hosts at once, each running its workload on its own
+ * thread.  Hosts are paired, each pair sharing a medium, and in each pair one
+ * host sends requests that the other echoes back.
+ *
+ * @file   HostSwarm.java
+ * @date   October 2026
+ */
+public class HostSwarm {
+// =============================================================================
+
+
+
+    // =========================================================================
+    /**
+     * The entry point.  Interpret the command-line arguments, aborting if they
+     * are invalid, and then run the swarm.
+     *
+     * @param args The command-line arguments.
+     */
+    public static void main (String[] args) throws InterruptedException {
+
+	if (args.length != 5) {
+	    System.err.println("Usage: java HostSwarm "     +
+			       "<host count> "              +
+			       "<medium type> "             +
+			       "<data link layer type> "    +
+			       "<rounds> "                  +
+			       "<message size>");
+	    System.exit(1);
+	}
+	int    hostCount         = Integer.parseInt(args[0]);
+	String mediumType        = args[1];
+	String dataLinkLayerType = args[2];
+	int    rounds            = Integer.parseInt(args[3]);
+	int    messageSize       = Integer.parseInt(args[4]);
+
+	// Create the pairs of hosts.
+	Host[] hosts = new Host[hostCount - hostCount % 2];
+	for (int i = 0; i < hosts.length; i += 2) {
+	    Medium medium = Medium.create(mediumType);
+	    hosts[i]      = new Host(medium, dataLinkLayerType);
+	    hosts[i + 1]  = new Host(medium, dataLinkLayerType);
+	}
+
+	// Start every workload, and then wait for them all to finish.
+	Consumer<Host> client = requester(rounds, messageSize);
+	Consumer<Host> server = echoer(rounds, messageSize);
+	long start = System.nanoTime();
+	for (int i = 0; i < hosts.length; i += 2) {
+	    hosts[i + 1].start(server);
+	    hosts[i].start(client);
+	}
+	for (int i = 0; i < hosts.length; i += 1) {
+	    hosts[i].join();
+	}
+	double secs = (System.nanoTime() - start) / 1e9;
+
+	Runtime runtime = Runtime.getRuntime();
+	System.out.printf("%d hosts on %s threads: %d exchanges in %.3f s " +
+			  "(%.0f exchanges/s), %d timeouts, %d MB heap in use\n",
+			  hosts.length,
+			  Host.usesVirtualThreads() ? "virtual" : "platform",
+			  exchanges.get(),
+			  secs,
+			  exchanges.get() / secs,
+			  timeouts.get(),
+			  (runtime.totalMemory() - runtime.freeMemory()) >> 20);
+
+    } // main ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @return a workload that sends a request and waits for its echo, for the
+     *         given number of rounds.
+     */
+    private static Consumer<Host> requester (final int rounds, final int size) {
+
+	return new Consumer<Host>() {
+	    public void accept (Host host) {
+		byte[] request = new byte[size];
+		try {
+		    for (int round = 0; round < rounds; round += 1) {
+			request[round % size] = (byte)('a' + round % 26);
+			host.send(request);
+			if (host.take(size, TIMEOUT_SECONDS, TimeUnit.SECONDS) == null) {
+			    timeouts.incrementAndGet();
+			    return;
+			}
+			exchanges.incrementAndGet();
+		    }
+		} catch (InterruptedException e) {
+		    Thread.currentThread().interrupt();
+		}
+	    }
+	};
+
+    } // requester ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @return a workload that echoes each request it receives, for the given
+     *         number of rounds.
+     */
+    private static Consumer<Host> echoer (final int rounds, final int size) {
+
+	return new Consumer<Host>() {
+	    public void accept (Host host) {
+		try {
+		    for (int round = 0; round < rounds; round += 1) {
+			byte[] request = host.take(size, TIMEOUT_SECONDS, TimeUnit.SECONDS);
+			if (request == null) {
+			    timeouts.incrementAndGet();
+			    return;
+			}
+			host.send(request);
+		    }
+		} catch (InterruptedException e) {
+		    Thread.currentThread().interrupt();
+		}
+	    }
+	};
+
+    } // echoer ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // DATA MEMBERS
+
+    /** The number of completed request/echo exchanges. */
+    private static final AtomicLong exchanges = new AtomicLong();
+
+    /** The number of workloads that gave up waiting for data. */
+    private static final AtomicLong timeouts  = new AtomicLong();
+
+    /** How long a workload waits for data before giving up. */
+    private static final long       TIMEOUT_SECONDS = 10;
+    // =========================================================================
+
+
+
+// =============================================================================
+} // class HostSwarm
+// =============================================================================
@@ -0,0 +1,111 @@
+// =============================================================================
+/**
+ * The Internet checksum of RFC 1071: the ones' complement of the ones'
+ * complement sum of the data taken as big-endian 16-bit words, with an odd
+ * final byte padded with zero.  The state holds the running sum in its low
+ * 32 bits and, above them, whether an odd number of bytes has been seen.
+ *
+ * @file   InternetChecksumDetector.java
+ * @date   October 2026
+ */
+public class InternetChecksumDetector implements ErrorDetector {
+// =============================================================================
+
+
+
+    // =========================================================================
+    public int length () {
+
+	return 2;
+
+    } // length ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    public long start () {
+
+	return 0;
+
+    } // start ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    public long update (long state, byte data) {
+
+	long odd = state & ODD;
+	long sum = (state & SUM) + ((odd != 0) ? (data & 0xff) : (data & 0xff) << 8);
+	return fold(sum) | (odd ^ ODD);
+
+    } // update ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Sum whole words without folding, which a long can hold for far longer
+     * than any frame, and fold once at the end.
+     */
+    public long update (long state, byte[] data, int from, int to) {
+
+	if (from == to) {
+	    return state;
+	}
+	if ((state & ODD) != 0) {
+	    state = update(state, data[from]);
+	    from += 1;
+	}
+	long sum = state & SUM;
+	int  i   = from;
+	for (; i + 1 < to; i += 2) {
+	    sum += ((data[i] & 0xff) << 8) | (data[i + 1] & 0xff);
+	}
+	state = fold(fold(sum));
+	if (i < to) {
+	    state = update(state, data[i]);
+	}
+	return state;
+
+    } // update ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    public long trailer (long state) {
+
+	return ~fold(fold(state & SUM)) & 0xffff;
+
+    } // trailer ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /** @return the sum with its carries above 16 bits added back in once. */
+    private static long fold (long sum) {
+
+	return (sum & 0xffff) + (sum >>> 16);
+
+    } // fold ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // DATA MEMBERS
+
+    // The parts of the state.
+    private static final long SUM = 0xffffffffL;
+    private static final long ODD = 1L << 32;
+    // =========================================================================
+
+
+
+// =============================================================================
+} // class InternetChecksumDetector
+// =============================================================================
@@ -0,0 +1,469 @@
+// =============================================================================
+/**
+ * The settings of a data link layer.  A configuration is immutable, so one
+ * instance may be shared by any number of layers; each <code>with</code>
+ * method returns a modified copy.
+ *
+ * @file   LayerConfig.java
+ * @date   October 2026
+ */
+public final class LayerConfig {
+// =============================================================================
+
+
+
+    // =========================================================================
+    // PUBLIC METHODS
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @param  frameSize The number of data bytes per frame, or <code>0</code>
+     *                   for the layer's own default.
+     * @return a copy of this configuration with the given frame size.
+     */
+    public LayerConfig withFrameSize (int frameSize) {
+
+	if (frameSize < 0) {
+	    throw new RuntimeException("Invalid frame size " + frameSize);
+	}
+	LayerConfig copy = copy();
+	copy.frameSize = frameSize;
+	return copy;
+
+    } // withFrameSize ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @param  parallelSend Whether large sends are framed in parallel.
+     * @return a copy of this configuration with the given setting.
+     */
+    public LayerConfig withParallelSend (boolean parallelSend) {
+
+	LayerConfig copy = copy();
+	copy.parallelSend = parallelSend;
+	return copy;
+
+    } // withParallelSend ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @param  verifierThreads The number of threads checking received frames,
+     *                         or <code>0</code> to check them inline.
+     * @return a copy of this configuration with the given setting.
+     */
+    public LayerConfig withVerifierThreads (int verifierThreads) {
+
+	if (verifierThreads < 0) {
+	    throw new RuntimeException("Invalid verifier thread count " +
+				       verifierThreads);
+	}
+	LayerConfig copy = copy();
+	copy.verifierThreads = verifierThreads;
+	copy.stages          = stages;
+	return copy;
+
+    } // withVerifierThreads ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @param  stages The names of the stages from which a <code>Staged</code>
+     *                layer is assembled, in order.
+     * @return a copy of this configuration with the given stages.
+     */
+    public LayerConfig withStages (String... stages) {
+
+	LayerConfig copy = copy();
+	copy.stages = stages.clone();
+	return copy;
+
+    } // withStages ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @param  detector The name of the error detector that replaces a framing
+     *                  layer's own (see <code>ErrorDetectors</code>).
+     * @return a copy of this configuration with the given detector.
+     */
+    public LayerConfig withDetector (String detector) {
+
+	LayerConfig copy = copy();
+	copy.detector = detector;
+	return copy;
+
+    } // withDetector ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @param  lineCode The name of the line code of the physical layer beneath
+     *                  (see <code>LineCodes</code>), or <code>null</code> for
+     *                  none.
+     * @return a copy of this configuration with the given line code.
+     * @throws RuntimeException if there is no such code.
+     */
+    public LayerConfig withLineCode (String lineCode) {
+
+	if (lineCode != null && !LineCodes.exists(lineCode)) {
+	    throw new RuntimeException("Unknown line code " + lineCode);
+	}
+	LayerConfig copy = copy();
+	copy.lineCode = (lineCode == null || lineCode.equals(LineCodes.NONE)) ? null : lineCode;
+	return copy;
+
+    } // withLineCode ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @param  depth The number of bytes per block of bit interleaving, a
+     *               multiple of 8, or <code>0</code> for none.
+     * @return a copy of this configuration with the given depth.
+     */
+    public LayerConfig withInterleaveDepth (int depth) {
+
+	if (depth < 0 || depth % 8 != 0) {
+	    throw new RuntimeException("Invalid interleaver depth " + depth);
+	}
+	LayerConfig copy = copy();
+	copy.interleaveDepth = depth;
+	return copy;
+
+    } // withInterleaveDepth ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @param  length The largest number of bytes that a received frame may
+     *                hold, once unescaped, or <code>0</code> for the layer's
+     *                default.
+     * @return a copy of this configuration with the given limit.
+     */
+    public LayerConfig withMaxFrameLength (int length) {
+
+	if (length < 0) {
+	    throw new RuntimeException("Invalid maximum frame length " + length);
+	}
+	LayerConfig copy = copy();
+	copy.maxFrameLength = length;
+	return copy;
+
+    } // withMaxFrameLength ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @param  bytes The largest number of received bytes that a host buffers
+     *               before discarding what arrives.
+     * @return a copy of this configuration with the given limit.
+     */
+    public LayerConfig withMaxBufferedBytes (int bytes) {
+
+	if (bytes < 1) {
+	    throw new RuntimeException("Invalid buffer limit " + bytes);
+	}
+	LayerConfig copy = copy();
+	copy.maxBufferedBytes = bytes;
+	return copy;
+
+    } // withMaxBufferedBytes ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @param  mode When received data is handed to the host.
+     * @return a copy of this configuration with the given mode.
+     */
+    public LayerConfig withDeliveryMode (DeliveryMode mode) {
+
+	LayerConfig copy = copy();
+	copy.deliveryMode = mode;
+	return copy;
+
+    } // withDeliveryMode ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @param  fillThreshold    The number of buffered bytes of small messages
+     *                          that causes a batch to be sent, or
+     *                          <code>0</code> to send each message at once.
+     * @param  flushDelayMillis The longest that a message waits before its
+     *                          batch is sent.
+     * @return a copy of this configuration with the given aggregation.
+     */
+    public LayerConfig withAggregation (int fillThreshold, long flushDelayMillis) {
+
+	if (fillThreshold < 0) {
+	    throw new RuntimeException("Invalid aggregation threshold " + fillThreshold);
+	}
+	if (flushDelayMillis < 0) {
+	    throw new RuntimeException("Invalid aggregation delay " + flushDelayMillis);
+	}
+	LayerConfig copy = copy();
+	copy.aggregateThreshold   = fillThreshold;
+	copy.aggregateDelayMillis = flushDelayMillis;
+	return copy;
+
+    } // withAggregation ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /** @return the number of data bytes per frame, or <code>0</code> for the default. */
+    public int getFrameSize () {
+
+	return frameSize;
+
+    } // getFrameSize ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /** @return whether large sends are framed in parallel. */
+    public boolean getParallelSend () {
+
+	return parallelSend;
+
+    } // getParallelSend ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /** @return the number of threads checking received frames. */
+    public int getVerifierThreads () {
+
+	return verifierThreads;
+
+    } // getVerifierThreads ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /** @return the names of the stages of a <code>Staged</code> layer. */
+    public String[] getStages () {
+
+	return stages.clone();
+
+    } // getStages ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @return the name of the error detector that replaces the layer's own, or
+     *         <code>null</code> to keep it.
+     */
+    public String getDetector () {
+
+	return detector;
+
+    } // getDetector ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /** @return the number of bytes per block of bit interleaving, or <code>0</code>. */
+    public int getInterleaveDepth () {
+
+	return interleaveDepth;
+
+    } // getInterleaveDepth ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /** @return the largest received frame, or <code>0</code> for the default. */
+    public int getMaxFrameLength () {
+
+	return maxFrameLength;
+
+    } // getMaxFrameLength ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @return the largest number of received bytes that a host buffers, or
+     *         <code>0</code> for as many as it can hold.
+     */
+    public int getMaxBufferedBytes () {
+
+	return maxBufferedBytes;
+
+    } // getMaxBufferedBytes ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /** @return when received data is handed to the host. */
+    public DeliveryMode getDeliveryMode () {
+
+	return deliveryMode;
+
+    } // getDeliveryMode ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @return the number of buffered bytes of small messages that causes a
+     *         batch to be sent, or <code>0</code> if not aggregating.
+     */
+    public int getAggregateThreshold () {
+
+	return aggregateThreshold;
+
+    } // getAggregateThreshold ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /** @return the longest that a message waits before its batch is sent. */
+    public long getAggregateDelayMillis () {
+
+	return aggregateDelayMillis;
+
+    } // getAggregateDelayMillis ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @return the name of the line code of the physical layer beneath, or
+     *         <code>null</code> for none.
+     */
+    public String getLineCode () {
+
+	return lineCode;
+
+    } // getLineCode ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // PRIVATE METHODS
+    // =========================================================================
+
+
+
+    // =========================================================================
+    private LayerConfig () {
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    private LayerConfig copy () {
+
+	LayerConfig copy = new LayerConfig();
+	copy.frameSize       = frameSize;
+	copy.parallelSend    = parallelSend;
+	copy.verifierThreads = verifierThreads;
+	copy.stages          = stages;
+	copy.detector        = detector;
+	copy.lineCode        = lineCode;
+	copy.interleaveDepth = interleaveDepth;
+	copy.maxFrameLength  = maxFrameLength;
+	copy.maxBufferedBytes = maxBufferedBytes;
+	copy.deliveryMode    = deliveryMode;
+	copy.aggregateThreshold   = aggregateThreshold;
+	copy.aggregateDelayMillis = aggregateDelayMillis;
+	return copy;
+
+    } // copy ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // DATA MEMBERS
+
+    /** The number of data bytes per frame, or 0 for the layer's default. */
+    private int     frameSize       = 0;
+
+    /** Whether large sends are framed in parallel. */
+    private boolean parallelSend    = false;
+
+    /** The number of threads checking received frames. */
+    private int     verifierThreads = 0;
+
+    /** The stages of a <code>Staged</code> layer. */
+    private String[] stages         = new String[0];
+
+    /** The error detector replacing the layer's own, if any. */
+    private String   detector       = null;
+
+    /** The line code of the physical layer beneath, if any. */
+    private String   lineCode       = null;
+
+    /** The number of bytes per block of bit interleaving, or 0 for none. */
+    private int      interleaveDepth = 0;
+
+    /** The largest received frame, or 0 for the layer's default. */
+    private int      maxFrameLength  = 0;
+
+    /** The largest number of received bytes that a host buffers, or 0. */
+    private int      maxBufferedBytes = 0;
+
+    /** When received data is handed to the host. */
+    private DeliveryMode deliveryMode = DeliveryMode.STORE_AND_FORWARD;
+
+    /** The bytes of small messages that cause a batch to be sent, or 0. */
+    private int      aggregateThreshold   = 0;
+
+    /** The longest that a message waits before its batch is sent. */
+    private long     aggregateDelayMillis = DEFAULT_AGGREGATE_DELAY_MILLIS;
+
+    /** The default longest wait of an aggregated message. */
+    public static final long DEFAULT_AGGREGATE_DELAY_MILLIS = 10;
+
+    /** The configuration with every setting at its default. */
+    public static final LayerConfig DEFAULT = new LayerConfig();
+    // =========================================================================
+
+
+
+// =============================================================================
+} // class LayerConfig
+// =============================================================================
@@ -0,0 +1,92 @@
+// =============================================================================
+/**
+ * A line code, by which a physical layer turns data bits into the symbols it
+ * signals on the medium, and back.  Each unit of <code>dataBits()</code> data
+ * bits becomes one symbol of <code>symbolBits()</code> line bits.
+ *
+ * Like an error detector, a line code holds no state of its own: a code that
+ * depends on what came before, such as the running disparity of 8b/10b, is
+ * passed its state and returns the next one, packed above the value as
+ * <code>value | state &lt;&lt; STATE_SHIFT</code>.  So one code may be shared
+ * by every physical layer, each keeping a state for sending and one for
+ * receiving, and a code can store whole results in its tables.
+ *
+ * A symbol that no unit of data encodes to, in the given state, is a code
+ * violation: noise that the physical layer can detect before any frame check.
+ * Decoding it sets <code>VIOLATION</code>, with the code's best guess at the
+ * data.
+ *
+ * Line codes are looked up by name in <code>LineCodes</code>.
+ *
+ * @file   LineCode.java
+ * @date   October 2026
+ */
+public interface LineCode {
+// =============================================================================
+
+
+
+    // =========================================================================
+    /** @return the number of data bits in each unit, at most 16. */
+    public int dataBits ();
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /** @return the number of line bits in each symbol, at most 16. */
+    public int symbolBits ();
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /** @return the state before anything has been sent or received. */
+    public int start ();
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @param  state The state after the preceding units.
+     * @param  data  The next unit of data, in the low <code>dataBits()</code>.
+     * @return the symbol, in the low <code>symbolBits()</code>, to be sent
+     *         most significant bit first, with the next state above it.
+     */
+    public int encode (int state, int data);
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @param  state  The state after the preceding symbols.
+     * @param  symbol The next symbol, in the low <code>symbolBits()</code>.
+     * @return the unit of data, with the next state above it, and with
+     *         <code>VIOLATION</code> set if the symbol is not valid.
+     */
+    public int decode (int state, int symbol);
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /** How far above the value of a result its state is packed. */
+    public static final int STATE_SHIFT = 16;
+
+    /** The mask of the value of a result. */
+    public static final int VALUE_MASK  = (1 << STATE_SHIFT) - 1;
+
+    /** Set in a decoded result whose symbol was a code violation. */
+    public static final int VIOLATION   = 1 << 31;
+
+    /** The mask of the state of a result, once shifted down. */
+    public static final int STATE_MASK  = (VIOLATION >>> STATE_SHIFT) - 1;
+    // =========================================================================
+
+
+
+// =============================================================================
+} // interface LineCode
+// =============================================================================
@@ -0,0 +1,153 @@
+// =============================================================================
+// IMPORTS
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+// =============================================================================
+
+
+
+// =============================================================================
+/**
+ * Looks up line codes by name.  Codes are stateless, so each name maps to one
+ * shared instance.  The built-in codes, in order of increasing cost in
+ * bandwidth, are:
+ *
+ *   8b10b       8b/10b, DC balanced with running disparity; 1.25 line bits
+ *               per data bit.
+ *   4b5b        4B5B, bounded runs of zeros; 1.25 line bits per data bit.
+ *   manchester  Manchester, a transition in every bit time; 2 line bits
+ *               per data bit.
+ *
+ * A physical layer with no line code (<code>none</code>) puts the data bits
+ * on the medium as they are.  Further codes may be added with
+ * <code>register()</code>.
+ *
+ * @file   LineCodes.java
+ * @date   October 2026
+ */
+public final class LineCodes {
+// =============================================================================
+
+
+
+    // =========================================================================
+    // PUBLIC METHODS
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Find a line code by name.
+     *
+     * @param  name The name of the code, such as <code>8b10b</code>.
+     * @return the code, or <code>null</code> for <code>none</code>.
+     * @throws RuntimeException if there is no such code.
+     */
+    public static LineCode forName (String name) {
+
+	if (name.equals(NONE)) {
+	    return null;
+	}
+	LineCode code = codes.get(name);
+	if (code == null) {
+	    throw new RuntimeException("Unknown line code " + name);
+	}
+	return code;
+
+    } // forName ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @param  name The name of a code.
+     * @return whether there is a code of that name.
+     */
+    public static boolean exists (String name) {
+
+	return name.equals(NONE) || codes.containsKey(name);
+
+    } // exists ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Add a line code under a name.
+     *
+     * @param name The name of the code.
+     * @param code The code, which must hold no state.
+     * @throws RuntimeException if the name is already taken.
+     */
+    public static void register (String name, LineCode code) {
+
+	if (name.equals(NONE) || codes.putIfAbsent(name, code) != null) {
+	    throw new RuntimeException("Duplicate line code " + name);
+	}
+	synchronized (names) {
+	    names.add(name);
+	}
+
+    } // register ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /** @return the names of the codes, in the order of registration. */
+    public static List<String> names () {
+
+	synchronized (names) {
+	    return new ArrayList<String>(names);
+	}
+
+    } // names ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // PRIVATE METHODS
+    // =========================================================================
+
+
+
+    // =========================================================================
+    private LineCodes () {
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // DATA MEMBERS
+
+    /** The name meaning no line code. */
+    public static final String NONE = "none";
+
+    /** The codes, by name. */
+    private static final ConcurrentMap<String, LineCode> codes =
+	new ConcurrentHashMap<String, LineCode>();
+
+    /** The names of the codes, in the order of registration. */
+    private static final List<String> names = new ArrayList<String>();
+
+    // Register the built-in codes.
+    static {
+	register("8b10b",      new Code8B10B());
+	register("4b5b",       new Code4B5B());
+	register("manchester", new ManchesterCode());
+    }
+    // =========================================================================
+
+
+
+// =============================================================================
+} // class LineCodes
+// =============================================================================
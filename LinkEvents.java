@@ -0,0 +1,299 @@
+// =============================================================================
+// IMPORTS
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+// =============================================================================
+
+
+
+// =============================================================================
+/**
+ * The JDK Flight Recorder events of the simulator.  Each carries the type of
+ * the data link layer involved, a length, and a sequence number.  An event is
+ * created and committed only where it happens, so a disabled event costs one
+ * check, and the allocation is removed by escape analysis.
+ *
+ * By default, the encoding and transmission of a frame are recorded only if
+ * they take at least 1 ms; checksum failures and resynchronizations are
+ * always recorded; and the high-volume events, a frame received by a host and
+ * a bit flipped by the medium, are not recorded.  A recording's settings may
+ * change any of these, under the names <code>datalink.*</code>.
+ *
+ * @file   LinkEvents.java
+ * @date   October 2026
+ */
+public final class LinkEvents {
+// =============================================================================
+
+
+
+    // =========================================================================
+    /** Framing a send, emitted by <code>DataLinkLayer</code>. */
+    @Name("datalink.FrameEncoded")
+    @Label("Frame Encoded")
+    @Category({ "Data Link", "Sending" })
+    @Description("Framing of the data of one send")
+    @Threshold("1 ms")
+    @StackTrace(false)
+    public static final class FrameEncoded extends Event {
+
+	@Label("Layer Type")
+	String layerType;
+
+	@Label("Frame Length")
+	@Description("The length of the framed data")
+	@DataAmount
+	int    frameLength;
+
+	@Label("Sequence")
+	@Description("The number of sends this layer has framed before")
+	long   sequence;
+
+	/** Commit this event, if it is enabled and past its threshold. */
+	public void record (String layerType, int frameLength, long sequence) {
+	    if (shouldCommit()) {
+		this.layerType   = layerType;
+		this.frameLength = frameLength;
+		this.sequence    = sequence;
+		commit();
+	    }
+	}
+
+    } // class FrameEncoded
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /** Putting framed data on the medium, emitted by <code>DataLinkLayer</code>. */
+    @Name("datalink.FrameTransmitted")
+    @Label("Frame Transmitted")
+    @Category({ "Data Link", "Sending" })
+    @Description("Transmission of framed data, including waiting for the medium")
+    @Threshold("1 ms")
+    @StackTrace(false)
+    public static final class FrameTransmitted extends Event {
+
+	@Label("Layer Type")
+	String layerType;
+
+	@Label("Frame Length")
+	@DataAmount
+	int    frameLength;
+
+	@Label("Sequence")
+	@Description("The number of transmissions this layer has made before")
+	long   sequence;
+
+	/** Commit this event, if it is enabled and past its threshold. */
+	public void record (String layerType, int frameLength, long sequence) {
+	    if (shouldCommit()) {
+		this.layerType   = layerType;
+		this.frameLength = frameLength;
+		this.sequence    = sequence;
+		commit();
+	    }
+	}
+
+    } // class FrameTransmitted
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /** A frame's data reaching its host, emitted by <code>Host</code>. */
+    @Name("datalink.FrameReceived")
+    @Label("Frame Received")
+    @Category({ "Data Link", "Receiving" })
+    @Description("Delivery of the data of a frame to a host")
+    @Enabled(false)
+    @StackTrace(false)
+    public static final class FrameReceived extends Event {
+
+	@Label("Layer Type")
+	String layerType;
+
+	@Label("Frame Length")
+	@DataAmount
+	int    frameLength;
+
+	@Label("Sequence")
+	@Description("The number of deliveries this host has received before")
+	long   sequence;
+
+    } // class FrameReceived
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /** A frame failing its check, emitted by <code>DataLinkLayer</code>. */
+    @Name("datalink.ChecksumFailed")
+    @Label("Checksum Failed")
+    @Category({ "Data Link", "Receiving" })
+    @Description("A received frame whose error detection failed")
+    @StackTrace(false)
+    public static final class ChecksumFailed extends Event {
+
+	@Label("Layer Type")
+	String layerType;
+
+	@Label("Frame Length")
+	@DataAmount
+	int    frameLength;
+
+	@Label("Sequence")
+	@Description("The number of failures in this layer before")
+	long   sequence;
+
+    } // class ChecksumFailed
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /** A partial frame abandoned, emitted by <code>DataLinkLayer</code>. */
+    @Name("datalink.Resync")
+    @Label("Resync")
+    @Category({ "Data Link", "Receiving" })
+    @Description("A partial frame abandoned for a new start tag, or for growing too long")
+    @StackTrace(false)
+    public static final class Resync extends Event {
+
+	@Label("Layer Type")
+	String layerType;
+
+	@Label("Frame Length")
+	@Description("The bytes of the partial frame discarded")
+	@DataAmount
+	int    frameLength;
+
+	@Label("Sequence")
+	@Description("The number of resynchronizations in this layer before")
+	long   sequence;
+
+    } // class Resync
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /** Noise on the medium, emitted by <code>Medium</code>. */
+    @Name("datalink.BitFlipped")
+    @Label("Bit Flipped")
+    @Category({ "Data Link", "Medium" })
+    @Description("Bits flipped by the medium in one packed word")
+    @Enabled(false)
+    @StackTrace(false)
+    public static final class BitFlipped extends Event {
+
+	@Label("Layer Type")
+	@Description("The type of the sending layer")
+	String layerType;
+
+	@Label("Flipped Bits")
+	int    flippedBits;
+
+	@Label("Sequence")
+	@Description("The position on the medium of the word's first bit")
+	long   sequence;
+
+    } // class BitFlipped
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Record that a host received a frame's data.
+     */
+    public static void frameReceived (String layerType, int frameLength, long sequence) {
+
+	FrameReceived event = new FrameReceived();
+	if (event.isEnabled()) {
+	    event.layerType   = layerType;
+	    event.frameLength = frameLength;
+	    event.sequence    = sequence;
+	    event.commit();
+	}
+
+    } // frameReceived ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Record that a received frame failed its check.
+     */
+    public static void checksumFailed (String layerType, int frameLength, long sequence) {
+
+	ChecksumFailed event = new ChecksumFailed();
+	if (event.isEnabled()) {
+	    event.layerType   = layerType;
+	    event.frameLength = frameLength;
+	    event.sequence    = sequence;
+	    event.commit();
+	}
+
+    } // checksumFailed ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Record that a partial frame was abandoned.
+     */
+    public static void resync (String layerType, int frameLength, long sequence) {
+
+	Resync event = new Resync();
+	if (event.isEnabled()) {
+	    event.layerType   = layerType;
+	    event.frameLength = frameLength;
+	    event.sequence    = sequence;
+	    event.commit();
+	}
+
+    } // resync ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Record that the medium flipped bits.
+     */
+    public static void bitFlipped (String layerType, int flippedBits, long sequence) {
+
+	BitFlipped event = new BitFlipped();
+	if (event.isEnabled()) {
+	    event.layerType   = layerType;
+	    event.flippedBits = flippedBits;
+	    event.sequence    = sequence;
+	    event.commit();
+	}
+
+    } // bitFlipped ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    private LinkEvents () {
+    }
+    // =========================================================================
+
+
+
+// =============================================================================
+} // class LinkEvents
+// =============================================================================
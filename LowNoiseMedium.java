@@ -1,8 +1,10 @@
 // =============================================================================
 // IMPORTS
 
-import java.util.Iterator;
-import java.util.Random;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
 // =============================================================================
 
 
@@ -11,6 +13,11 @@ import java.util.Random;
 /**
  * A medium that occassionally flips a bit.
  *
+ * The noise is drawn from the linear congruential generator of
+ * <code>java.util.Random</code>, kept here in a plain field so that its state
+ * can be checkpointed and restored; a seed yields the same flips as it did
+ * with <code>Random</code>.
+ *
  * @file   LowNoiseMedium.java
  * @author Scott F. Kaplan (sfkaplan@cs.amherst.edu)
  * @date   September 2018, original September 2004
@@ -27,49 +34,170 @@ public class LowNoiseMedium extends Medium {
 
 
     public LowNoiseMedium () {
-	random = new Random(5);
+	setSeed(DEFAULT_SEED);
     }
 
 
+
+    // =========================================================================
+    /**
+     * Set the probability with which each delivered bit is flipped.
+     *
+     * @param errorProbability The probability, from 0 to 1.
+     */
+    public void setErrorProbability (double errorProbability) {
+
+	if (errorProbability < 0 || errorProbability > 1) {
+	    throw new RuntimeException("Invalid error probability " +
+				       errorProbability);
+	}
+	this.errorProbability = errorProbability;
+
+    } // setErrorProbability ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Reseed the source of noise, so that runs are reproducible.
+     *
+     * @param seed The new seed.
+     */
+    public void setSeed (long seed) {
+
+	noise = (seed ^ MULTIPLIER) & NOISE_MASK;
+
+    } // setSeed ()
+    // =========================================================================
+
+
     // =========================================================================
     /**
-     * Send a bit from one client to the other clients.  With some probability,
-     * flip a bit.
+     * Send up to 64 bits from one client to the other clients.  With some
+     * probability, flip each bit.  The flips are gathered into an XOR mask for
+     * each receiver, and the noise is drawn in the same order as when bits
+     * were sent singly, so that a seed yields the same errors as before.
      *
-     * @param sender The client physical layer sending the bit.
-     * @param bit The value to be sent, where <code>false</code> sends a
-     *            <code>0</code> bit, and <code>true</code> sends a
-     *            <code>1</code> bit.
+     * @param sender The client physical layer sending the bits.
+     * @param bits   The word holding the bits, the earliest most significant.
+     * @param count  The number of bits, from 1 to 64.
      * @throws RuntimeException if the sender is not registered with this
      *                          medium.
      */
-    public void transmit (PhysicalLayer sender, boolean bit) {
+    public void transmit (PhysicalLayer sender, long bits, int count) {
 
 	// Only registered clients may send.
 	if (!clients.contains(sender)) {
 	    throw new RuntimeException("Unregistered sender on the medium");
 	}
+
+	// Each flip drawn for a client affects it and the clients after it.
+	PhysicalLayer[] receivers = members;
+	if (masks.length < receivers.length) {
+	    masks = new long[receivers.length];
+	} else {
+	    Arrays.fill(masks, 0, receivers.length, 0L);
+	}
+	for (int b = count - 1; b >= 0; b -= 1) {
+	    long flip = 0;
+	    for (int i = 0; i < receivers.length; i += 1) {
+		if (nextFloat() < errorProbability) {
+		    if (debug) {
+			System.out.println("LowNoiseMedium.transmit(): Flipped bit!");
+		    }
+		    flip ^= 1L << b;
+		}
+		masks[i] |= flip;
+	    }
+	}
 	
-	// Deliver the bit to each client that is not the sender.
-	Iterator<PhysicalLayer> clientIterator = clients.iterator();
-	while (clientIterator.hasNext()) {
-	    
-	    // With low probability, flip this bit.
-	    if (random.nextFloat() < errorProbability) {
-		if (debug) {
-		    System.out.println("LowNoiseMedium.transmit(): Flipped bit!");
+	// Deliver the bits to each client that is not the sender.  Any capture
+	// records the bits as delivered to the first receiver.
+	boolean recorded = (capture == null);
+	long    offset   = bitsCarried;
+	bitsCarried     += count;
+	for (int i = 0; i < receivers.length; i += 1) {
+	    if (receivers[i] != sender) {
+		if (masks[i] != 0) {
+		    flipped(sender, masks[i], offset);
+		}
+		receivers[i].receive(bits ^ masks[i], count);
+		if (!recorded) {
+		    record(sender, bits, count, masks[i]);
+		    recorded = true;
 		}
-		bit = !bit;
 	    }
+	}
+
+    } // transmit ()
+    // =========================================================================
+
 
-	    PhysicalLayer receiver = clientIterator.next();
-	    if (receiver != sender) {
-		receiver.receive(bit);
-	    }
 
+    // =========================================================================
+    /** Write the state of the source of noise, after the medium's. */
+    protected void writeState (DataOutputStream out) throws IOException {
+
+	super.writeState(out);
+	out.writeLong(noise);
+
+    } // writeState ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    protected void readState (DataInputStream in) throws IOException {
+
+	super.readState(in);
+	noise = in.readLong() & NOISE_MASK;
+
+    } // readState ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // PRIVATE METHODS
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Step the generator, as <code>Random.nextFloat()</code> does.
+     *
+     * @return the next value, uniform in [0, 1).
+     */
+    private float nextFloat () {
+
+	noise = (noise * MULTIPLIER + ADDEND) & NOISE_MASK;
+	return (int)(noise >>> (NOISE_BITS - FLOAT_BITS)) / (float)(1 << FLOAT_BITS);
+
+    } // nextFloat ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Provides this medium under the name <code>LowNoise</code>.
+     */
+    public static class Provider implements MediumProvider {
+
+	public String name () {
+	    return "LowNoise";
 	}
 
-    } // transmit ()
+	public Medium create (MediumConfig config) {
+	    LowNoiseMedium medium = new LowNoiseMedium();
+	    medium.setErrorProbability(config.getErrorProbability());
+	    medium.setSeed(config.getSeed());
+	    return medium;
+	}
+
+    } // class Provider
     // =========================================================================
 
 
@@ -77,10 +205,29 @@ public class LowNoiseMedium extends Medium {
     // =========================================================================
     // DATA MEMBERS
 
-    private Random random;
+    /** The state of the generator of noise. */
+    private long noise;
     
     // The probablity that a bit will flip.
-    private static final double errorProbability = 0.001;
+    private double errorProbability = DEFAULT_ERROR_PROBABILITY;
+
+    /** The flips for each receiver, reused as the medium is held to send. */
+    private long[] masks = new long[0];
+
+    /** The default probability that a bit will flip. */
+    public static final double DEFAULT_ERROR_PROBABILITY = 0.001;
+
+    /** The default seed for the source of noise. */
+    public static final long   DEFAULT_SEED              = 5;
+
+    // The generator's multiplier, addend, and width of state, as in Random.
+    private static final long  MULTIPLIER = 0x5DEECE66DL;
+    private static final long  ADDEND     = 0xBL;
+    private static final int   NOISE_BITS = 48;
+    private static final long  NOISE_MASK = (1L << NOISE_BITS) - 1;
+
+    /** The number of random bits in each float drawn. */
+    private static final int   FLOAT_BITS = 24;
     // =========================================================================
 
 
@@ -0,0 +1,298 @@
+// =============================================================================
+// IMPORTS
+
+import java.util.Arrays;
+// =============================================================================
+
+
+
+// =============================================================================
+/**
+ * A block codec in the LZ4 block format.  Each sequence is a token (literal
+ * length and match length, four bits each), any extra literal length bytes,
+ * the literals, a two-byte little-endian match offset, and any extra match
+ * length bytes.  The last sequence holds only literals.  Matches are found
+ * greedily through a hash table of four-byte prefixes.
+ *
+ * @file   Lz4Codec.java
+ * @date   October 2026
+ */
+public class Lz4Codec {
+// =============================================================================
+
+
+
+    // =========================================================================
+    // PUBLIC METHODS
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * The constructor.  The codec holds its hash table, so an instance must
+     * not be shared by concurrent compressions.
+     */
+    public Lz4Codec () {
+
+	table = new int[1 << HASH_BITS];
+
+    } // Lz4Codec ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @param  length The length of the data to compress.
+     * @return the largest possible length of its compressed form.
+     */
+    public static int maxCompressedLength (int length) {
+
+	return length + length / 255 + 16;
+
+    } // maxCompressedLength ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Compress a range of bytes.
+     *
+     * @param  src       The source of the data.
+     * @param  srcOffset The start of the data in the source.
+     * @param  length    The length of the data.
+     * @param  dst       The destination, with room for at least
+     *                   <code>maxCompressedLength(length)</code> bytes.
+     * @param  dstOffset The position at which to write.
+     * @return the number of bytes written.
+     */
+    public int compress (byte[] src, int srcOffset, int length, byte[] dst, int dstOffset) {
+
+	Arrays.fill(table, -1);
+	int end        = srcOffset + length;
+	int matchLimit = end - LAST_LITERALS;
+	int startLimit = end - MIN_MATCH_DISTANCE_FROM_END;
+	int anchor     = srcOffset;
+	int in         = srcOffset;
+	int out        = dstOffset;
+
+	while (in < startLimit) {
+
+	    // Look up the last position with the same four-byte prefix.
+	    int sequence  = readInt(src, in);
+	    int hash      = (sequence * HASH_MULTIPLIER) >>> (32 - HASH_BITS);
+	    int reference = table[hash];
+	    table[hash]   = in;
+	    if (reference < 0 ||
+		in - reference > MAX_OFFSET ||
+		readInt(src, reference) != sequence) {
+		in += 1;
+		continue;
+	    }
+
+	    // Extend the match backwards over pending literals, then forwards.
+	    while (in > anchor && reference > srcOffset && src[in - 1] == src[reference - 1]) {
+		in        -= 1;
+		reference -= 1;
+	    }
+	    int matchLength = MIN_MATCH;
+	    while (in + matchLength < matchLimit &&
+		   src[in + matchLength] == src[reference + matchLength]) {
+		matchLength += 1;
+	    }
+
+	    out     = writeSequence(src, anchor, in - anchor, in - reference, matchLength, dst, out);
+	    in     += matchLength;
+	    anchor  = in;
+
+	}
+
+	// The rest are literals.
+	out = writeSequence(src, anchor, end - anchor, 0, 0, dst, out);
+	return out - dstOffset;
+
+    } // compress ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Decompress a block.
+     *
+     * @param  src       The source of the compressed block.
+     * @param  srcOffset The start of the block in the source.
+     * @param  length    The length of the block.
+     * @param  dst       The destination, with room for the decompressed data.
+     * @param  dstOffset The position at which to write.
+     * @param  rawLength The expected length of the decompressed data.
+     * @throws RuntimeException if the block is malformed, or does not
+     *                          decompress to exactly <code>rawLength</code>
+     *                          bytes.
+     */
+    public static void decompress (byte[] src, int srcOffset, int length,
+				   byte[] dst, int dstOffset, int rawLength) {
+
+	int in     = srcOffset;
+	int end    = srcOffset + length;
+	int out    = dstOffset;
+	int outEnd = dstOffset + rawLength;
+	try {
+	    while (true) {
+
+		// Copy the literals.
+		int token         = src[in++] & 0xff;
+		int literalLength = token >>> 4;
+		if (literalLength == 15) {
+		    int extra;
+		    do {
+			extra          = src[in++] & 0xff;
+			literalLength += extra;
+		    } while (extra == 255);
+		}
+		if (literalLength > end - in || literalLength > outEnd - out) {
+		    throw new RuntimeException("Malformed LZ4 block");
+		}
+		System.arraycopy(src, in, dst, out, literalLength);
+		in  += literalLength;
+		out += literalLength;
+		if (in == end) {
+		    break;
+		}
+
+		// Copy the match, which may overlap its own output.
+		int offset = (src[in] & 0xff) | ((src[in + 1] & 0xff) << 8);
+		in += 2;
+		int matchLength = token & 0x0f;
+		if (matchLength == 15) {
+		    int extra;
+		    do {
+			extra        = src[in++] & 0xff;
+			matchLength += extra;
+		    } while (extra == 255);
+		}
+		matchLength += MIN_MATCH;
+		if (offset == 0 || offset > out - dstOffset || matchLength > outEnd - out) {
+		    throw new RuntimeException("Malformed LZ4 block");
+		}
+		int from = out - offset;
+		if (offset >= matchLength) {
+		    System.arraycopy(dst, from, dst, out, matchLength);
+		    out += matchLength;
+		} else {
+		    for (int i = 0; i < matchLength; i += 1) {
+			dst[out++] = dst[from++];
+		    }
+		}
+
+	    }
+	} catch (ArrayIndexOutOfBoundsException e) {
+	    throw new RuntimeException("Truncated LZ4 block");
+	}
+	if (out != outEnd) {
+	    throw new RuntimeException("LZ4 block has the wrong length");
+	}
+
+    } // decompress ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // PRIVATE METHODS
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Write one sequence: literals followed, if the match length is not zero,
+     * by a match.
+     *
+     * @return the position following the sequence.
+     */
+    private static int writeSequence (byte[] src, int literals, int literalLength,
+				      int offset, int matchLength,
+				      byte[] dst, int out) {
+
+	int matchCode = (matchLength == 0) ? 0 : matchLength - MIN_MATCH;
+	dst[out++] = (byte)((Math.min(literalLength, 15) << 4) | Math.min(matchCode, 15));
+	if (literalLength >= 15) {
+	    out = writeLength(literalLength - 15, dst, out);
+	}
+	System.arraycopy(src, literals, dst, out, literalLength);
+	out += literalLength;
+	if (matchLength != 0) {
+	    dst[out++] = (byte)offset;
+	    dst[out++] = (byte)(offset >>> 8);
+	    if (matchCode >= 15) {
+		out = writeLength(matchCode - 15, dst, out);
+	    }
+	}
+	return out;
+
+    } // writeSequence ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    private static int writeLength (int length, byte[] dst, int out) {
+
+	while (length >= 255) {
+	    dst[out++] = (byte)255;
+	    length    -= 255;
+	}
+	dst[out++] = (byte)length;
+	return out;
+
+    } // writeLength ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    private static int readInt (byte[] src, int i) {
+
+	return (src[i] & 0xff)              |
+	       ((src[i + 1] & 0xff) << 8)   |
+	       ((src[i + 2] & 0xff) << 16)  |
+	       ((src[i + 3] & 0xff) << 24);
+
+    } // readInt ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // DATA MEMBERS
+
+    /** The last position at which each hashed four-byte prefix was seen. */
+    private final int[]      table;
+
+    /** The number of bits in a hash, and so the size of the table. */
+    private static final int HASH_BITS       = 12;
+
+    /** The multiplier of the multiplicative hash. */
+    private static final int HASH_MULTIPLIER = -1640531535;
+
+    /** The shortest match. */
+    private static final int MIN_MATCH       = 4;
+
+    /** The farthest that a match may reach back. */
+    private static final int MAX_OFFSET      = 65535;
+
+    /** The number of bytes at the end of a block that must be literals. */
+    private static final int LAST_LITERALS   = 5;
+
+    /** The closest to the end of a block that a match may start. */
+    private static final int MIN_MATCH_DISTANCE_FROM_END = 12;
+    // =========================================================================
+
+
+
+// =============================================================================
+} // class Lz4Codec
+// =============================================================================
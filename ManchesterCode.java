@@ -0,0 +1,106 @@
+// =============================================================================
+/**
+ * Manchester coding, as in 10BASE-T Ethernet: each data bit is sent as a
+ * transition in the middle of its bit time, a <code>0</code> as high then low
+ * (<code>10</code>) and a <code>1</code> as low then high (<code>01</code>).
+ * Every bit time holds a transition, for clock recovery, and every symbol is
+ * balanced, at the cost of twice the bandwidth.  A bit time without a
+ * transition (<code>00</code> or <code>11</code>) is a code violation.
+ *
+ * A nibble is coded at a time, each way by one lookup.
+ *
+ * @file   ManchesterCode.java
+ * @date   October 2026
+ */
+public class ManchesterCode implements LineCode {
+// =============================================================================
+
+
+
+    // =========================================================================
+    public int dataBits () {
+
+	return 4;
+
+    } // dataBits ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    public int symbolBits () {
+
+	return 8;
+
+    } // symbolBits ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    public int start () {
+
+	return 0;
+
+    } // start ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    public int encode (int state, int data) {
+
+	return encodings[data];
+
+    } // encode ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    public int decode (int state, int symbol) {
+
+	return decodings[symbol];
+
+    } // decode ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // DATA MEMBERS
+
+    /** The symbol of each nibble. */
+    private static final int[] encodings = new int[1 << 4];
+
+    /** The nibble of each symbol, flagged if any bit time lacks a transition. */
+    private static final int[] decodings = new int[1 << 8];
+
+    static {
+	for (int nibble = 0; nibble < encodings.length; nibble += 1) {
+	    int symbol = 0;
+	    for (int bit = 3; bit >= 0; bit -= 1) {
+		symbol = (symbol << 2) | (((nibble >>> bit) & 1) == 1 ? 0b01 : 0b10);
+	    }
+	    encodings[nibble] = symbol;
+	}
+	for (int symbol = 0; symbol < decodings.length; symbol += 1) {
+	    int nibble = 0;
+	    int result = 0;
+	    for (int half = 3; half >= 0; half -= 1) {
+		int pair = (symbol >>> (2 * half)) & 0b11;
+		nibble = (nibble << 1) | (pair == 0b01 ? 1 : 0);
+		if (pair == 0b00 || pair == 0b11) {
+		    result = VIOLATION;
+		}
+	    }
+	    decodings[symbol] = result | nibble;
+	}
+    }
+    // =========================================================================
+
+
+
+// =============================================================================
+} // class ManchesterCode
+// =============================================================================
@@ -1,18 +1,21 @@
 // =============================================================================
 // IMPORTS
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.Collection;
-import java.util.LinkedList;
-import java.util.Queue;
-import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
 // =============================================================================
 
 
 
 // =============================================================================
 /**
- * A medium carries bits from one physical layer to others.
+ * A medium carries bits from one physical layer to others.  Hosts running on
+ * their own threads take turns on the medium by seizing it for the duration of
+ * each transmission.
  *
  * @file   Medium.java
  * @author Scott F. Kaplan (sfkaplan@cs.amherst.edu)
@@ -30,41 +33,30 @@ public abstract class Medium {
 
 
     // =========================================================================
-    // Create the requested medium type and return it.
+    // Create the requested medium type, with the default configuration, and
+    // return it.
     public static Medium create (String type) {
 
-	// Look up the class by name.
-	String   className   = type + "Medium";
-	Class<?> mediumClass = null;
-	try {
-	    mediumClass = Class.forName(className);
-	} catch (ClassNotFoundException e) {
-	    throw new RuntimeException("Unknown medium subclass " + className);
-	}
+	return create(type, MediumConfig.DEFAULT);
+
+    } // create ()
+    // =========================================================================
+
 
-	// Make a className object, and then see if it really is a
-	// Medium subclass.
-	Object o = null;
-	try {
-	    o = mediumClass.getDeclaredConstructor().newInstance();
-	} catch (InstantiationException e) {
-	    throw new RuntimeException("Could not instantiate " + className);
-	} catch (IllegalAccessException e) {
-	    throw new RuntimeException("Could not access " + className);
-	} catch (NoSuchMethodException e) {
-	    throw new RuntimeException("Could not call constructor on " + className);
-	} catch (InvocationTargetException e) {
-	    throw new RuntimeException("Could not invoke target on " + className);
-	}
-	Medium medium = null;
-	try {
-	    medium = (Medium)o;
-	} catch (ClassCastException e) {
-	    throw new RuntimeException(className +
-				       " is not a subclass of Medium");
-	}
 
-	return medium;
+    // =========================================================================
+    /**
+     * Create the requested medium type and return it.  The type is looked up
+     * in the <code>ProviderRegistry</code>.
+     *
+     * @param  type   The name of the type of which to create an instance.
+     * @param  config The configuration of the new medium.
+     * @return the newly created medium.
+     * @throws RuntimeException if the given type is not a valid subclass.
+     */
+    public static Medium create (String type, MediumConfig config) {
+
+	return ProviderRegistry.mediumProvider(type).create(config);
 
     } // create ()
     // =========================================================================
@@ -74,7 +66,8 @@ public abstract class Medium {
     // =========================================================================
     public Medium () {
 
-	clients = new LinkedList<PhysicalLayer>();
+	clients = new CopyOnWriteArrayList<PhysicalLayer>();
+	channel = new ReentrantLock();
 
     } // Medium ()
     // =========================================================================
@@ -88,11 +81,12 @@ public abstract class Medium {
      *
      * @param client The physical layer of a stack to connect to this medium.
      */
-    public void register (PhysicalLayer client) {
+    public synchronized void register (PhysicalLayer client) {
 
 	// Only add this client if it is not already registered.
 	if (!clients.contains(client)) {
 	    clients.add(client);
+	    members = clients.toArray(new PhysicalLayer[0]);
 	}
 
     } // register ()
@@ -101,8 +95,172 @@ public abstract class Medium {
 
 
     // =========================================================================
-    // Send a bit from one physical layer to others.
-    abstract public void transmit (PhysicalLayer sender, boolean bit);
+    /**
+     * Send a single bit from one physical layer to others, as a packed word of
+     * one bit.
+     *
+     * @param sender The client physical layer sending the bit.
+     * @param bit    The value to be sent.
+     */
+    public void transmit (PhysicalLayer sender, boolean bit) {
+
+	transmit(sender, bit ? 1L : 0L, 1);
+
+    } // transmit ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Send up to 64 bits from one physical layer to others.  The bits are the
+     * low-order <code>count</code> bits of the word, the earliest most
+     * significant; higher bits are ignored.
+     *
+     * @param sender The client physical layer sending the bits.
+     * @param bits   The word holding the bits.
+     * @param count  The number of bits, from 1 to 64.
+     * @throws RuntimeException if the sender is not registered with this
+     *                          medium.
+     */
+    abstract public void transmit (PhysicalLayer sender, long bits, int count);
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Take exclusive use of the medium, waiting (parked) while another client
+     * is transmitting.  A client may seize the medium more than once, and must
+     * release it as many times.  Each transmission starts every line code on
+     * the medium afresh, since the clients may take turns sending.
+     */
+    public void seize () {
+
+	channel.lock();
+	if (channel.getHoldCount() == 1) {
+	    for (PhysicalLayer member : members) {
+		member.restartLineCode();
+	    }
+	}
+
+    } // seize ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Give up exclusive use of the medium.
+     */
+    public void release () {
+
+	channel.unlock();
+
+    } // release ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Record every bit that crosses this medium into the given capture.
+     *
+     * @param capture The capture to record into, or <code>null</code> to stop
+     *                recording.
+     */
+    public void setCapture (MediumCapture capture) {
+
+	this.capture = capture;
+
+    } // setCapture ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @return the number of bits sent across this medium.  Read without
+     *         holding the medium, so possibly slightly stale.
+     */
+    public long getBitsCarried () {
+
+	return bitsCarried;
+
+    } // getBitsCarried ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Write the state that a checkpoint must carry for this medium to carry
+     * on as it would have.  Subclasses with state of their own, such as a
+     * source of noise, must also write it, after this medium's.
+     *
+     * @param  out The stream to write to.
+     * @throws IOException if the state cannot be written.
+     */
+    protected void writeState (DataOutputStream out) throws IOException {
+
+	out.writeLong(bitsCarried);
+
+    } // writeState ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Restore the state written by <code>writeState()</code>.
+     *
+     * @param  in The stream to read from.
+     * @throws IOException if the state cannot be read.
+     */
+    protected void readState (DataInputStream in) throws IOException {
+
+	bitsCarried = in.readLong();
+
+    } // readState ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Record for the flight recorder that bits were flipped on delivery.
+     *
+     * @param sender  The physical layer that sent the bits.
+     * @param flipped The bits that were flipped.
+     * @param offset  The position on this medium of the first bit sent.
+     */
+    protected void flipped (PhysicalLayer sender, long flipped, long offset) {
+
+	DataLinkLayer layer = sender.getClient();
+	LinkEvents.bitFlipped(layer == null ? "" : layer.getTypeName(),
+			      Long.bitCount(flipped),
+			      offset);
+
+    } // flipped ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Record packed bits into the capture, if any, as delivered to the first
+     * receiver.
+     *
+     * @param sender  The physical layer that sent the bits.
+     * @param bits    The bits as sent.
+     * @param count   The number of bits.
+     * @param flipped The bits that the medium flipped on delivery.
+     */
+    protected void record (PhysicalLayer sender, long bits, int count, long flipped) {
+
+	capture.record(sender, bits, count, flipped);
+
+    } // record ()
     // =========================================================================
 
 
@@ -113,6 +271,18 @@ public abstract class Medium {
     /** The physical layer clients connected to the medium. */
     protected Collection<PhysicalLayer> clients;    
 
+    /** The clients, as an array for transmissions to iterate cheaply. */
+    protected volatile PhysicalLayer[] members = new PhysicalLayer[0];
+
+    /** The number of bits sent.  Updated holding the medium. */
+    protected volatile long bitsCarried = 0;
+
+    /** Held by the client currently transmitting. */
+    private final ReentrantLock channel;
+
+    /** The capture recording this medium's traffic, if any. */
+    protected MediumCapture capture = null;
+
     /** Whether to emit debugging information. */
     protected static final boolean debug = false;
     // =========================================================================
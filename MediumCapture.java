@@ -0,0 +1,305 @@
+// =============================================================================
+// IMPORTS
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+// =============================================================================
+
+
+
+// =============================================================================
+/**
+ * Records the bits that cross a medium into a compact, append-only binary
+ * file.  Bits are packed into blocks, each tagged with its sender, the time at
+ * which its first bit was sent, and the positions of any bits that the medium
+ * flipped on delivery.  A capture can be read back with a
+ * <code>CaptureReader</code>.
+ *
+ * The file begins with a header of the magic number, a version byte, and the
+ * time in milliseconds at which the capture was created.  Each block follows
+ * as:
+ * <pre>
+ *   byte    BLOCK_TAG
+ *   varlong nanoseconds since the capture was created
+ *   varint  sender index (in order of each sender's first bit)
+ *   varint  bit count
+ *   varint  flip count
+ *   varint  flip positions, each as a delta from the previous one
+ *   byte[]  the sent bits, most significant first, padded to a whole byte
+ * </pre>
+ *
+ * @file   MediumCapture.java
+ * @date   October 2026
+ */
+public class MediumCapture {
+// =============================================================================
+
+
+
+    // =========================================================================
+    // PUBLIC METHODS
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Open a capture file, creating it if needed.  Blocks are appended to any
+     * existing capture.
+     *
+     * @param path The pathname of the capture file.
+     * @throws RuntimeException if the file cannot be opened, or if it exists
+     *                          but is not a capture.
+     */
+    public MediumCapture (String path) {
+
+	File    file     = new File(path);
+	boolean existing = file.length() > 0;
+	long    created  = System.currentTimeMillis();
+	try {
+	    if (existing) {
+		created = CaptureReader.readCreationTime(path);
+	    }
+	    output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true),
+								   1 << 16));
+	    if (!existing) {
+		output.writeInt(MAGIC);
+		output.writeByte(VERSION);
+		output.writeLong(created);
+	    }
+	} catch (IOException e) {
+	    throw new RuntimeException("Could not open capture " + path);
+	}
+
+	// Timestamps are measured from the creation of the capture.
+	epochNanos = System.nanoTime() -
+	             (System.currentTimeMillis() - created) * 1000000L;
+	senders    = new IdentityHashMap<PhysicalLayer, Integer>();
+	bits       = new byte[BLOCK_BYTES];
+	flips      = new int[64];
+
+    } // MediumCapture ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Record a bit that crossed the medium.
+     *
+     * @param sender  The physical layer that sent the bit.
+     * @param bit     The bit as sent.
+     * @param flipped Whether the medium flipped the bit on delivery.
+     */
+    public void record (PhysicalLayer sender, boolean bit, boolean flipped) {
+
+	record(sender, bit ? 1L : 0L, 1, flipped ? 1L : 0L);
+
+    } // record ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Record up to 64 bits that crossed the medium, packing them a byte at a
+     * time.
+     *
+     * @param sender  The physical layer that sent the bits.
+     * @param word    The word holding the bits as sent, the earliest most
+     *                significant.
+     * @param count   The number of bits, from 1 to 64.
+     * @param flipped The bits that the medium flipped on delivery.
+     */
+    public synchronized void record (PhysicalLayer sender, long word, int count, long flipped) {
+
+	// Look up the sender's index, unless it sent the last bits too.
+	if (sender != lastSender) {
+	    Integer index = senders.get(sender);
+	    if (index == null) {
+		index = senders.size();
+		senders.put(sender, index);
+	    }
+	    lastSender = sender;
+	    lastIndex  = index;
+	}
+
+	while (count > 0) {
+
+	    // Start a new block for a new sender or once the current one is full.
+	    if (bitCount > 0 && (lastIndex != blockSender || bitCount == BLOCK_BYTES * 8)) {
+		writeBlock();
+	    }
+	    if (bitCount == 0) {
+		blockSender = lastIndex;
+		blockTime   = System.nanoTime() - epochNanos;
+	    }
+
+	    // Take as many of the earliest bits as fit in the block.
+	    int  taken = Math.min(count, BLOCK_BYTES * 8 - bitCount);
+	    long mask  = (taken == Long.SIZE) ? -1L : (1L << taken) - 1;
+	    count     -= taken;
+	    long part  = (word >>> count) & mask;
+	    long flip  = (flipped >>> count) & mask;
+
+	    // Note the position of each flipped bit, the earliest first.
+	    while (flip != 0) {
+		int high = Long.SIZE - 1 - Long.numberOfLeadingZeros(flip);
+		if (flipCount == flips.length) {
+		    flips = Arrays.copyOf(flips, flips.length * 2);
+		}
+		flips[flipCount++] = bitCount + taken - 1 - high;
+		flip &= ~(1L << high);
+	    }
+
+	    // Pack the bits into the free part of each byte in turn.
+	    int remaining = taken;
+	    while (remaining > 0) {
+		int free   = 8 - (bitCount & 7);
+		int n      = Math.min(free, remaining);
+		remaining -= n;
+		int chunk  = (int)(part >>> remaining) & ((1 << n) - 1);
+		bits[bitCount >>> 3] |= (byte)(chunk << (free - n));
+		bitCount  += n;
+	    }
+
+	}
+
+    } // record ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Write any partial block and close the capture file.
+     */
+    public synchronized void close () {
+
+	try {
+	    if (bitCount > 0) {
+		writeBlock();
+	    }
+	    output.close();
+	} catch (IOException e) {
+	    throw new RuntimeException("Could not close capture");
+	}
+
+    } // close ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // PRIVATE METHODS
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Append the current block to the file and start an empty one.
+     */
+    private void writeBlock () {
+
+	try {
+	    output.writeByte(BLOCK_TAG);
+	    writeVarLong(blockTime);
+	    writeVarLong(blockSender);
+	    writeVarLong(bitCount);
+	    writeVarLong(flipCount);
+	    int previous = 0;
+	    for (int i = 0; i < flipCount; i += 1) {
+		writeVarLong(flips[i] - previous);
+		previous = flips[i];
+	    }
+	    int length = (bitCount + 7) >>> 3;
+	    output.write(bits, 0, length);
+	    Arrays.fill(bits, 0, length, (byte)0);
+	} catch (IOException e) {
+	    throw new RuntimeException("Could not write capture block");
+	}
+	bitCount  = 0;
+	flipCount = 0;
+
+    } // writeBlock ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Write a non-negative value in seven-bit groups, least significant first,
+     * with the high bit of each byte set if more groups follow.
+     */
+    private void writeVarLong (long value) throws IOException {
+
+	while ((value & ~0x7fL) != 0) {
+	    output.writeByte((int)((value & 0x7f) | 0x80));
+	    value >>>= 7;
+	}
+	output.writeByte((int)value);
+
+    } // writeVarLong ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // DATA MEMBERS
+
+    /** The capture file. */
+    private final DataOutputStream output;
+
+    /** The value of <code>System.nanoTime()</code> when the capture was created. */
+    private final long             epochNanos;
+
+    /** The index of each sender, assigned in order of first appearance. */
+    private final Map<PhysicalLayer, Integer> senders;
+
+    /** The packed bits of the current block. */
+    private final byte[]           bits;
+
+    /** The number of bits in the current block. */
+    private int                    bitCount  = 0;
+
+    /** The positions within the current block of flipped bits. */
+    private int[]                  flips;
+
+    /** The number of flipped bits in the current block. */
+    private int                    flipCount = 0;
+
+    /** The sender of the current block. */
+    private int                    blockSender;
+
+    /** The sender of the last bits recorded, and its index. */
+    private PhysicalLayer          lastSender;
+    private int                    lastIndex;
+
+    /** The time at which the first bit of the current block was sent. */
+    private long                   blockTime;
+
+    /** The marker at the start of a capture file. */
+    public static final int        MAGIC       = 0x444c4c43; // "DLLC"
+
+    /** The version of the capture format. */
+    public static final int        VERSION     = 1;
+
+    /** The marker at the start of each block. */
+    public static final int        BLOCK_TAG   = 'B';
+
+    /** The largest number of packed bytes in a block. */
+    public static final int        BLOCK_BYTES = 4096;
+    // =========================================================================
+
+
+
+// =============================================================================
+} // class MediumCapture
+// =============================================================================
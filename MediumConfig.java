@@ -0,0 +1,122 @@
+// =============================================================================
+/**
+ * The settings of a medium.  A configuration is immutable, so one instance may
+ * be shared by any number of media; each <code>with</code> method returns a
+ * modified copy.  Media without noise ignore the noise settings.
+ *
+ * @file   MediumConfig.java
+ * @date   October 2026
+ */
+public final class MediumConfig {
+// =============================================================================
+
+
+
+    // =========================================================================
+    // PUBLIC METHODS
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @param  errorProbability The probability that a delivered bit is flipped.
+     * @return a copy of this configuration with the given setting.
+     */
+    public MediumConfig withErrorProbability (double errorProbability) {
+
+	if (errorProbability < 0 || errorProbability > 1) {
+	    throw new RuntimeException("Invalid error probability " +
+				       errorProbability);
+	}
+	MediumConfig copy = copy();
+	copy.errorProbability = errorProbability;
+	return copy;
+
+    } // withErrorProbability ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @param  seed The seed for the medium's noise.
+     * @return a copy of this configuration with the given setting.
+     */
+    public MediumConfig withSeed (long seed) {
+
+	MediumConfig copy = copy();
+	copy.seed = seed;
+	return copy;
+
+    } // withSeed ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /** @return the probability that a delivered bit is flipped. */
+    public double getErrorProbability () {
+
+	return errorProbability;
+
+    } // getErrorProbability ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /** @return the seed for the medium's noise. */
+    public long getSeed () {
+
+	return seed;
+
+    } // getSeed ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // PRIVATE METHODS
+    // =========================================================================
+
+
+
+    // =========================================================================
+    private MediumConfig () {
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    private MediumConfig copy () {
+
+	MediumConfig copy = new MediumConfig();
+	copy.errorProbability = errorProbability;
+	copy.seed             = seed;
+	return copy;
+
+    } // copy ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // DATA MEMBERS
+
+    /** The probability that a delivered bit is flipped. */
+    private double errorProbability = LowNoiseMedium.DEFAULT_ERROR_PROBABILITY;
+
+    /** The seed for the medium's noise. */
+    private long   seed             = LowNoiseMedium.DEFAULT_SEED;
+
+    /** The configuration with every setting at its default. */
+    public static final MediumConfig DEFAULT = new MediumConfig();
+    // =========================================================================
+
+
+
+// =============================================================================
+} // class MediumConfig
+// =============================================================================
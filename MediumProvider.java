@@ -0,0 +1,39 @@
+// =============================================================================
+/**
+ * Creates media of one type.  Providers are discovered with
+ * <code>java.util.ServiceLoader</code> from
+ * <code>META-INF/services/MediumProvider</code>, and are looked up by name.
+ *
+ * @file   MediumProvider.java
+ * @date   October 2026
+ */
+public interface MediumProvider {
+// =============================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @return the name by which this type is requested, such as
+     *         <code>LowNoise</code>.
+     */
+    public String name ();
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Create a new medium of this type.
+     *
+     * @param  config The configuration of the new medium.
+     * @return the new medium.
+     */
+    public Medium create (MediumConfig config);
+    // =========================================================================
+
+
+
+// =============================================================================
+} // interface MediumProvider
+// =============================================================================
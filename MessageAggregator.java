@@ -0,0 +1,333 @@
+// =============================================================================
+// IMPORTS
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+// =============================================================================
+
+
+
+// =============================================================================
+/**
+ * Packs many small messages into one send of a data link layer, in the manner
+ * of Nagle's algorithm, and splits them apart again on receipt.  Each message
+ * is preceded by its length as an unsigned varint.  The sender holds messages
+ * until either they fill a threshold number of bytes, or the first of them has
+ * waited for the flush delay, or the client flushes explicitly; the whole
+ * batch is then sent at once.
+ *
+ * The receiver treats the data it is given as one stream, and delivers each
+ * message once all of it has arrived, so a message may span frames.  A length
+ * beyond the largest message means that frames were lost, so everything
+ * buffered is discarded.
+ *
+ * @file   MessageAggregator.java
+ * @date   October 2026
+ */
+public class MessageAggregator {
+// =============================================================================
+
+
+
+    // =========================================================================
+    // PUBLIC METHODS
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * The constructor.
+     *
+     * @param layer            The layer through which batches are sent.
+     * @param fillThreshold    The number of buffered bytes that causes a
+     *                         flush.
+     * @param flushDelayMillis The longest that a message waits before it is
+     *                         flushed.
+     * @throws RuntimeException if either setting is invalid.
+     */
+    public MessageAggregator (DataLinkLayer layer, int fillThreshold, long flushDelayMillis) {
+
+	if (fillThreshold < 1) {
+	    throw new RuntimeException("Invalid aggregation threshold " + fillThreshold);
+	}
+	if (flushDelayMillis < 0) {
+	    throw new RuntimeException("Invalid aggregation delay " + flushDelayMillis);
+	}
+	this.layer            = layer;
+	this.fillThreshold    = fillThreshold;
+	this.flushDelayMillis = flushDelayMillis;
+	this.pending          = new byte[INITIAL_BUFFER_SIZE];
+	this.received         = new byte[INITIAL_BUFFER_SIZE];
+
+    } // MessageAggregator ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Buffer a message to be sent, flushing the batch if it has reached the
+     * threshold, and otherwise making sure that a flush is scheduled.
+     *
+     * @param message The message to send.
+     * @throws RuntimeException if the message is too large to be split apart
+     *                          on receipt.
+     */
+    public synchronized void add (byte[] message) {
+
+	if (message.length > MAX_MESSAGE_LENGTH) {
+	    throw new RuntimeException("Message of " + message.length +
+				       " bytes is too large to aggregate");
+	}
+	int needed = pendingLength + MAX_VARINT_LENGTH + message.length;
+	if (needed > pending.length) {
+	    pending = Arrays.copyOf(pending, Math.max(pending.length * 2, needed));
+	}
+	pendingLength = writeVarint(message.length, pending, pendingLength);
+	System.arraycopy(message, 0, pending, pendingLength, message.length);
+	pendingLength += message.length;
+	messagesSent  += 1;
+
+	if (pendingLength >= fillThreshold) {
+	    flush();
+	} else if (!flushScheduled) {
+	    flushScheduled = true;
+	    final long batch = batchesSent;
+	    timer.schedule(new Runnable() {
+		    public void run () {
+			flushBatch(batch);
+		    }
+		}, flushDelayMillis, TimeUnit.MILLISECONDS);
+	}
+
+    } // add ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Send whatever messages are buffered as one batch.
+     */
+    public synchronized void flush () {
+
+	if (pendingLength == 0) {
+	    return;
+	}
+	byte[] batch    = Arrays.copyOf(pending, pendingLength);
+	pendingLength   = 0;
+	batchesSent    += 1;
+	flushScheduled  = false;
+	layer.sendPayload(batch);
+
+    } // flush ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Split received data into the messages that it completes.  Called on one
+     * thread at a time, in the order in which the data was received.
+     *
+     * @param  data Data delivered by the layer.
+     * @return the messages completed by the data, in order.
+     */
+    public List<byte[]> split (byte[] data) {
+
+	// Append the data to whatever is buffered.
+	if (receivedLength + data.length > received.length) {
+	    received = Arrays.copyOf(received, Math.max(received.length * 2,
+							receivedLength + data.length));
+	}
+	System.arraycopy(data, 0, received, receivedLength, data.length);
+	receivedLength += data.length;
+
+	// Extract every complete message.
+	List<byte[]> messages = new ArrayList<byte[]>();
+	int          position = 0;
+	while (position < receivedLength) {
+	    long length = readVarint(position);
+	    if (length < 0) {
+		break;
+	    }
+	    if (length > MAX_MESSAGE_LENGTH) {
+		discardedBytes += receivedLength;
+		position        = receivedLength;
+		break;
+	    }
+	    int start = position + varintLength(length);
+	    if (length > receivedLength - start) {
+		break;
+	    }
+	    messages.add(Arrays.copyOfRange(received, start, start + (int)length));
+	    position = start + (int)length;
+	}
+	messagesDelivered += messages.size();
+
+	// Keep only what remains of a partial message.
+	System.arraycopy(received, position, received, 0, receivedLength - position);
+	receivedLength -= position;
+	return messages;
+
+    } // split ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /** @return a description of what this aggregator has done. */
+    public synchronized String summary () {
+
+	return String.format("aggregation: sent %d messages in %d batches" +
+			     " (%.2f per batch); delivered %d messages," +
+			     " discarded %d bytes",
+			     messagesSent,
+			     batchesSent,
+			     (double)messagesSent / Math.max(1, batchesSent),
+			     messagesDelivered,
+			     discardedBytes);
+
+    } // summary ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // PRIVATE METHODS
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Flush on the deadline of the given batch, unless that batch has already
+     * been sent.
+     */
+    private synchronized void flushBatch (long batch) {
+
+	if (batch == batchesSent) {
+	    flush();
+	}
+
+    } // flushBatch ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    private static int writeVarint (long value, byte[] dst, int out) {
+
+	while (value >= 0x80) {
+	    dst[out++] = (byte)(value | 0x80);
+	    value    >>>= 7;
+	}
+	dst[out++] = (byte)value;
+	return out;
+
+    } // writeVarint ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    private static int varintLength (long value) {
+
+	int length = 1;
+	while (value >= 0x80) {
+	    value  >>>= 7;
+	    length  += 1;
+	}
+	return length;
+
+    } // varintLength ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @return the varint received at the given position; <code>-1</code> if
+     *         it has not all arrived.
+     */
+    private long readVarint (int in) {
+
+	long value = 0;
+	for (int shift = 0; in < receivedLength && shift < 35; shift += 7) {
+	    int current = received[in++];
+	    value |= (long)(current & 0x7f) << shift;
+	    if ((current & 0x80) == 0) {
+		return value;
+	    }
+	}
+	return -1;
+
+    } // readVarint ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // DATA MEMBERS
+
+    /** The layer through which batches are sent. */
+    private final DataLinkLayer layer;
+
+    /** The number of buffered bytes that causes a flush. */
+    private final int           fillThreshold;
+
+    /** The longest that a message waits before it is flushed. */
+    private final long          flushDelayMillis;
+
+    /** The length-prefixed messages of the batch being gathered. */
+    private byte[]              pending;
+
+    /** The number of bytes in <code>pending</code>. */
+    private int                 pendingLength  = 0;
+
+    /** Whether a flush of the batch being gathered is scheduled. */
+    private boolean             flushScheduled = false;
+
+    /** Received data that does not yet form a complete message. */
+    private byte[]              received;
+
+    /** The number of bytes in <code>received</code>. */
+    private int                 receivedLength = 0;
+
+    // The statistics of sending and receiving.
+    private long                messagesSent      = 0;
+    private long                batchesSent       = 0;
+    private long                messagesDelivered = 0;
+    private long                discardedBytes    = 0;
+
+    /** The largest message that may be aggregated. */
+    public static final int     MAX_MESSAGE_LENGTH = 16 * 1024 * 1024;
+
+    /** The most bytes taken by the varint length of a message. */
+    private static final int    MAX_VARINT_LENGTH  = 5;
+
+    /** The initial capacity of the buffers. */
+    private static final int    INITIAL_BUFFER_SIZE = 64;
+
+    /** Runs the scheduled flushes of every aggregator, on one daemon thread. */
+    private static final ScheduledExecutorService timer =
+	new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+		public Thread newThread (Runnable task) {
+		    Thread thread = new Thread(task, "MessageAggregator");
+		    thread.setDaemon(true);
+		    return thread;
+		}
+	    });
+    // =========================================================================
+
+
+
+// =============================================================================
+} // class MessageAggregator
+// =============================================================================
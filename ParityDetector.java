@@ -0,0 +1,70 @@
+// =============================================================================
+/**
+ * Detects an odd number of flipped bits with a single byte whose value
+ * encodes whether the number of 1 bits in the data is even or odd.  The two
+ * values are far apart in Hamming distance, so that a flipped bit in the
+ * trailer itself is also caught.
+ *
+ * @file   ParityDetector.java
+ * @date   October 2026
+ */
+public class ParityDetector implements ErrorDetector {
+// =============================================================================
+
+
+
+    // =========================================================================
+    public int length () {
+
+	return 1;
+
+    } // length ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    public long start () {
+
+	return 0;
+
+    } // start ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    public long update (long state, byte data) {
+
+	return state ^ (Integer.bitCount(data & 0xff) & 1);
+
+    } // update ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    public long trailer (long state) {
+
+	return (state == 0 ? evenByte : oddByte) & 0xff;
+
+    } // trailer ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // DATA MEMBERS
+
+    /** The trailer for data with an even number of 1 bits. */
+    private static final byte evenByte = (byte)0x6d;
+
+    /** The trailer for data with an odd number of 1 bits. */
+    private static final byte oddByte  = (byte)0xd4;
+    // =========================================================================
+
+
+
+// =============================================================================
+} // class ParityDetector
+// =============================================================================
@@ -0,0 +1,52 @@
+// =============================================================================
+/**
+ * A stage that transforms the whole payload of each send before it is framed,
+ * and transforms the data of received frames back before delivery.  Unlike
+ * an <code>ErrorDetector</code>, a payload stage has state: its decoder
+ * accumulates frame data until it can produce output.  Each data link layer
+ * therefore has its own instance of each stage.
+ *
+ * @file   PayloadStage.java
+ * @date   October 2026
+ */
+public interface PayloadStage {
+// =============================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Transform the payload of a send.
+     *
+     * @param  data The payload.
+     * @return the transformed payload, to be framed.
+     */
+    public byte[] encode (byte[] data);
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Transform the data of a received frame.  Frames arrive in order, and
+     * their data forms a stream that need not align with the payloads that
+     * were encoded.
+     *
+     * @param  data The data of a received frame.
+     * @return the decoded bytes that are now complete, possibly none.
+     */
+    public byte[] decode (byte[] data);
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /** @return a one-line summary of the work done by this stage. */
+    public String summary ();
+    // =========================================================================
+
+
+
+// =============================================================================
+} // interface PayloadStage
+// =============================================================================
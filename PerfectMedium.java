@@ -1,12 +1,3 @@
-// =============================================================================
-// IMPORTS
-
-import java.util.Collection;
-import java.util.Iterator;
-// =============================================================================
-
-
-
 // =============================================================================
 /**
  * An ideal medium with no noise, errors, loss.
@@ -28,31 +19,31 @@ public class PerfectMedium extends Medium {
 
     // =========================================================================
     /**
-     * Send a bit from one client to the other clients.
+     * Send up to 64 bits from one client to the other clients.
      *
-     * @param sender The client physical layer sending the bit.
-     * @param bit The value to be sent, where <code>false</code> sends a
-     *            <code>0</code> bit, and <code>true</code> sends a
-     *            <code>1</code> bit.
+     * @param sender The client physical layer sending the bits.
+     * @param bits   The word holding the bits, the earliest most significant.
+     * @param count  The number of bits, from 1 to 64.
      * @throws RuntimeException if the sender is not registered with this
      *                          medium.
      */
-    public void transmit (PhysicalLayer sender, boolean bit) {
+    public void transmit (PhysicalLayer sender, long bits, int count) {
 
 	// Only registered clients may send.
 	if (!clients.contains(sender)) {
 	    throw new RuntimeException("Unregistered sender on the medium");
 	}
+	if (capture != null) {
+	    record(sender, bits, count, 0);
+	}
+	bitsCarried += count;
 	
-	// Deliver the bit to each client that is not the sender.
-	Iterator<PhysicalLayer> clientIterator = clients.iterator();
-	while (clientIterator.hasNext()) {
-	    
-	    PhysicalLayer receiver = clientIterator.next();
-	    if (receiver != sender) {
-		receiver.receive(bit);
+	// Deliver the bits to each client that is not the sender.
+	PhysicalLayer[] receivers = members;
+	for (int i = 0; i < receivers.length; i += 1) {
+	    if (receivers[i] != sender) {
+		receivers[i].receive(bits, count);
 	    }
-
 	}
 
     } // transmit ()
@@ -60,6 +51,25 @@ public class PerfectMedium extends Medium {
 
 
 
+    // =========================================================================
+    /**
+     * Provides this medium under the name <code>Perfect</code>.
+     */
+    public static class Provider implements MediumProvider {
+
+	public String name () {
+	    return "Perfect";
+	}
+
+	public Medium create (MediumConfig config) {
+	    return new PerfectMedium();
+	}
+
+    } // class Provider
+    // =========================================================================
+
+
+
 // =============================================================================
 } // class PerfectMedium
 // =============================================================================
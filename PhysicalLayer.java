@@ -1,6 +1,24 @@
+// =============================================================================
+// IMPORTS
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+// =============================================================================
+
+
+
 // =============================================================================
 /**
- * Transmits bits across a medium.
+ * Transmits bits across a medium, optionally through a line code (see
+ * <code>LineCodes</code>), which turns the client's bits into the symbols
+ * sent on the medium and back, and reports received symbols that are code
+ * violations to the client.  Without one, the client's bits go on the medium
+ * as they are.
+ *
+ * With a line code, a client must send whole units of the code's data in
+ * each transmission, as a data link layer does by sending whole bytes, so
+ * that each receiver stays aligned with the symbols.
  * 
  * @file   PhysicalLayer.java
  * @author Scott F. Kaplan (sfkaplan@cs.amherst.edu)
@@ -81,13 +99,88 @@ public class PhysicalLayer {
      */
     public void send (boolean bit) {
 
-	medium.transmit(this, bit);
+	send(bit ? 1L : 0L, 1);
 
     } // send ()
     // =========================================================================
 
 
 
+    // =========================================================================
+    /**
+     * Send up to 64 of a client's bits via the medium.
+     *
+     * @param bits  The word holding the bits, in its low-order
+     *              <code>count</code> bits, the earliest most significant.
+     * @param count The number of bits, from 1 to 64.
+     */
+    public void send (long bits, int count) {
+
+	if (lineCode == null) {
+	    medium.transmit(this, bits, count);
+	    return;
+	}
+
+	// Gather the bits into units of data, and pack the symbol of each into
+	// words for the medium.
+	int  unit     = lineCode.dataBits();
+	int  width    = lineCode.symbolBits();
+	long line     = 0;
+	int  lineBits = 0;
+	while (count > 0) {
+	    int taken = Math.min(unit - sendCount, count);
+	    count    -= taken;
+	    sendUnit  = (sendUnit << taken) | (int)((bits >>> count) & ((1L << taken) - 1));
+	    sendCount += taken;
+	    if (sendCount == unit) {
+		int result = lineCode.encode(sendState, sendUnit);
+		sendState  = result >>> LineCode.STATE_SHIFT;
+		sendUnit   = 0;
+		sendCount  = 0;
+		if (lineBits + width > Long.SIZE) {
+		    medium.transmit(this, line, lineBits);
+		    line     = 0;
+		    lineBits = 0;
+		}
+		line      = (line << width) | (result & LineCode.VALUE_MASK);
+		lineBits += width;
+	    }
+	}
+	if (lineBits > 0) {
+	    medium.transmit(this, line, lineBits);
+	}
+
+    } // send ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Take exclusive use of the medium for a transmission.
+     */
+    public void seize () {
+
+	medium.seize();
+
+    } // seize ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Give up exclusive use of the medium after a transmission.
+     */
+    public void release () {
+
+	medium.release();
+
+    } // release ()
+    // =========================================================================
+
+
+
     // =========================================================================
     /**
      * Called by the medium to deliver a bit, which is then in turn delivered to
@@ -97,13 +190,187 @@ public class PhysicalLayer {
      */
     public void receive (boolean bit) {
 
-	client.receive(bit);
+	receive(bit ? 1L : 0L, 1);
 
     }
     // ===============================================================
 
 
 
+    // ===============================================================
+    /**
+     * Called by the medium to deliver up to 64 bits, which are then in turn
+     * delivered to the client data link layer.
+     *
+     * @param bits  The word holding the bits, the earliest most significant.
+     * @param count The number of bits, from 1 to 64.
+     */
+    public void receive (long bits, int count) {
+
+	if (lineCode == null) {
+	    client.receive(bits, count);
+	    return;
+	}
+
+	// Gather the bits into symbols, and pack the data of each into words
+	// for the client.  A violation is reported after the data before it
+	// and before its own.
+	int  unit      = lineCode.dataBits();
+	int  width     = lineCode.symbolBits();
+	long data      = 0;
+	int  dataBits  = 0;
+	while (count > 0) {
+	    int taken     = Math.min(width - receiveCount, count);
+	    count        -= taken;
+	    receiveSymbol = (receiveSymbol << taken) | (int)((bits >>> count) & ((1L << taken) - 1));
+	    receiveCount += taken;
+	    if (receiveCount == width) {
+		int result    = lineCode.decode(receiveState, receiveSymbol);
+		receiveState  = (result >>> LineCode.STATE_SHIFT) & LineCode.STATE_MASK;
+		receiveSymbol = 0;
+		receiveCount  = 0;
+		if (result < 0 || dataBits + unit > Long.SIZE) {
+		    if (dataBits > 0) {
+			client.receive(data, dataBits);
+		    }
+		    data     = 0;
+		    dataBits = 0;
+		    if (result < 0) {
+			codeViolations += 1;
+			client.receiveCodeViolation();
+		    }
+		}
+		data      = (data << unit) | (result & LineCode.VALUE_MASK);
+		dataBits += unit;
+	    }
+	}
+	if (dataBits > 0) {
+	    client.receive(data, dataBits);
+	}
+
+    } // receive ()
+    // ===============================================================
+
+
+
+    // ===============================================================
+    /**
+     * Code the bits sent and received with the given line code, which every
+     * other physical layer on the medium must also use.
+     *
+     * @param lineCode The line code, or <code>null</code> for none.
+     */
+    public void setLineCode (LineCode lineCode) {
+
+	this.lineCode = lineCode;
+	if (lineCode != null) {
+	    sendState    = lineCode.start();
+	    receiveState = lineCode.start();
+	}
+
+    } // setLineCode ()
+    // ===============================================================
+
+
+
+    // ===============================================================
+    /**
+     * Return the states of the line code to their start, as every physical
+     * layer on the medium does when a transmission begins.  A code with a
+     * running disparity would otherwise carry a sender's disparity over to
+     * receivers that last heard a different sender.  Any partial unit of data
+     * waiting to be sent is kept.  Called by the medium while it is held.
+     */
+    public void restartLineCode () {
+
+	if (lineCode != null) {
+	    sendState    = lineCode.start();
+	    receiveState = lineCode.start();
+	}
+
+    } // restartLineCode ()
+    // ===============================================================
+
+
+
+    // ===============================================================
+    /** @return the line code of this layer, or <code>null</code> if none. */
+    public LineCode getLineCode () {
+
+	return lineCode;
+
+    } // getLineCode ()
+    // ===============================================================
+
+
+
+    // ===============================================================
+    /** @return the number of received symbols that were code violations. */
+    public long getCodeViolations () {
+
+	return codeViolations;
+
+    } // getCodeViolations ()
+    // ===============================================================
+
+
+
+    // ===============================================================
+    /** @return the data link layer above this physical layer, if any. */
+    public DataLinkLayer getClient () {
+
+	return client;
+
+    } // getClient ()
+    // ===============================================================
+
+
+
+    // ===============================================================
+    /**
+     * Write the line code's states and partial units, for a checkpoint of
+     * the data link layer above.
+     *
+     * @param  out The stream to write to.
+     * @throws IOException if the state cannot be written.
+     */
+    void writeState (DataOutputStream out) throws IOException {
+
+	out.writeInt(sendState);
+	out.writeInt(sendUnit);
+	out.writeInt(sendCount);
+	out.writeInt(receiveState);
+	out.writeInt(receiveSymbol);
+	out.writeInt(receiveCount);
+	out.writeLong(codeViolations);
+
+    } // writeState ()
+    // ===============================================================
+
+
+
+    // ===============================================================
+    /**
+     * Restore the state written by <code>writeState()</code>.
+     *
+     * @param  in The stream to read from.
+     * @throws IOException if the state cannot be read.
+     */
+    void readState (DataInputStream in) throws IOException {
+
+	sendState      = in.readInt();
+	sendUnit       = in.readInt();
+	sendCount      = in.readInt();
+	receiveState   = in.readInt();
+	receiveSymbol  = in.readInt();
+	receiveCount   = in.readInt();
+	codeViolations = in.readLong();
+
+    } // readState ()
+    // ===============================================================
+
+
+
     // ===============================================================
     // DATA MEMBERS
 
@@ -112,6 +379,25 @@ public class PhysicalLayer {
 
     /** The data link layer above this physical layer. */
     private DataLinkLayer client;
+
+    /** The line code, if any. */
+    private LineCode lineCode = null;
+
+    // The code's state in sending, and the data bits of a partial unit.
+    private int      sendState = 0;
+    private int      sendUnit  = 0;
+    private int      sendCount = 0;
+
+    // The code's state in receiving, and the line bits of a partial symbol.
+    private int      receiveState  = 0;
+    private int      receiveSymbol = 0;
+    private int      receiveCount  = 0;
+
+    /**
+     * The number of received symbols that were code violations.  Updated
+     * only by the receiving thread, and read by others.
+     */
+    private volatile long codeViolations = 0;
     // ===============================================================
 
 
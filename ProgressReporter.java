@@ -0,0 +1,277 @@
+// =============================================================================
+// IMPORTS
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.util.Locale;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+// =============================================================================
+
+
+
+// =============================================================================
+/**
+ * Reports the progress of a transfer from a background thread.  At a fixed
+ * interval, it samples the sender's bytes framed, the bits on the medium, the
+ * receiver's deliveries, and the receiver's error counters, and prints their
+ * totals and rates, an estimate of the time remaining, and the heap in use.
+ * Optionally, each sample is also written as a line of JSON.
+ *
+ * The counters are read without stopping the transfer, so a sample may be
+ * slightly stale, but the transfer itself pays nothing for being watched.
+ *
+ * @file   ProgressReporter.java
+ * @date   October 2026
+ */
+public class ProgressReporter {
+// =============================================================================
+
+
+
+    // =========================================================================
+    // PUBLIC METHODS
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * The constructor.
+     *
+     * @param sender         The sending host.
+     * @param receiver       The receiving host.
+     * @param medium         The medium between them.
+     * @param totalBytes     The number of bytes to be delivered, for the
+     *                       estimate of the time remaining.
+     * @param intervalMillis The time between samples.
+     * @param output         Where to print each sample for people.
+     * @param machine        Where to write each sample as JSON, or
+     *                       <code>null</code>.
+     * @throws RuntimeException if the interval is not positive.
+     */
+    public ProgressReporter (Host        sender,
+			     Host        receiver,
+			     Medium      medium,
+			     long        totalBytes,
+			     long        intervalMillis,
+			     PrintStream output,
+			     PrintStream machine) {
+
+	if (intervalMillis < 1) {
+	    throw new RuntimeException("Invalid progress interval " + intervalMillis);
+	}
+	this.sender         = sender;
+	this.receiver       = receiver;
+	this.medium         = medium;
+	this.totalBytes     = totalBytes;
+	this.intervalMillis = intervalMillis;
+	this.output         = output;
+	this.machine        = machine;
+
+    } // ProgressReporter ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Begin sampling.
+     */
+    public synchronized void start () {
+
+	startNanos     = System.nanoTime();
+	lastNanos      = startNanos;
+	lastFramed     = sender.getDataLinkLayer().getBytesFramed();
+	lastBits       = medium.getBitsCarried();
+	lastDelivered  = receiver.getReceivedBytes();
+	startDelivered = lastDelivered;
+	timer.scheduleAtFixedRate(new Runnable() {
+		public void run () {
+		    sample(false);
+		}
+	    }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+
+    } // start ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Stop sampling, and report a final sample.
+     */
+    public synchronized void stop () {
+
+	timer.shutdownNow();
+	sample(true);
+
+    } // stop ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // PRIVATE METHODS
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Take a sample and report it, with the rates since the previous sample.
+     *
+     * @param last Whether this is the final sample.
+     */
+    private synchronized void sample (boolean last) {
+
+	DataLinkLayer sending   = sender.getDataLinkLayer();
+	DataLinkLayer receiving = receiver.getDataLinkLayer();
+	long now        = System.nanoTime();
+	long framed     = sending.getBytesFramed();
+	long bits       = medium.getBitsCarried();
+	long frames     = receiver.getReceipts();
+	long delivered  = receiver.getReceivedBytes();
+	long failures   = receiving.getChecksumFailures();
+	long resyncs    = receiving.getResyncs();
+	long overruns   = receiving.getFrameOverruns() + receiving.getBufferOverruns();
+	long violations = receiving.getCodeViolations();
+	MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+
+	double elapsed  = (now - startNanos) / 1e9;
+	double interval = Math.max(1e-9, (now - lastNanos) / 1e9);
+	double framedRate    = (framed - lastFramed) / interval;
+	double bitRate       = (bits - lastBits) / interval;
+	double deliveredRate = (delivered - lastDelivered) / interval;
+
+	// The time remaining, at the average rate of delivery since starting.
+	double average = (delivered - startDelivered) / Math.max(1e-9, elapsed);
+	double eta     = (delivered >= totalBytes) ? 0
+	               : (average > 0) ? (totalBytes - delivered) / average : -1;
+	double percent = 100.0 * delivered / Math.max(1, totalBytes);
+
+	output.println(String.format(Locale.ROOT,
+				     "[%7.1fs] framed %s (%s/s) | medium %s bits (%s/s)" +
+				     " | delivered %s (%s/s) in %d frames" +
+				     " | errors %d checksum, %d resync, %d overrun, %d code" +
+				     " | %.1f%% ETA %s | heap %d/%d MB%s",
+				     elapsed,
+				     bytes(framed), bytes(framedRate),
+				     count(bits), count(bitRate),
+				     bytes(delivered), bytes(deliveredRate), frames,
+				     failures, resyncs, overruns, violations,
+				     percent, (eta < 0) ? "?" : String.format(Locale.ROOT, "%.0fs", eta),
+				     heap.getUsed() >> 20, heap.getMax() >> 20,
+				     last ? " (final)" : ""));
+	if (machine != null) {
+	    machine.println(String.format(Locale.ROOT,
+					  "{\"seconds\": %.3f, \"bytes_framed\": %d, " +
+					  "\"medium_bits\": %d, \"frames_delivered\": %d, " +
+					  "\"bytes_delivered\": %d, \"checksum_failures\": %d, " +
+					  "\"resyncs\": %d, \"overruns\": %d, " +
+					  "\"code_violations\": %d, " +
+					  "\"framed_bytes_per_sec\": %.1f, " +
+					  "\"medium_bits_per_sec\": %.1f, " +
+					  "\"delivered_bytes_per_sec\": %.1f, " +
+					  "\"eta_seconds\": %s, \"heap_used_bytes\": %d, " +
+					  "\"final\": %b}",
+					  elapsed, framed, bits, frames, delivered,
+					  failures, resyncs, overruns, violations,
+					  framedRate, bitRate, deliveredRate,
+					  (eta < 0) ? "null" : String.format(Locale.ROOT, "%.1f", eta),
+					  heap.getUsed(), last));
+	    machine.flush();
+	}
+
+	lastNanos     = now;
+	lastFramed    = framed;
+	lastBits      = bits;
+	lastDelivered = delivered;
+
+    } // sample ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /** @return a number of bytes with a binary unit. */
+    private static String bytes (double value) {
+
+	String[] units = { "B", "KB", "MB", "GB", "TB" };
+	int      unit  = 0;
+	while (value >= 1024 && unit < units.length - 1) {
+	    value /= 1024;
+	    unit  += 1;
+	}
+	return String.format(Locale.ROOT, "%.1f %s", value, units[unit]);
+
+    } // bytes ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /** @return a count with a decimal unit. */
+    private static String count (double value) {
+
+	String[] units = { "", "k", "M", "G", "T" };
+	int      unit  = 0;
+	while (value >= 1000 && unit < units.length - 1) {
+	    value /= 1000;
+	    unit  += 1;
+	}
+	return String.format(Locale.ROOT, "%.1f%s", value, units[unit]);
+
+    } // count ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // DATA MEMBERS
+
+    // The hosts and medium observed.
+    private final Host        sender;
+    private final Host        receiver;
+    private final Medium      medium;
+
+    /** The number of bytes to be delivered. */
+    private final long        totalBytes;
+
+    /** The time between samples. */
+    private final long        intervalMillis;
+
+    // Where samples are reported for people, and as JSON.
+    private final PrintStream output;
+    private final PrintStream machine;
+
+    // When sampling began, and the bytes already delivered then, as when
+    // resuming from a checkpoint.
+    private long              startNanos;
+    private long              startDelivered = 0;
+
+    // The previous sample.
+    private long              lastNanos     = 0;
+    private long              lastFramed    = 0;
+    private long              lastBits      = 0;
+    private long              lastDelivered = 0;
+
+    /** Takes the samples, on a daemon thread. */
+    private final ScheduledExecutorService timer =
+	new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+		public Thread newThread (Runnable task) {
+		    Thread thread = new Thread(task, "ProgressReporter");
+		    thread.setDaemon(true);
+		    return thread;
+		}
+	    });
+    // =========================================================================
+
+
+
+// =============================================================================
+} // class ProgressReporter
+// =============================================================================
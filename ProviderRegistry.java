@@ -0,0 +1,204 @@
+// =============================================================================
+// IMPORTS
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+// =============================================================================
+
+
+
+// =============================================================================
+/**
+ * Looks up the providers of data link layers and media by name.  Providers
+ * are discovered once with <code>ServiceLoader</code>.  A name with no
+ * registered provider falls back to the class naming convention (for example,
+ * <code>Foo</code> names <code>FooDataLinkLayer</code>), whose no-argument
+ * constructor is resolved once to a method handle and cached as a provider.
+ *
+ * @file   ProviderRegistry.java
+ * @date   October 2026
+ */
+public final class ProviderRegistry {
+// =============================================================================
+
+
+
+    // =========================================================================
+    // PUBLIC METHODS
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Find the provider of a type of data link layer.
+     *
+     * @param  type The name of the type, such as <code>CRC</code>.
+     * @return the provider.
+     * @throws RuntimeException if there is no such type.
+     */
+    public static DataLinkLayerProvider layerProvider (String type) {
+
+	DataLinkLayerProvider provider = layerProviders.get(type);
+	if (provider == null) {
+	    final MethodHandle constructor = findConstructor(type + "DataLinkLayer",
+							     DataLinkLayer.class,
+							     "data link layer");
+	    final String name = type;
+	    provider = new DataLinkLayerProvider() {
+		    public String name () {
+			return name;
+		    }
+		    public DataLinkLayer create (LayerConfig config) {
+			return (DataLinkLayer)construct(constructor);
+		    }
+		};
+	    DataLinkLayerProvider existing = layerProviders.putIfAbsent(type, provider);
+	    if (existing != null) {
+		provider = existing;
+	    }
+	}
+	return provider;
+
+    } // layerProvider ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Find the provider of a type of medium.
+     *
+     * @param  type The name of the type, such as <code>LowNoise</code>.
+     * @return the provider.
+     * @throws RuntimeException if there is no such type.
+     */
+    public static MediumProvider mediumProvider (String type) {
+
+	MediumProvider provider = mediumProviders.get(type);
+	if (provider == null) {
+	    final MethodHandle constructor = findConstructor(type + "Medium",
+							     Medium.class,
+							     "medium");
+	    final String name = type;
+	    provider = new MediumProvider() {
+		    public String name () {
+			return name;
+		    }
+		    public Medium create (MediumConfig config) {
+			return (Medium)construct(constructor);
+		    }
+		};
+	    MediumProvider existing = mediumProviders.putIfAbsent(type, provider);
+	    if (existing != null) {
+		provider = existing;
+	    }
+	}
+	return provider;
+
+    } // mediumProvider ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // PRIVATE METHODS
+    // =========================================================================
+
+
+
+    // =========================================================================
+    private ProviderRegistry () {
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Resolve the no-argument constructor of a class that follows the naming
+     * convention.
+     *
+     * @param  className The name of the class.
+     * @param  base      The class of which it must be a subclass.
+     * @param  kind      A description of the base class, for error messages.
+     * @return a handle on the constructor.
+     * @throws RuntimeException if there is no such class, if it is not a
+     *                          subclass of the base, or if it has no accessible
+     *                          no-argument constructor.
+     */
+    private static MethodHandle findConstructor (String   className,
+						 Class<?> base,
+						 String   kind) {
+
+	Class<?> subclass = null;
+	try {
+	    subclass = Class.forName(className);
+	} catch (ClassNotFoundException e) {
+	    throw new RuntimeException("Unknown " + kind + " subclass " + className);
+	}
+	if (!base.isAssignableFrom(subclass)) {
+	    throw new RuntimeException(className + " is not a subclass of " +
+				       base.getName());
+	}
+	try {
+	    return MethodHandles.lookup().findConstructor(subclass,
+							  MethodType.methodType(void.class));
+	} catch (NoSuchMethodException e) {
+	    throw new RuntimeException("Could not call constructor for " + className);
+	} catch (IllegalAccessException e) {
+	    throw new RuntimeException("Could not access " + className);
+	}
+
+    } // findConstructor ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    private static Object construct (MethodHandle constructor) {
+
+	try {
+	    return constructor.invoke();
+	} catch (RuntimeException e) {
+	    throw e;
+	} catch (Throwable e) {
+	    throw new RuntimeException("Could not invoke constructor: " + e);
+	}
+
+    } // construct ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // DATA MEMBERS
+
+    /** The data link layer providers, by name. */
+    private static final ConcurrentMap<String, DataLinkLayerProvider> layerProviders =
+	new ConcurrentHashMap<String, DataLinkLayerProvider>();
+
+    /** The medium providers, by name. */
+    private static final ConcurrentMap<String, MediumProvider> mediumProviders =
+	new ConcurrentHashMap<String, MediumProvider>();
+
+    // Discover the providers on the class path.
+    static {
+	for (DataLinkLayerProvider provider : ServiceLoader.load(DataLinkLayerProvider.class)) {
+	    layerProviders.putIfAbsent(provider.name(), provider);
+	}
+	for (MediumProvider provider : ServiceLoader.load(MediumProvider.class)) {
+	    mediumProviders.putIfAbsent(provider.name(), provider);
+	}
+    }
+    // =========================================================================
+
+
+
+// =============================================================================
+} // class ProviderRegistry
+// =============================================================================
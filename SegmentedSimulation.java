@@ -0,0 +1,750 @@
+// =============================================================================
+// IMPORTS
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+// =============================================================================
+
+
+
+// =============================================================================
+/**
+ * A discrete-event simulation of a network of medium segments joined by
+ * bridges, run in parallel across worker threads.  Time is virtual, measured
+ * in bit-times: a transmission occupies its segment's medium for one unit per
+ * bit, and a bridge forwards what it hears on one segment to the other after
+ * a fixed latency.
+ *
+ * Each segment has its own event queue, and the segments are divided among
+ * the workers.  The workers advance together under a conservative protocol:
+ * in each window, every segment processes the events earlier than the
+ * earliest pending event plus the smallest bridge latency.  No event that a
+ * segment causes on another can fall within the current window, so the
+ * segments need not wait on each other until its end, when the events
+ * crossing bridges are exchanged.  Ties are broken by the origin and order of
+ * each event, and each segment's noise is seeded from the simulation's seed,
+ * so a given seed produces the same results with any number of workers.
+ * Layers that act on timers of their own, such as <code>Duplex</code>, are
+ * not deterministic.
+ *
+ * Bridges forward every frame that they hear, so the segments must form a
+ * tree.
+ *
+ * @file   SegmentedSimulation.java
+ * @date   October 2026
+ */
+public class SegmentedSimulation {
+// =============================================================================
+
+
+
+    // =========================================================================
+    /**
+     * The entry point.  Simulate a chain of segments, each bridged to the
+     * next, with every host sending random messages.
+     *
+     * @param args The command-line arguments.
+     */
+    public static void main (String[] args) {
+
+	int    segments = 8;
+	int    hosts    = 4;
+	int    threads  = Runtime.getRuntime().availableProcessors();
+	String medium   = "Perfect";
+	String layer    = "Dumb";
+	int    messages = 16;
+	int    size     = 64;
+	long   latency  = 1024;
+	long   seed     = LowNoiseMedium.DEFAULT_SEED;
+
+	for (int i = 0; i < args.length; i += 2) {
+	    if (i + 1 >= args.length) {
+		usage();
+	    }
+	    String option = args[i];
+	    String value  = args[i + 1];
+	    if (option.equals("--segments")) {
+		segments = Integer.parseInt(value);
+	    } else if (option.equals("--hosts")) {
+		hosts = Integer.parseInt(value);
+	    } else if (option.equals("--threads")) {
+		threads = Integer.parseInt(value);
+	    } else if (option.equals("--medium")) {
+		medium = value;
+	    } else if (option.equals("--layer")) {
+		layer = value;
+	    } else if (option.equals("--messages")) {
+		messages = Integer.parseInt(value);
+	    } else if (option.equals("--size")) {
+		size = Integer.parseInt(value);
+	    } else if (option.equals("--latency")) {
+		latency = Long.parseLong(value);
+	    } else if (option.equals("--seed")) {
+		seed = Long.parseLong(value);
+	    } else {
+		usage();
+	    }
+	}
+
+	SegmentedSimulation simulation = new SegmentedSimulation(seed);
+	for (int s = 0; s < segments; s += 1) {
+	    simulation.addSegment(medium, MediumConfig.DEFAULT);
+	    for (int h = 0; h < hosts; h += 1) {
+		Host host = simulation.addHost(s, layer, LayerConfig.DEFAULT);
+		simulation.addTraffic(host, h * size * 8L, size * 64L, messages, size);
+	    }
+	    if (s > 0) {
+		simulation.addBridge(s - 1, s, layer, LayerConfig.DEFAULT, latency);
+	    }
+	}
+	simulation.run(threads);
+	System.out.println(simulation.summary());
+
+    } // main ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Print the command-line usage and exit.
+     */
+    private static void usage () {
+
+	System.err.println("Usage: java SegmentedSimulation " +
+			   "[--segments <count>] "          +
+			   "[--hosts <per segment>] "       +
+			   "[--threads <count>] "           +
+			   "[--medium <type>] "             +
+			   "[--layer <type>] "              +
+			   "[--messages <per host>] "       +
+			   "[--size <bytes>] "              +
+			   "[--latency <bit-times>] "       +
+			   "[--seed <seed>]");
+	System.exit(1);
+
+    } // usage ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // PUBLIC METHODS
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * The constructor.
+     *
+     * @param seed The seed from which the noise of each segment and the data
+     *             of each traffic generator are derived.
+     */
+    public SegmentedSimulation (long seed) {
+
+	this.seed = seed;
+
+    } // SegmentedSimulation ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Add a segment, with a medium of its own.  The medium's seed is replaced
+     * by one derived from the simulation's seed.
+     *
+     * @param  mediumType The type of the segment's medium.
+     * @param  config     The configuration of the segment's medium.
+     * @return the index of the new segment.
+     */
+    public int addSegment (String mediumType, MediumConfig config) {
+
+	int index = segments.size();
+	segments.add(new Segment(index,
+				 Medium.create(mediumType, config.withSeed(seed + index))));
+	return index;
+
+    } // addSegment ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Add a host to a segment.
+     *
+     * @param  segment   The index of the segment.
+     * @param  layerType The type of the host's data link layer.
+     * @param  config    The configuration of the host's data link layer.
+     * @return the new host.
+     * @throws RuntimeException if there is no such segment.
+     */
+    public Host addHost (int segment, String layerType, LayerConfig config) {
+
+	Segment owner = segment(segment);
+	Host    host  = new Host(owner.medium, layerType, config);
+	owner.hosts.add(host);
+	hosts.add(host);
+	hostSegments.add(owner);
+	return host;
+
+    } // addHost ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Join two segments with a bridge, which has a port on each.  Whatever a
+     * port hears on its segment, the other port sends on its own segment
+     * after the latency.
+     *
+     * @param first     The index of one segment.
+     * @param second    The index of the other segment.
+     * @param layerType The type of the ports' data link layers.
+     * @param config    The configuration of the ports' data link layers.
+     * @param latency   The delay, in bit-times, of forwarding; at least 1.
+     * @throws RuntimeException if there is no such segment, if the latency is
+     *                          not positive, or if the bridge would form a
+     *                          loop.
+     */
+    public void addBridge (int         first,
+			   int         second,
+			   String      layerType,
+			   LayerConfig config,
+			   long        latency) {
+
+	Segment a = segment(first);
+	Segment b = segment(second);
+	if (latency < 1) {
+	    throw new RuntimeException("Invalid bridge latency " + latency);
+	}
+	if (root(a) == root(b)) {
+	    throw new RuntimeException("Bridge between segments " + first +
+				       " and " + second + " would form a loop");
+	}
+	root(a).parent = root(b);
+
+	BridgePort portA = new BridgePort(a, layerType, config, latency, ports.size());
+	BridgePort portB = new BridgePort(b, layerType, config, latency, ports.size() + 1);
+	portA.peer = portB;
+	portB.peer = portA;
+	a.ports.add(portA);
+	b.ports.add(portB);
+	ports.add(portA);
+	ports.add(portB);
+	lookahead = Math.min(lookahead, latency);
+
+    } // addBridge ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Have a host send random messages at a fixed interval.
+     *
+     * @param host     The sending host, added with <code>addHost()</code>.
+     * @param start    The time of the first message, in bit-times.
+     * @param interval The time between messages, in bit-times.
+     * @param count    The number of messages.
+     * @param size     The number of bytes in each message.
+     * @throws RuntimeException if the host is not part of this simulation, or
+     *                          if a setting is invalid.
+     */
+    public void addTraffic (Host host, long start, long interval, int count, int size) {
+
+	int index = hosts.indexOf(host);
+	if (index < 0) {
+	    throw new RuntimeException("Traffic for a host not in the simulation");
+	}
+	addTraffic(index, start, interval, count, size);
+
+    } // addTraffic ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Have a host send random messages at a fixed interval.
+     *
+     * @param host     The index of the sending host, in the order added.
+     * @param start    The time of the first message, in bit-times.
+     * @param interval The time between messages, in bit-times.
+     * @param count    The number of messages.
+     * @param size     The number of bytes in each message.
+     * @throws RuntimeException if there is no such host, or if a setting is
+     *                          invalid.
+     */
+    public void addTraffic (int host, long start, long interval, int count, int size) {
+
+	if (host < 0 || host >= hosts.size()) {
+	    throw new RuntimeException("No host " + host);
+	}
+	if (start < 0 || interval < 1 || count < 0 || size < 1) {
+	    throw new RuntimeException("Invalid traffic for host " + host);
+	}
+	if (count == 0) {
+	    return;
+	}
+	Traffic traffic = new Traffic(hostSegments.get(host),
+				      hosts.get(host),
+				      host,
+				      interval,
+				      count,
+				      size,
+				      new SplittableRandom(seed ^ (0x9e3779b97f4a7c15L * (host + 1))));
+	hostSegments.get(host).queue.add(traffic.next(start));
+
+    } // addTraffic ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Run the simulation until no events remain.
+     *
+     * @param threads The number of worker threads.
+     * @throws RuntimeException if the number of threads is not positive.
+     */
+    public void run (int threads) {
+
+	if (threads < 1) {
+	    throw new RuntimeException("Invalid thread count " + threads);
+	}
+	this.threads = threads;
+
+	// Divide the segments among the workers.
+	final List<List<Segment>> partitions = new ArrayList<List<Segment>>();
+	for (int p = 0; p < Math.min(threads, segments.size()); p += 1) {
+	    partitions.add(new ArrayList<Segment>());
+	}
+	for (int s = 0; s < segments.size(); s += 1) {
+	    partitions.get(s % partitions.size()).add(segments.get(s));
+	}
+
+	long            start = System.nanoTime();
+	ExecutorService pool  = Executors.newFixedThreadPool(Math.max(1, partitions.size()));
+	try {
+	    while (true) {
+
+		// The window ends a lookahead past the earliest pending event.
+		long earliest = Long.MAX_VALUE;
+		for (Segment segment : segments) {
+		    if (!segment.queue.isEmpty()) {
+			earliest = Math.min(earliest, segment.queue.peek().time);
+		    }
+		}
+		if (earliest == Long.MAX_VALUE) {
+		    break;
+		}
+		final long end = (earliest > Long.MAX_VALUE - lookahead)
+		                 ? Long.MAX_VALUE
+		                 : earliest + lookahead;
+
+		// Advance every partition to the end of the window.
+		List<Future<Void>> futures = new ArrayList<Future<Void>>();
+		for (final List<Segment> partition : partitions) {
+		    futures.add(pool.submit(new Callable<Void>() {
+			    public Void call () {
+				for (Segment segment : partition) {
+				    segment.advance(end);
+				}
+				return null;
+			    }
+			}));
+		}
+		for (Future<Void> future : futures) {
+		    try {
+			future.get();
+		    } catch (InterruptedException e) {
+			throw new RuntimeException("Interrupted during the simulation");
+		    } catch (ExecutionException e) {
+			throw new RuntimeException("Segment failed: " + e.getCause(), e.getCause());
+		    }
+		}
+
+		// Exchange the events that cross bridges.
+		for (Segment segment : segments) {
+		    for (Event event : segment.outbox) {
+			event.segment.queue.add(event);
+			forwarded += 1;
+		    }
+		    segment.outbox.clear();
+		}
+		windows += 1;
+
+	    }
+	} finally {
+	    pool.shutdown();
+	}
+	wallNanos = System.nanoTime() - start;
+
+    } // run ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @return a checksum of the data delivered to every host, in the order of
+     *         the hosts; equal for equal runs.  Consumes the delivered data.
+     */
+    public long digest () {
+
+	if (digest == null) {
+	    CRC32 crc = new CRC32();
+	    for (Host host : hosts) {
+		byte[] data = host.retrieve();
+		delivered += data.length;
+		crc.update(data.length >>> 24);
+		crc.update(data.length >>> 16);
+		crc.update(data.length >>> 8);
+		crc.update(data.length);
+		crc.update(data, 0, data.length);
+	    }
+	    digest = crc.getValue();
+	}
+	return digest;
+
+    } // digest ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /** @return a description of the run.  Consumes the delivered data. */
+    public String summary () {
+
+	long events   = 0;
+	long lastTime = 0;
+	for (Segment segment : segments) {
+	    events  += segment.events;
+	    lastTime = Math.max(lastTime, segment.busyUntil);
+	}
+	long checksum = digest();
+	return String.format("%d segments, %d hosts, %d bridges on %d threads:" +
+			     " %d events (%d forwarded) in %d windows," +
+			     " %d bit-times simulated in %.3f s;" +
+			     " %d bytes delivered, digest %08x",
+			     segments.size(),
+			     hosts.size(),
+			     ports.size() / 2,
+			     threads,
+			     events,
+			     forwarded,
+			     windows,
+			     lastTime,
+			     wallNanos / 1e9,
+			     delivered,
+			     checksum);
+
+    } // summary ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // PRIVATE METHODS
+    // =========================================================================
+
+
+
+    // =========================================================================
+    private Segment segment (int index) {
+
+	if (index < 0 || index >= segments.size()) {
+	    throw new RuntimeException("No segment " + index);
+	}
+	return segments.get(index);
+
+    } // segment ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /** @return the representative of the bridged segments including this one. */
+    private static Segment root (Segment segment) {
+
+	while (segment.parent != segment) {
+	    segment.parent = segment.parent.parent;
+	    segment        = segment.parent;
+	}
+	return segment;
+
+    } // root ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // INNER CLASSES
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * A transmission due on a segment at a point in virtual time: a message
+     * from a traffic generator, or a frame forwarded by a bridge port.
+     */
+    private static final class Event implements Comparable<Event> {
+
+	Event (Segment segment, long time, long origin, long sequence,
+	       Host sender, byte[] data, Traffic traffic) {
+	    this.segment  = segment;
+	    this.time     = time;
+	    this.origin   = origin;
+	    this.sequence = sequence;
+	    this.sender   = sender;
+	    this.data     = data;
+	    this.traffic  = traffic;
+	}
+
+	/** Order by time, then by origin, then by the origin's own order. */
+	public int compareTo (Event other) {
+	    if (time != other.time) {
+		return Long.compare(time, other.time);
+	    }
+	    if (origin != other.origin) {
+		return Long.compare(origin, other.origin);
+	    }
+	    return Long.compare(sequence, other.sequence);
+	}
+
+	/** The segment on which the transmission happens. */
+	final Segment segment;
+
+	/** When the transmission is due. */
+	final long    time;
+
+	// The host or port that caused the event, and its count of events.
+	final long    origin;
+	final long    sequence;
+
+	/** The host that transmits. */
+	final Host    sender;
+
+	/** The data to send. */
+	final byte[]  data;
+
+	/** The generator to continue after this message, if any. */
+	final Traffic traffic;
+
+    } // class Event
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /** Generates a host's messages, one event at a time. */
+    private static final class Traffic {
+
+	Traffic (Segment segment, Host host, int index, long interval, int count,
+		 int size, SplittableRandom random) {
+	    this.segment   = segment;
+	    this.host      = host;
+	    this.index     = index;
+	    this.interval  = interval;
+	    this.remaining = count;
+	    this.size      = size;
+	    this.random    = random;
+	}
+
+	/** @return the event of the next message, due at the given time. */
+	Event next (long time) {
+	    byte[] data = new byte[size];
+	    for (int i = 0; i < size; i += 1) {
+		data[i] = (byte)random.nextInt(256);
+	    }
+	    remaining -= 1;
+	    return new Event(segment, time, index, sent++, host, data,
+			     remaining > 0 ? this : null);
+	}
+
+	final Segment          segment;
+	final Host             host;
+	final int              index;
+	final long             interval;
+	final int              size;
+	final SplittableRandom random;
+	int                    remaining;
+	long                   sent = 0;
+
+    } // class Traffic
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /** One medium, with its hosts, bridge ports, and events. */
+    private final class Segment {
+
+	Segment (int index, Medium medium) {
+	    this.index  = index;
+	    this.medium = medium;
+	    this.parent = this;
+	}
+
+	/**
+	 * Process every event earlier than the given time.  Runs on one
+	 * worker at a time.
+	 */
+	void advance (long end) {
+
+	    while (!queue.isEmpty() && queue.peek().time < end) {
+
+		// Transmit once the medium is free.
+		Event         event = queue.poll();
+		DataLinkLayer layer = event.sender.getDataLinkLayer();
+		long          start = Math.max(event.time, busyUntil);
+		long          sent  = layer.getBytesTransmitted();
+		event.sender.send(event.data);
+		event.sender.flush();
+		busyUntil = start + (layer.getBytesTransmitted() - sent) *
+		                    DataLinkLayer.BITS_PER_BYTE;
+		events   += 1;
+
+		// Whatever the ports heard is forwarded once it has all
+		// arrived.
+		for (BridgePort port : ports) {
+		    port.getDataLinkLayer().drain();
+		    port.forward(busyUntil, outbox);
+		}
+
+		// Schedule the generator's next message.
+		if (event.traffic != null) {
+		    queue.add(event.traffic.next(start + event.traffic.interval));
+		}
+
+	    }
+
+	}
+
+	final int                   index;
+	final Medium                medium;
+	final List<Host>            hosts  = new ArrayList<Host>();
+	final List<BridgePort>      ports  = new ArrayList<BridgePort>();
+	final PriorityQueue<Event>  queue  = new PriorityQueue<Event>();
+
+	/** The events caused on other segments in the current window. */
+	final List<Event>           outbox = new ArrayList<Event>();
+
+	/** When the medium finishes its latest transmission. */
+	long                        busyUntil = 0;
+
+	/** The number of transmissions processed. */
+	long                        events    = 0;
+
+	/** The next segment toward the representative of its bridged group. */
+	Segment                     parent;
+
+    } // class Segment
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * One side of a bridge: a host that gathers what it hears, so that its
+     * peer can send it on the other segment.
+     */
+    private final class BridgePort extends Host {
+
+	BridgePort (Segment segment, String layerType, LayerConfig config,
+		    long latency, int index) {
+	    super(segment.medium, layerType, config);
+	    this.home    = segment;
+	    this.latency = latency;
+	    this.origin  = -1 - index;
+	}
+
+	/** Gather the data instead of buffering it. */
+	public int receive (byte[] data) {
+	    heard.add(data);
+	    return data.length;
+	}
+
+	/**
+	 * Schedule on the peer's segment everything heard, as arriving at the
+	 * given time.
+	 */
+	void forward (long time, List<Event> outbox) {
+	    for (byte[] data : heard) {
+		outbox.add(new Event(peer.home, time + latency, origin,
+				     forwards++, peer, data, null));
+	    }
+	    heard.clear();
+	}
+
+	/** The segment on which this port hears and sends. */
+	final Segment      home;
+
+	/** The delay of forwarding. */
+	final long         latency;
+
+	/** The origin of the events that this port causes. */
+	final long         origin;
+
+	/** The data heard since the last forward. */
+	final List<byte[]> heard = new ArrayList<byte[]>();
+
+	/** The port on the other segment. */
+	BridgePort         peer;
+
+	/** The number of events that this port has caused. */
+	long               forwards = 0;
+
+    } // class BridgePort
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // DATA MEMBERS
+
+    /** The seed from which every source of randomness is derived. */
+    private final long           seed;
+
+    /** The segments, in the order added. */
+    private final List<Segment>  segments     = new ArrayList<Segment>();
+
+    /** The hosts, in the order added, excluding bridge ports. */
+    private final List<Host>     hosts        = new ArrayList<Host>();
+
+    /** The segment of each host. */
+    private final List<Segment>  hostSegments = new ArrayList<Segment>();
+
+    /** The bridge ports, in pairs. */
+    private final List<BridgePort> ports      = new ArrayList<BridgePort>();
+
+    /** The smallest bridge latency, which bounds each window. */
+    private long                 lookahead    = Long.MAX_VALUE;
+
+    // The statistics of the run.
+    private int                  threads      = 0;
+    private long                 windows      = 0;
+    private long                 forwarded    = 0;
+    private long                 wallNanos    = 0;
+    private long                 delivered    = 0;
+    private Long                 digest       = null;
+    // =========================================================================
+
+
+
+// =============================================================================
+} // class SegmentedSimulation
+// =============================================================================
@@ -0,0 +1,537 @@
+// =============================================================================
+// IMPORTS
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+// =============================================================================
+
+
+
+// =============================================================================
+/**
+ * Runs the simulation over every combination of a matrix of medium types, data
+ * link layer types, error rates, frame sizes, and payload sizes.  Combinations
+ * run concurrently on a bounded pool, each with its own medium, hosts, and
+ * seeded noise, and the results are printed as a CSV or JSON table.
+ *
+ * @file   SimulationSweep.java
+ * @date   October 2026
+ */
+public class SimulationSweep {
+// =============================================================================
+
+
+
+    // =========================================================================
+    /**
+     * The entry point.  Interpret the command-line arguments, aborting if they
+     * are invalid, and then run the sweep.
+     *
+     * @param args The command-line arguments.
+     */
+    public static void main (String[] args) {
+
+	// The default matrix is a single run of the usual configuration.
+	String[] mediumTypes  = { "LowNoise" };
+	String[] layerTypes   = { "Dumb", "Parity", "CRC" };
+	String[] errorRates   = { Double.toString(LowNoiseMedium.DEFAULT_ERROR_PROBABILITY) };
+	String[] frameSizes   = { Integer.toString(DataLinkLayer.BITS_PER_BYTE) };
+	String[] payloadSizes = { "4096" };
+	int      threads      = Runtime.getRuntime().availableProcessors();
+	long     seed         = LowNoiseMedium.DEFAULT_SEED;
+	boolean  json         = false;
+	String   inputPath    = null;
+	String   outputPath   = null;
+
+	for (int i = 0; i < args.length; i += 2) {
+	    if (i + 1 >= args.length) {
+		usage();
+	    }
+	    String option = args[i];
+	    String value  = args[i + 1];
+	    if (option.equals("--media")) {
+		mediumTypes = value.split(",");
+	    } else if (option.equals("--layers")) {
+		layerTypes = value.split(",");
+	    } else if (option.equals("--error-rates")) {
+		errorRates = value.split(",");
+	    } else if (option.equals("--frame-sizes")) {
+		frameSizes = value.split(",");
+	    } else if (option.equals("--payload-sizes")) {
+		payloadSizes = value.split(",");
+	    } else if (option.equals("--threads")) {
+		threads = Integer.parseInt(value);
+	    } else if (option.equals("--seed")) {
+		seed = Long.parseLong(value);
+	    } else if (option.equals("--format") && value.equals("json")) {
+		json = true;
+	    } else if (option.equals("--format") && value.equals("csv")) {
+		json = false;
+	    } else if (option.equals("--input")) {
+		inputPath = value;
+	    } else if (option.equals("--out")) {
+		outputPath = value;
+	    } else {
+		usage();
+	    }
+	}
+
+	// Build the matrix.  Error rates only matter for noisy media, and frame
+	// sizes only for layers that split sends into frames, so collapse
+	// combinations that would be identical.
+	Set<Run> runs = new LinkedHashSet<Run>();
+	for (String mediumType : mediumTypes) {
+	    for (String layerType : layerTypes) {
+		for (String errorRate : errorRates) {
+		    for (String frameSize : frameSizes) {
+			for (String payloadSize : payloadSizes) {
+			    runs.add(new Run(mediumType,
+					     layerType,
+					     Double.parseDouble(errorRate),
+					     Integer.parseInt(frameSize),
+					     Integer.parseInt(payloadSize)));
+			}
+		    }
+		}
+	    }
+	}
+
+	byte[] input = null;
+	if (inputPath != null) {
+	    try {
+		input = Files.readAllBytes(Paths.get(inputPath));
+	    } catch (IOException e) {
+		throw new RuntimeException("Unexpected failure in reading " + inputPath);
+	    }
+	}
+
+	PrintStream output = System.out;
+	if (outputPath != null) {
+	    try {
+		output = new PrintStream(outputPath);
+	    } catch (FileNotFoundException e) {
+		throw new RuntimeException("Could not write " + outputPath);
+	    }
+	}
+
+	List<Result> results = sweep(new ArrayList<Run>(runs), threads, seed, input);
+	if (json) {
+	    printJSON(results, output);
+	} else {
+	    printCSV(results, output);
+	}
+	output.flush();
+	if (output != System.out) {
+	    output.close();
+	}
+
+    } // main ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Print the command-line usage and exit.
+     */
+    private static void usage () {
+
+	System.err.println("Usage: java SimulationSweep "    +
+			   "[--media <types>] "              +
+			   "[--layers <types>] "             +
+			   "[--error-rates <rates>] "        +
+			   "[--frame-sizes <sizes>] "        +
+			   "[--payload-sizes <sizes>] "      +
+			   "[--threads <count>] "            +
+			   "[--seed <seed>] "                +
+			   "[--format csv|json] "            +
+			   "[--input <payload file>] "       +
+			   "[--out <results file>]\n"        +
+			   "Lists are comma-separated.");
+	System.exit(1);
+
+    } // usage ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Run every combination on a bounded pool.
+     *
+     * @param  runs    The combinations to run.
+     * @param  threads The number of combinations to run at once.
+     * @param  seed    The seed from which each run's seed is derived.
+     * @param  input   The payload source, or <code>null</code> for random text.
+     * @return the results, in the order of the given runs.
+     */
+    public static List<Result> sweep (List<Run> runs,
+				      int       threads,
+				      long      seed,
+				      byte[]    input) {
+
+	ExecutorService      pool    = Executors.newFixedThreadPool(threads);
+	List<Future<Result>> futures = new ArrayList<Future<Result>>();
+	for (int i = 0; i < runs.size(); i += 1) {
+	    final Run    run     = runs.get(i);
+	    final long   runSeed = seed + i;
+	    final byte[] source  = input;
+	    futures.add(pool.submit(new Callable<Result>() {
+		    public Result call () {
+			return run.execute(runSeed, source);
+		    }
+		}));
+	}
+
+	List<Result> results = new ArrayList<Result>();
+	try {
+	    for (Future<Result> future : futures) {
+		results.add(future.get());
+	    }
+	} catch (InterruptedException e) {
+	    throw new RuntimeException("Sweep interrupted");
+	} catch (ExecutionException e) {
+	    throw new RuntimeException("Sweep run failed: " + e.getCause());
+	} finally {
+	    pool.shutdownNow();
+	}
+	return results;
+
+    } // sweep ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    private static void printCSV (List<Result> results, PrintStream output) {
+
+	output.println("medium,layer,error_rate,frame_size,payload_bytes," +
+		       "delivered_bytes,correct_bytes,seconds,"             +
+		       "throughput_bytes_per_sec,goodput_bytes_per_sec,"    +
+		       "residual_error_rate,allocated_bytes_per_byte");
+	for (Result r : results) {
+	    output.println(String.format(Locale.ROOT,
+					 "%s,%s,%g,%d,%d,%d,%d,%.6f,%.1f,%.1f,%.6g,%.2f",
+					 r.run.mediumType,
+					 r.run.layerType,
+					 r.run.errorRate,
+					 r.run.frameSize,
+					 r.run.payloadSize,
+					 r.deliveredBytes,
+					 r.correctBytes,
+					 r.seconds,
+					 r.throughput(),
+					 r.goodput(),
+					 r.residualErrorRate(),
+					 r.allocationPerByte()));
+	}
+
+    } // printCSV ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    private static void printJSON (List<Result> results, PrintStream output) {
+
+	output.println("[");
+	for (int i = 0; i < results.size(); i += 1) {
+	    Result r = results.get(i);
+	    output.print(String.format(Locale.ROOT,
+				       "  {\"medium\": \"%s\", \"layer\": \"%s\", "       +
+				       "\"error_rate\": %g, \"frame_size\": %d, "         +
+				       "\"payload_bytes\": %d, \"delivered_bytes\": %d, " +
+				       "\"correct_bytes\": %d, \"seconds\": %.6f, "       +
+				       "\"throughput_bytes_per_sec\": %.1f, "             +
+				       "\"goodput_bytes_per_sec\": %.1f, "                +
+				       "\"residual_error_rate\": %.6g, "                  +
+				       "\"allocated_bytes_per_byte\": %.2f}",
+				       r.run.mediumType,
+				       r.run.layerType,
+				       r.run.errorRate,
+				       r.run.frameSize,
+				       r.run.payloadSize,
+				       r.deliveredBytes,
+				       r.correctBytes,
+				       r.seconds,
+				       r.throughput(),
+				       r.goodput(),
+				       r.residualErrorRate(),
+				       r.allocationPerByte()));
+	    output.println(i < results.size() - 1 ? "," : "");
+	}
+	output.println("]");
+
+    } // printJSON ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * One combination of the matrix.
+     */
+    public static class Run {
+
+	public Run (String mediumType,
+		    String layerType,
+		    double errorRate,
+		    int    frameSize,
+		    int    payloadSize) {
+
+	    // Discard the parameters that the medium or layer ignores.
+	    Medium        medium = Medium.create(mediumType);
+	    DataLinkLayer layer  = new Host(medium, layerType).getDataLinkLayer();
+	    layer.setFrameSize(Math.max(frameSize, 1));
+
+	    this.mediumType  = mediumType;
+	    this.layerType   = layerType;
+	    this.errorRate   = (medium instanceof LowNoiseMedium) ? errorRate : 0;
+	    this.frameSize   = layer.frameSize;
+	    this.payloadSize = payloadSize;
+
+	}
+
+	/**
+	 * Perform the run in isolation, measuring the time and allocation of
+	 * the transfer on the calling thread.
+	 *
+	 * @param  seed  The seed for the run's noise and payload.
+	 * @param  input The payload source, or <code>null</code> for random text.
+	 * @return the measurements.
+	 */
+	Result execute (long seed, byte[] input) {
+
+	    Medium        medium   = Medium.create(mediumType,
+						   MediumConfig.DEFAULT
+						   .withErrorProbability(errorRate)
+						   .withSeed(seed));
+	    LayerConfig   config   = LayerConfig.DEFAULT.withFrameSize(frameSize);
+	    Host          sender   = new Host(medium, layerType, config);
+	    RecordingHost receiver = new RecordingHost(medium, layerType, config);
+	    byte[] payload = payload(seed, input);
+
+	    long allocatedBefore = allocatedBytes();
+	    long start           = System.nanoTime();
+	    sender.send(payload);
+	    receiver.retrieve();
+	    long elapsed         = System.nanoTime() - start;
+	    long allocated       = (allocatedBefore < 0) ? -1
+				                         : allocatedBytes() - allocatedBefore;
+
+	    Result result = new Result(this, elapsed / 1e9, allocated);
+	    receiver.score(payload, frameSize, result);
+	    return result;
+
+	}
+
+	/** Build a payload of this run's size, from the input or random text. */
+	private byte[] payload (long seed, byte[] input) {
+
+	    byte[] payload = new byte[payloadSize];
+	    if (input != null && input.length > 0) {
+		for (int i = 0; i < payloadSize; i += input.length) {
+		    System.arraycopy(input, 0, payload, i,
+				     Math.min(input.length, payloadSize - i));
+		}
+	    } else {
+		SplittableRandom random = new SplittableRandom(seed);
+		for (int i = 0; i < payloadSize; i += 1) {
+		    payload[i] = (byte)random.nextInt(' ', '~' + 1);
+		}
+	    }
+	    return payload;
+
+	}
+
+	public boolean equals (Object other) {
+
+	    if (!(other instanceof Run)) {
+		return false;
+	    }
+	    Run run = (Run)other;
+	    return mediumType.equals(run.mediumType) &&
+		   layerType.equals(run.layerType)   &&
+		   errorRate   == run.errorRate      &&
+		   frameSize   == run.frameSize      &&
+		   payloadSize == run.payloadSize;
+
+	}
+
+	public int hashCode () {
+
+	    return (mediumType + "/" + layerType + "/" + errorRate + "/" +
+		    frameSize + "/" + payloadSize).hashCode();
+
+	}
+
+	final String mediumType;
+	final String layerType;
+	final double errorRate;
+	final int    frameSize;
+	final int    payloadSize;
+
+    } // class Run
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * The measurements of one run.
+     */
+    public static class Result {
+
+	Result (Run run, double seconds, long allocatedBytes) {
+
+	    this.run            = run;
+	    this.seconds        = seconds;
+	    this.allocatedBytes = allocatedBytes;
+
+	}
+
+	double throughput () {
+	    return run.payloadSize / seconds;
+	}
+
+	double goodput () {
+	    return correctBytes / seconds;
+	}
+
+	/** The fraction of delivered bytes that are wrong. */
+	double residualErrorRate () {
+	    return deliveredBytes == 0 ? 0 : (double)corruptBytes / deliveredBytes;
+	}
+
+	double allocationPerByte () {
+	    return allocatedBytes < 0 ? Double.NaN
+		                      : (double)allocatedBytes / run.payloadSize;
+	}
+
+	final Run    run;
+	final double seconds;
+	final long   allocatedBytes;
+	long         deliveredBytes = 0;
+	long         correctBytes   = 0;
+	long         corruptBytes   = 0;
+
+    } // class Result
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * A receiving host that keeps the boundaries of the frames it receives, so
+     * that they can be matched against the payload.
+     */
+    private static class RecordingHost extends Host {
+
+	RecordingHost (Medium medium, String dataLinkLayerType, LayerConfig config) {
+	    super(medium, dataLinkLayerType, config);
+	}
+
+	public synchronized int receive (byte[] data) {
+	    frames.add(data);
+	    return data.length;
+	}
+
+	/**
+	 * Match each delivered frame against the payload, in order.  A frame
+	 * equal to one of the next few chunks of the payload is correct, and any
+	 * frames before it were lost; otherwise, the frame was corrupted and
+	 * passed its check, and its wrong bytes are counted.
+	 */
+	synchronized void score (byte[] payload, int frameSize, Result result) {
+
+	    int chunkSize = frameSize > 0 ? frameSize : payload.length;
+	    int chunk     = 0;
+	    int chunks    = (payload.length + chunkSize - 1) / chunkSize;
+	    for (byte[] frame : frames) {
+		result.deliveredBytes += frame.length;
+		int match = -1;
+		for (int c = chunk; c < Math.min(chunks, chunk + SEARCH_CHUNKS) && match < 0; c += 1) {
+		    if (chunkEquals(payload, c * chunkSize, chunkSize, frame)) {
+			match = c;
+		    }
+		}
+		if (match >= 0) {
+		    result.correctBytes += frame.length;
+		    chunk = match + 1;
+		} else {
+		    int start = Math.min(chunk * chunkSize, payload.length);
+		    for (int i = 0; i < frame.length; i += 1) {
+			if (start + i >= payload.length || frame[i] != payload[start + i]) {
+			    result.corruptBytes += 1;
+			} else {
+			    result.correctBytes += 1;
+			}
+		    }
+		    chunk += 1;
+		}
+	    }
+
+	}
+
+	private static boolean chunkEquals (byte[] payload, int start, int chunkSize, byte[] frame) {
+	    int length = Math.min(chunkSize, payload.length - start);
+	    if (length != frame.length) {
+		return false;
+	    }
+	    for (int i = 0; i < length; i += 1) {
+		if (payload[start + i] != frame[i]) {
+		    return false;
+		}
+	    }
+	    return true;
+	}
+
+	private final List<byte[]> frames = new ArrayList<byte[]>();
+
+	/** How far ahead to look for the chunk matching a frame. */
+	private static final int SEARCH_CHUNKS = 64;
+
+    } // class RecordingHost
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @return the bytes allocated so far by the calling thread, or
+     *         <code>-1</code> if the JVM does not support measuring them.
+     */
+    private static long allocatedBytes () {
+
+	java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+	if (bean instanceof com.sun.management.ThreadMXBean) {
+	    com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean)bean;
+	    if (sunBean.isThreadAllocatedMemorySupported()) {
+		return sunBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+	    }
+	}
+	return -1;
+
+    } // allocatedBytes ()
+    // =========================================================================
+
+
+
+// =============================================================================
+} // class SimulationSweep
+// =============================================================================
@@ -5,7 +5,11 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.PrintStream;
 import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 // =============================================================================
@@ -49,38 +53,237 @@ public class Simulator {
     */ 
     // ========= ========= =============
 
-	// Check the number of arguments passed.
-	if (args.length != 3) {
+	// A sweep runs a whole matrix of simulations instead.
+	if (args.length > 0 && args[0].equals("--sweep")) {
+	    SimulationSweep.main(Arrays.copyOfRange(args, 1, args.length));
+	    return;
+	}
 
-	    System.err.println("Usage: java Simulator "  +
-			       "<medium type> "          +
-			       "<data link layer type> " +
-			       "<transmission data file>");
-	    System.exit(1);
+	// A topology file describes a whole network instead.
+	if (args.length > 0 && args[0].equals("--topology")) {
+	    TopologyLoader.main(Arrays.copyOfRange(args, 1, args.length));
+	    return;
+	}
+
+	// Consume any leading options.
+	boolean parallelSend    = false;
+	int     verifierThreads = 0;
+	String  capturePath     = null;
+	String  stages          = "";
+	int     frameSize       = 0;
+	String  detector        = null;
+	String  lineCode        = null;
+	int     interleaveDepth = 0;
+	int     maxFrameLength  = 0;
+	String  delivery        = "store";
+	int     aggregate       = 0;
+	long    flushDelay      = LayerConfig.DEFAULT_AGGREGATE_DELAY_MILLIS;
+	int     messageSize     = 0;
+	boolean duplex          = false;
+	double  progress        = 0;
+	String  progressPath    = null;
+	String  checkpointPath  = null;
+	double  checkpointSecs  = DEFAULT_CHECKPOINT_SECONDS;
+	boolean resume          = false;
+	int     argIndex        = 0;
+	while (argIndex < args.length && args[argIndex].startsWith("--")) {
+	    String option = args[argIndex++];
+	    if (option.equals("--parallel")) {
+		parallelSend = true;
+	    } else if (option.equals("--duplex")) {
+		duplex = true;
+	    } else if (option.equals("--verifiers") && argIndex < args.length) {
+		verifierThreads = Integer.parseInt(args[argIndex++]);
+	    } else if (option.equals("--stages") && argIndex < args.length) {
+		stages = args[argIndex++];
+	    } else if (option.equals("--detector") && argIndex < args.length) {
+		detector = args[argIndex++];
+	    } else if (option.equals("--line-code") && argIndex < args.length) {
+		lineCode = args[argIndex++];
+	    } else if (option.equals("--interleave") && argIndex < args.length) {
+		interleaveDepth = Integer.parseInt(args[argIndex++]);
+	    } else if (option.equals("--max-frame-length") && argIndex < args.length) {
+		maxFrameLength = Integer.parseInt(args[argIndex++]);
+	    } else if (option.equals("--delivery") && argIndex < args.length) {
+		delivery = args[argIndex++];
+	    } else if (option.equals("--aggregate") && argIndex < args.length) {
+		aggregate = Integer.parseInt(args[argIndex++]);
+	    } else if (option.equals("--flush-delay") && argIndex < args.length) {
+		flushDelay = Long.parseLong(args[argIndex++]);
+	    } else if (option.equals("--message-size") && argIndex < args.length) {
+		messageSize = Integer.parseInt(args[argIndex++]);
+	    } else if (option.equals("--frame-size") && argIndex < args.length) {
+		frameSize = Integer.parseInt(args[argIndex++]);
+	    } else if (option.equals("--capture") && argIndex < args.length) {
+		capturePath = args[argIndex++];
+	    } else if (option.equals("--progress") && argIndex < args.length) {
+		progress = Double.parseDouble(args[argIndex++]);
+	    } else if (option.equals("--progress-log") && argIndex < args.length) {
+		progressPath = args[argIndex++];
+	    } else if (option.equals("--checkpoint") && argIndex < args.length) {
+		checkpointPath = args[argIndex++];
+	    } else if (option.equals("--checkpoint-interval") && argIndex < args.length) {
+		checkpointSecs = Double.parseDouble(args[argIndex++]);
+	    } else if (option.equals("--resume")) {
+		resume = true;
+	    } else {
+		usage();
+	    }
+	}
 
+	// Check the number of arguments passed.
+	if (args.length - argIndex != 3 || (resume && checkpointPath == null)) {
+	    usage();
+	}
+	if (checkpointPath != null && duplex) {
+	    throw new RuntimeException("Duplex simulations cannot be checkpointed");
+	}
+	if (resume && capturePath != null) {
+	    throw new RuntimeException("A capture cannot be resumed");
+	}
+	if (capturePath != null && lineCode != null && !lineCode.equals(LineCodes.NONE)) {
+	    // A capture would hold line symbols, which replay cannot decode.
+	    throw new RuntimeException("A capture cannot be taken with a line code");
 	}
 
 	// Assign names to the arguments.
-	String mediumType        = args[0];
-	String dataLinkLayerType = args[1];
-	String transmissionPath  = args[2];
+	String mediumType        = args[argIndex];
+	String dataLinkLayerType = args[argIndex + 1];
+	String transmissionPath  = args[argIndex + 2];
 
 	// Create the medium, then the sender and receiver.
-	Medium medium   = Medium.create(mediumType);
-	Host   sender   = new Host(medium, dataLinkLayerType);
-	Host   receiver = new Host(medium, dataLinkLayerType);
+	Medium        medium   = Medium.create(mediumType);
+	MediumCapture capture  = null;
+	if (capturePath != null) {
+	    capture = new MediumCapture(capturePath);
+	    medium.setCapture(capture);
+	}
+	LayerConfig   config   = LayerConfig.DEFAULT.withStages(stages.isEmpty()
+								    ? new String[0]
+								    : stages.split(","))
+	                                            .withFrameSize(frameSize)
+	                                            .withDetector(detector)
+	                                            .withLineCode(lineCode)
+	                                            .withInterleaveDepth(interleaveDepth)
+	                                            .withMaxFrameLength(maxFrameLength)
+	                                            .withDeliveryMode(DeliveryMode.forName(delivery))
+	                                            .withAggregation(aggregate, flushDelay);
+	Host          sender   = new Host(medium,
+					  dataLinkLayerType,
+					  config.withParallelSend(parallelSend));
+	Host          receiver = new Host(medium,
+					  dataLinkLayerType,
+					  config.withVerifierThreads(verifierThreads));
 
 	// Read the contents of the data to be transmitted into a buffer.
 	byte[] dataToTransmit = readFile(transmissionPath);
 
+	// Checkpoint the run, sending in messages so that there are quiet points
+	// at which to do so, and continue from the last checkpoint if resuming.
+	Checkpoint checkpoint = null;
+	long       resumeAt   = 0;
+	if (checkpointPath != null) {
+	    if (messageSize <= 0) {
+		messageSize = DEFAULT_CHECKPOINT_MESSAGE_SIZE;
+	    }
+	    checkpoint = new Checkpoint(checkpointPath,
+					Math.round(1000 * checkpointSecs),
+					describeRun(args, argIndex, dataToTransmit, messageSize),
+					medium,
+					sender,
+					receiver);
+	    if (resume) {
+		resumeAt = checkpoint.restore();
+		System.err.println("Resuming at byte " + resumeAt + " of " +
+				   dataToTransmit.length);
+	    }
+	}
+
+	// Report progress on the side, if requested.
+	ProgressReporter reporter = null;
+	PrintStream      log      = null;
+	if (progressPath != null) {
+	    try {
+		log = new PrintStream(progressPath);
+	    } catch (FileNotFoundException e) {
+		throw new RuntimeException("Could not write " + progressPath);
+	    }
+	}
+	if (progress > 0 || log != null) {
+	    long interval = Math.round(1000 * ((progress > 0) ? progress : DEFAULT_PROGRESS_SECONDS));
+	    reporter = new ProgressReporter(sender,
+					    receiver,
+					    medium,
+					    dataToTransmit.length,
+					    interval,
+					    System.err,
+					    log);
+	    reporter.start();
+	}
+
 	// Perform the simulation!
-	simulate(sender, receiver, dataToTransmit);
+	if (duplex) {
+	    simulateDuplex(sender, receiver, dataToTransmit, messageSize);
+	} else {
+	    simulate(sender, receiver, dataToTransmit, messageSize, (int)resumeAt, checkpoint);
+	}
+	if (lineCode != null && !lineCode.equals(LineCodes.NONE)) {
+	    printLineCodeSummary(lineCode, medium, sender, receiver);
+	}
+	if (reporter != null) {
+	    reporter.stop();
+	}
+	if (checkpoint != null) {
+	    checkpoint.close();
+	}
+	if (log != null) {
+	    log.close();
+	}
+	if (capture != null) {
+	    capture.close();
+	}
 
     } // main
     // =========================================================================
 
 
 
+    // =========================================================================
+    /**
+     * Print the command-line usage and exit.
+     */
+    private static void usage () {
+
+	System.err.println("Usage: java Simulator "  +
+			   "[--parallel] "           +
+			   "[--duplex] "             +
+			   "[--verifiers <threads>] " +
+			   "[--stages <stage,...>] " +
+			   "[--frame-size <bytes>] " +
+			   "[--detector <name>] " +
+			   "[--line-code none|8b10b|4b5b|manchester] " +
+			   "[--interleave <depth>] " +
+			   "[--max-frame-length <bytes>] " +
+			   "[--delivery store|cut-through|speculative] " +
+			   "[--aggregate <bytes>] " +
+			   "[--flush-delay <millis>] " +
+			   "[--message-size <bytes>] " +
+			   "[--capture <capture file>] " +
+			   "[--progress <seconds>] " +
+			   "[--progress-log <file>] " +
+			   "[--checkpoint <file> [--checkpoint-interval <seconds>] [--resume]] " +
+			   "<medium type> "          +
+			   "<data link layer type> " +
+			   "<transmission data file>\n" +
+			   "       java Simulator --sweep [sweep options]\n" +
+			   "       java Simulator --topology [--threads <count>] [--check] <topology file>");
+	System.exit(1);
+
+    } // usage ()
+    // =========================================================================
+
+
+
     // =========================================================================
     /**
      * Read the whole contents of a given file, returning it in a byte array.
@@ -124,23 +327,339 @@ public class Simulator {
      * receiver.  Verify that the receiver fully receives the complete and
      * correct data.
      *
-     * @param sender   The sending host.
-     * @param receiver The receiving host.
-     * @param data     The data to be sent.
+     * @param sender      The sending host.
+     * @param receiver    The receiving host.
+     * @param data        The data to be sent.
+     * @param messageSize The number of bytes passed to each send, or
+     *                    <code>0</code> to send the data in one call.
+     * @param from        The offset in the data from which to send, when
+     *                    resuming from a checkpoint.
+     * @param checkpoint  The checkpoint to keep, or <code>null</code>.
      */
-    private static void simulate (Host sender, Host receiver, byte[] data) {
+    private static void simulate (Host       sender,
+				  Host       receiver,
+				  byte[]     data,
+				  int        messageSize,
+				  int        from,
+				  Checkpoint checkpoint) {
 
-	sender.send(data);
+	sendMessages(sender, data, messageSize, from, checkpoint);
 	byte[] received = receiver.retrieve();
 	System.out.println("Transmission received:  " + new String(received));
 	System.out.println("Transmission succeeded: " +
 			   Arrays.equals(data, received));
+	printStageSummaries("Sender", sender);
+	printStageSummaries("Receiver", receiver);
+	DataLinkLayer layer = receiver.getDataLinkLayer();
+	if (sender.getDataLinkLayer().getAggregator() != null) {
+	    System.out.println("Sender " + sender.getDataLinkLayer().getAggregator().summary());
+	    System.out.println("Receiver " + layer.getAggregator().summary());
+	}
+	if (layer.getFrameOverruns() > 0 ||
+	    layer.getBufferOverruns() > 0 ||
+	    receiver.getDroppedBytes() > 0) {
+	    System.out.println("Receiver overruns:      " +
+			       layer.getFrameOverruns() + " frames, " +
+			       layer.getBufferOverruns() + " buffered bytes, " +
+			       receiver.getDroppedBytes() + " delivered bytes");
+	}
+	if (layer instanceof StagedDataLinkLayer &&
+	    ((StagedDataLinkLayer)layer).getRetractions() > 0) {
+	    StagedDataLinkLayer staged = (StagedDataLinkLayer)layer;
+	    System.out.println("Receiver retractions:   " +
+			       staged.getRetractions() + " frames, " +
+			       staged.getUnretractedBytes() + " bytes already taken");
+	}
 
     } // simulate()
     // =========================================================================
 
 
 
+    // =========================================================================
+    /**
+     * Perform a full-duplex simulation, in which each host sends the given
+     * data to the other at the same time, the second host sending it in
+     * reverse.  Verify that each fully receives the other's data, and report
+     * how much of the medium each direction used.
+     *
+     * @param first       One host.
+     * @param second      The other host.
+     * @param data        The data to be sent.
+     * @param messageSize The number of bytes passed to each send, or
+     *                    <code>0</code> to send the data in one call.
+     */
+    private static void simulateDuplex (Host         first,
+					Host         second,
+					final byte[] data,
+					final int    messageSize) {
+
+	final byte[] reversed = new byte[data.length];
+	for (int i = 0; i < data.length; i += 1) {
+	    reversed[i] = data[data.length - 1 - i];
+	}
+	final byte[][] received = new byte[2][];
+
+	long start = System.nanoTime();
+	first.start(new Consumer<Host>() {
+		public void accept (Host host) {
+		    received[0] = exchange(host, data, reversed.length, messageSize);
+		}
+	    });
+	second.start(new Consumer<Host>() {
+		public void accept (Host host) {
+		    received[1] = exchange(host, reversed, data.length, messageSize);
+		}
+	    });
+	try {
+	    first.join();
+	    second.join();
+	} catch (InterruptedException e) {
+	    throw new RuntimeException("Interrupted while awaiting the hosts");
+	}
+	double secs = (System.nanoTime() - start) / 1e9;
+
+	System.out.println("Forward succeeded:      " + Arrays.equals(data, received[1]));
+	System.out.println("Reverse succeeded:      " + Arrays.equals(reversed, received[0]));
+	long forward = first.getDataLinkLayer().getBytesTransmitted();
+	long reverse = second.getDataLinkLayer().getBytesTransmitted();
+	printUtilization("Forward", data.length, forward, forward + reverse);
+	printUtilization("Reverse", reversed.length, reverse, forward + reverse);
+	System.out.printf("Aggregate utilization:  %.1f%% of %d bytes on the medium" +
+			  " carried data, %.0f data bytes/s\n",
+			  100.0 * (data.length + reversed.length) /
+			  Math.max(1, forward + reverse),
+			  forward + reverse,
+			  (data.length + reversed.length) / secs);
+	printDuplexSummary("First", first);
+	printDuplexSummary("Second", second);
+
+    } // simulateDuplex()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Send data from a host, then take the given number of bytes sent to it,
+     * giving up only once they stop arriving.
+     *
+     * @return the bytes taken, or <code>null</code> if they stopped arriving.
+     */
+    private static byte[] exchange (Host   host,
+				    byte[] data,
+				    int    expected,
+				    int    messageSize) {
+
+	sendMessages(host, data, messageSize);
+	try {
+	    return host.take(expected, DUPLEX_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+	} catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	    return null;
+	}
+
+    } // exchange()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Send data from a host in messages of the given size, or whole, then
+     * flush whatever the host's layer holds.
+     */
+    private static void sendMessages (Host host, byte[] data, int messageSize) {
+
+	sendMessages(host, data, messageSize, 0, null);
+
+    } // sendMessages()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Send data from a host, from the given offset, in messages of the given
+     * size, or whole, then flush whatever the host's layer holds.  After each
+     * message, the checkpoint, if any, is told how far the data has been
+     * sent.
+     */
+    private static void sendMessages (Host       host,
+				      byte[]     data,
+				      int        messageSize,
+				      int        from,
+				      Checkpoint checkpoint) {
+
+	if (messageSize <= 0) {
+	    host.send(data);
+	} else {
+	    for (int start = from; start < data.length; start += messageSize) {
+		int end = Math.min(start + messageSize, data.length);
+		host.send(Arrays.copyOfRange(data, start, end));
+		if (checkpoint != null) {
+		    checkpoint.reached(end);
+		}
+	    }
+	}
+	host.flush();
+
+    } // sendMessages()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Describe a run for its checkpoints: the options that shape it, the
+     * medium and layer types, and the data by its length and CRC-32, in place
+     * of its path.  Options that only watch the run, or name the checkpoint,
+     * are left out.
+     */
+    private static String describeRun (String[] args,
+				       int      argIndex,
+				       byte[]   data,
+				       int      messageSize) {
+
+	StringBuilder run = new StringBuilder();
+	for (int i = 0; i < argIndex; i += 1) {
+	    String option = args[i];
+	    if (option.equals("--resume")) {
+		continue;
+	    }
+	    if (option.equals("--progress")            ||
+		option.equals("--progress-log")        ||
+		option.equals("--capture")             ||
+		option.equals("--checkpoint")          ||
+		option.equals("--checkpoint-interval") ||
+		option.equals("--message-size")) {
+		i += 1;
+		continue;
+	    }
+	    run.append(option).append(' ');
+	    if (i + 1 < argIndex && !args[i + 1].startsWith("--")) {
+		run.append(args[++i]).append(' ');
+	    }
+	}
+	CRC32 crc = new CRC32();
+	crc.update(data);
+	run.append(args[argIndex]).append(' ')
+	   .append(args[argIndex + 1]).append(' ')
+	   .append("--message-size ").append(messageSize).append(' ')
+	   .append(data.length).append(" bytes, CRC-32 ")
+	   .append(Long.toHexString(crc.getValue()));
+	return run.toString();
+
+    } // describeRun()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Print how much of the medium one direction used, and how much of that
+     * carried data.
+     */
+    private static void printUtilization (String direction,
+					  long   dataBytes,
+					  long   transmitted,
+					  long   total) {
+
+	System.out.printf("%-23s %d bytes on the medium (%.1f%% of all)," +
+			  " %.1f%% of them data\n",
+			  direction + " utilization:",
+			  transmitted,
+			  100.0 * transmitted / Math.max(1, total),
+			  100.0 * dataBytes / Math.max(1, transmitted));
+
+    } // printUtilization()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Print what a host's duplex layer sent, if it has one.
+     */
+    private static void printDuplexSummary (String role, Host host) {
+
+	DataLinkLayer layer = host.getDataLinkLayer();
+	if (layer instanceof DuplexDataLinkLayer) {
+	    System.out.println(role + " " + ((DuplexDataLinkLayer)layer).summary());
+	}
+
+    } // printDuplexSummary()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Print what the payload stages of a host's layer did, if it has any.
+     */
+    private static void printStageSummaries (String role, Host host) {
+
+	DataLinkLayer layer = host.getDataLinkLayer();
+	if (!(layer instanceof StagedDataLinkLayer)) {
+	    return;
+	}
+	for (PayloadStage stage : ((StagedDataLinkLayer)layer).getPayloadStages()) {
+	    System.out.println(role + " " + stage.summary());
+	}
+
+    } // printStageSummaries()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Print what the line code cost in bandwidth, and the code violations
+     * that the hosts received.
+     */
+    private static void printLineCodeSummary (String lineCode,
+					      Medium medium,
+					      Host   first,
+					      Host   second) {
+
+	long framedBits = DataLinkLayer.BITS_PER_BYTE *
+	                  (first.getDataLinkLayer().getBytesTransmitted() +
+			   second.getDataLinkLayer().getBytesTransmitted());
+	long lineBits   = medium.getBitsCarried();
+	System.out.println(String.format(Locale.ROOT,
+					 "Line code:              %s, %d line bits for %d " +
+					 "framed bits (%.3fx), %d code violations",
+					 lineCode, lineBits, framedBits,
+					 (double)lineBits / Math.max(1, framedBits),
+					 first.getDataLinkLayer().getCodeViolations() +
+					 second.getDataLinkLayer().getCodeViolations()));
+
+    } // printLineCodeSummary()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // DATA MEMBERS
+
+    /**
+     * How long a host in a duplex simulation waits for the other's data
+     * while none arrives.
+     */
+    private static final long DUPLEX_TIMEOUT_SECONDS = 60;
+
+    /** How often progress is reported when only a progress log is given. */
+    private static final double DEFAULT_PROGRESS_SECONDS = 1;
+
+    /** How often a checkpoint is taken, unless set. */
+    private static final double DEFAULT_CHECKPOINT_SECONDS = 60;
+
+    /** The size of the messages sent when checkpointing, unless set. */
+    private static final int    DEFAULT_CHECKPOINT_MESSAGE_SIZE = 64 * 1024;
+    // =========================================================================
+
+
+
 // =============================================================================
 } // class Simulator
 // =============================================================================
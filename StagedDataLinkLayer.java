@@ -0,0 +1,848 @@
+// =============================================================================
+// IMPORTS
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+// =============================================================================
+
+
+
+// =============================================================================
+/**
+ * A data link layer assembled from stages.  Every frame is delimited with
+ * start/stop tags and byte packing; the error-detection stages each append a
+ * trailer.  The stages are fused when the layer is assembled: framing escapes
+ * each byte and updates every detector in the same pass over the data, and
+ * deframing unescapes each byte and checks it in the same pass, so adding a
+ * detector costs no extra traversal or copy.
+ *
+ * Payload stages, such as compression, transform each send before it is
+ * framed, and transform the data of each correct frame back before delivery.
+ *
+ * As the type <code>Staged</code>, the stages are named by the layer's
+ * configuration (see <code>LayerConfig.withStages()</code>).
+ *
+ * @file   StagedDataLinkLayer.java
+ * @date   October 2026
+ */
+public class StagedDataLinkLayer extends DataLinkLayer {
+// =============================================================================
+
+
+
+    // =========================================================================
+    // PUBLIC METHODS
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Assemble a layer that frames each send whole, with no error detection.
+     */
+    public StagedDataLinkLayer () {
+
+	this(0);
+
+    } // StagedDataLinkLayer ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Assemble a layer from its stages.
+     *
+     * @param frameSize The number of data bytes per frame, or <code>0</code> to
+     *                  frame each send whole.
+     * @param detectors The error-detection stages, whose trailers follow the
+     *                  data in this order.
+     */
+    public StagedDataLinkLayer (int frameSize, ErrorDetector... detectors) {
+
+	this(frameSize, new PayloadStage[0], detectors);
+
+    } // StagedDataLinkLayer ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Assemble a layer from its stages.
+     *
+     * @param frameSize     The number of data bytes per frame, or
+     *                      <code>0</code> to frame each send whole.
+     * @param payloadStages The stages that transform each send, in the order
+     *                      in which they apply; received data passes through
+     *                      them in the reverse order.
+     * @param detectors     The error-detection stages, whose trailers follow
+     *                      the data in this order.
+     */
+    public StagedDataLinkLayer (int             frameSize,
+				PayloadStage[]  payloadStages,
+				ErrorDetector... detectors) {
+
+	this.frameSize     = frameSize;
+	this.payloadStages = payloadStages.clone();
+	this.frame         = new byte[INITIAL_FRAME_SIZE];
+	setDetectors(detectors);
+
+    } // StagedDataLinkLayer ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Find a payload stage by name.  Each call creates a new stage, since
+     * payload stages have state.
+     *
+     * @param  name The name of the stage: <code>lz4</code>.
+     * @return the stage, or <code>null</code> if there is no such stage.
+     */
+    public static PayloadStage payloadStage (String name) {
+
+	if (name.equals("lz4")) {
+	    return new CompressionStage();
+	}
+	return null;
+
+    } // payloadStage ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Replace the error-detection stages with the given detector.
+     *
+     * @param detector The detector whose trailer every frame will carry.
+     */
+    public void setDetector (ErrorDetector detector) {
+
+	setDetectors(detector);
+
+    } // setDetector ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Select when received data is handed to the client.  Cut-through
+     * delivery needs a layer with no error detection; neither streaming mode
+     * may be combined with payload stages, which decode whole frames, or with
+     * verifier threads, which check and deliver whole frames.  A
+     * speculatively delivered frame that never ends is not retracted until
+     * the start tag of a later frame arrives.
+     *
+     * @param mode The delivery mode.
+     * @throws RuntimeException if this layer's stages do not allow the mode.
+     */
+    public void setDeliveryMode (DeliveryMode mode) {
+
+	if (mode != DeliveryMode.STORE_AND_FORWARD && payloadStages.length > 0) {
+	    throw new RuntimeException("Payload stages need store-and-forward delivery");
+	}
+	if (mode == DeliveryMode.CUT_THROUGH && trailerLength > 0) {
+	    throw new RuntimeException("Cut-through delivery would skip error detection; " +
+				       "use speculative delivery");
+	}
+	if (mode != DeliveryMode.STORE_AND_FORWARD && hasVerifierThreads()) {
+	    throw new RuntimeException("Verifier threads need store-and-forward delivery");
+	}
+	deliveryMode = mode;
+
+    } // setDeliveryMode ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Check received frames with verifier threads, which deliver whole
+     * frames, and so only with store-and-forward delivery.
+     *
+     * @throws RuntimeException if a streaming delivery mode is selected.
+     */
+    public void setVerifierThreads (int threads) {
+
+	if (threads > 0 && deliveryMode != DeliveryMode.STORE_AND_FORWARD) {
+	    throw new RuntimeException("Verifier threads need store-and-forward delivery");
+	}
+	super.setVerifierThreads(threads);
+
+    } // setVerifierThreads ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @return the number of speculatively delivered frames retracted after
+     *         failing their checks.
+     */
+    public long getRetractions () {
+
+	return retractions;
+
+    } // getRetractions ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @return the number of speculatively delivered bytes that could not be
+     *         retracted, because the client had already taken them.
+     */
+    public long getUnretractedBytes () {
+
+	return unretractedBytes;
+
+    } // getUnretractedBytes ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /** @return the payload stages of this layer, in the order of sending. */
+    public PayloadStage[] getPayloadStages () {
+
+	return payloadStages.clone();
+
+    } // getPayloadStages ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Pass the data, a whole batch of messages if aggregating, through the
+     * payload stages, then send it.
+     *
+     * @param data The sequence of bytes to send.
+     */
+    protected void sendPayload (byte[] data) {
+
+	for (int i = 0; i < payloadStages.length; i += 1) {
+	    data = payloadStages[i].encode(data);
+	}
+	super.sendPayload(data);
+
+    } // sendPayload ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Pass the data of a correct frame back through the payload stages, then
+     * deliver whatever they produce.
+     *
+     * @param data The data extracted from a correct frame.
+     */
+    protected void deliver (byte[] data) {
+
+	for (int i = payloadStages.length - 1; i >= 0; i -= 1) {
+	    data = payloadStages[i].decode(data);
+	}
+	if (payloadStages.length == 0 || data.length > 0) {
+	    super.deliver(data);
+	}
+
+    } // deliver ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // FRAMING
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Embed a raw sequence of bytes into a sequence of frames, escaping the
+     * data and the trailers and computing the trailers in a single pass.  Runs
+     * of bytes that need no escaping are found by the scanner, and each run
+     * is checked and then copied whole.
+     *
+     * @param  data The raw sequence of bytes to be framed.
+     * @return The complete frames.
+     */
+    protected byte[] createFrame (byte[] data) {
+
+	// Frames that split the data carry nothing if there is no data.
+	int frameCount = (frameSize == 0) ? 1
+	                                  : (data.length + frameSize - 1) / frameSize;
+	if (frameCount == 0) {
+	    return new byte[0];
+	}
+
+	// Room for every byte escaped, plus the tags of each frame.
+	byte[] framed = new byte[2 * (data.length + frameCount * (trailerLength + 1))];
+	long[] state  = new long[detectors.length];
+	int    out    = 0;
+	int    start  = 0;
+	for (int f = 0; f < frameCount; f += 1) {
+
+	    int end = (frameSize == 0) ? data.length
+		                       : Math.min(start + frameSize, data.length);
+	    for (int d = 0; d < detectors.length; d += 1) {
+		state[d] = detectors[d].start();
+	    }
+
+	    // Begin with the start tag, then each run of ordinary data bytes,
+	    // each followed by an escaped tag unless it ends the frame.
+	    framed[out++] = startTag;
+	    int i = start;
+	    while (i < end) {
+		int next = scanner.next(data, i, end);
+		update(state, data, i, next);
+		System.arraycopy(data, i, framed, out, next - i);
+		out += next - i;
+		if (next < end) {
+		    update(state, data, next, next + 1);
+		    framed[out++] = escapeTag;
+		    framed[out++] = data[next];
+		    next += 1;
+		}
+		i = next;
+	    }
+
+	    // Follow with each trailer, most significant byte first.
+	    for (int d = 0; d < detectors.length; d += 1) {
+		long trailer = detectors[d].trailer(state[d]);
+		for (int b = detectors[d].length() - 1; b >= 0; b -= 1) {
+		    out = escape((byte)(trailer >>> (8 * b)), framed, out);
+		}
+	    }
+
+	    // End with a stop tag.
+	    framed[out++] = stopTag;
+	    start = end;
+
+	}
+
+	return (out == framed.length) ? framed : Arrays.copyOf(framed, out);
+
+    } // createFrame ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Append a byte to a frame, preceded by an escape tag if it is itself a
+     * metadata tag.
+     *
+     * @return the position following the appended byte.
+     */
+    private int escape (byte current, byte[] framed, int out) {
+
+	if ((current == startTag) ||
+	    (current == stopTag) ||
+	    (current == escapeTag)) {
+	    framed[out++] = escapeTag;
+	}
+	framed[out++] = current;
+	return out;
+
+    } // escape ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Install the error-detection stages.  Only safe before any data has been
+     * sent or received.
+     */
+    private void setDetectors (ErrorDetector... detectors) {
+
+	int length = 0;
+	for (int i = 0; i < detectors.length; i += 1) {
+	    length += detectors[i].length();
+	}
+	this.detectors     = detectors.clone();
+	this.states        = new long[detectors.length];
+	this.trailerLength = length;
+
+    } // setDetectors ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Update every detector's state with a range of data bytes.
+     */
+    private void update (long[] state, byte[] data, int from, int to) {
+
+	for (int d = 0; d < detectors.length; d += 1) {
+	    state[d] = detectors[d].update(state[d], data, from, to);
+	}
+
+    } // update ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // DEFRAMING
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Consume the buffered bytes, extracting and checking a frame in a single
+     * pass.  Each byte is examined only once, as it arrives; anything outside
+     * of a frame is discarded, as is any partial frame followed by an
+     * unescaped start tag or grown past the maximum frame length.
+     *
+     * @return the data of a complete, correct frame; <code>null</code> if no
+     *         frame is complete or if the completed frame is damaged.
+     */
+    protected byte[] processFrame () {
+
+	if (!deframe(true)) {
+	    return null;
+	}
+	boolean correct = !violated && frameLength >= trailerLength &&
+	                  checkTrailers(frame, frameLength - trailerLength, states);
+	if (!correct) {
+	    checksumFailed(frameLength);
+	}
+
+	// A streamed frame's data has already been delivered, and is withdrawn
+	// if it turns out to be damaged.
+	if (deliveryMode != DeliveryMode.STORE_AND_FORWARD) {
+	    if (!correct) {
+		retract();
+	    }
+	    streamed         = 0;
+	    streamedReceipts = 0;
+	    return null;
+	}
+	return correct ? Arrays.copyOf(frame, frameLength - trailerLength) : null;
+
+    } // processFrame ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Consume the buffered bytes, extracting a frame without checking it.
+     *
+     * @return the contents of a complete frame, with its trailers;
+     *         <code>null</code> if no frame is complete.
+     */
+    protected byte[] extractFrame () {
+
+	if (!deframe(false)) {
+	    return null;
+	}
+	if (violated) {
+	    checksumFailed(frameLength);
+	    return null;
+	}
+	return Arrays.copyOf(frame, frameLength);
+
+    } // extractFrame ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Check the trailers of an extracted frame.  Uses no state of this layer,
+     * and so may be called concurrently.
+     *
+     * @param  frame The extracted frame, with its trailers.
+     * @return the data without its trailers if they match; <code>null</code>
+     *         otherwise.
+     */
+    protected byte[] checkFrame (byte[] frame) {
+
+	if (frame.length < trailerLength) {
+	    return null;
+	}
+	int    dataLength = frame.length - trailerLength;
+	long[] state      = new long[detectors.length];
+	for (int d = 0; d < detectors.length; d += 1) {
+	    state[d] = detectors[d].start();
+	}
+	update(state, frame, 0, dataLength);
+	return checkTrailers(frame, dataLength, state) ? Arrays.copyOf(frame, dataLength)
+	                                               : null;
+
+    } // checkFrame ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Run the deframing state machine over the buffered bytes, consuming them
+     * up to the end of a frame or of the buffer.  Between special bytes, each
+     * run of ordinary bytes is found by the scanner and appended whole.
+     *
+     * @param  check Whether to update the detectors' states as data arrives.
+     *               Once a byte can no longer be part of a trailer, it is data.
+     * @return <code>true</code> if a frame was completed, whose contents are
+     *         then the first <code>frameLength</code> bytes of
+     *         <code>frame</code>.
+     */
+    private boolean deframe (boolean check) {
+
+	int     i        = 0;
+	boolean complete = false;
+	while (i < byteCount && !complete) {
+
+	    // Outside of a frame, discard everything up to a start tag.
+	    if (!inFrame) {
+		int next = scanner.next(byteBuffer, i, byteCount);
+		if (next < byteCount && byteBuffer[next] == startTag) {
+		    startFrame(check);
+		}
+		i = next + 1;
+		continue;
+	    }
+
+	    // An escaped byte is literal data.
+	    if (escaped) {
+		escaped = false;
+		append(byteBuffer, i, i + 1, check);
+		i += 1;
+		continue;
+	    }
+
+	    // Take the run up to the next special byte as literal data, unless
+	    // the frame overruns and must be abandoned.  The special byte is
+	    // then...
+	    //   (a) An escape tag: Take what follows as literal data.
+	    //   (b) A stop tag:    End the frame.
+	    //   (c) A start tag:   All that precedes is damaged, so restart.
+	    int next = scanner.next(byteBuffer, i, byteCount);
+	    if (!append(byteBuffer, i, next, check)) {
+		i = next;
+		continue;
+	    }
+	    if (next < byteCount) {
+		byte current = byteBuffer[next];
+		if (current == escapeTag) {
+		    escaped = true;
+		} else if (current == stopTag) {
+		    inFrame  = false;
+		    complete = true;
+		} else {
+		    resynchronized(frameLength);
+		    startFrame(check);
+		}
+	    }
+	    i = next + 1;
+
+	}
+	consumeBytes(Math.min(i, byteCount));
+	return complete;
+
+    } // deframe ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Discard everything received so far, including any partial frame.
+     */
+    protected void resetReceiver () {
+
+	super.resetReceiver();
+	inFrame     = false;
+	escaped     = false;
+	violated    = false;
+	frameLength = 0;
+
+    } // resetReceiver ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Mark the frame being received, if any, as damaged by a code violation,
+     * to be rejected whatever its check says.
+     */
+    protected void codeViolation () {
+
+	if (inFrame) {
+	    violated = true;
+	}
+
+    } // codeViolation ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Write the frame being deframed, with the detectors' states over it.
+     * Payload stages hold state of their own, and so cannot be checkpointed.
+     */
+    protected void writeState (DataOutputStream out) throws IOException {
+
+	if (payloadStages.length > 0) {
+	    throw new RuntimeException("Payload stages cannot be checkpointed");
+	}
+	super.writeState(out);
+	for (int d = 0; d < states.length; d += 1) {
+	    out.writeLong(states[d]);
+	}
+	out.writeInt(frameLength);
+	out.write(frame, 0, frameLength);
+	out.writeInt(streamed);
+	out.writeInt(streamedReceipts);
+	out.writeLong(retractions);
+	out.writeLong(unretractedBytes);
+	out.writeBoolean(inFrame);
+	out.writeBoolean(escaped);
+	out.writeBoolean(violated);
+
+    } // writeState ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    protected void readState (DataInputStream in) throws IOException {
+
+	super.readState(in);
+	for (int d = 0; d < states.length; d += 1) {
+	    states[d] = in.readLong();
+	}
+	frameLength = in.readInt();
+	if (frameLength > frame.length) {
+	    frame = new byte[frameLength];
+	}
+	in.readFully(frame, 0, frameLength);
+	streamed         = in.readInt();
+	streamedReceipts = in.readInt();
+	retractions      = in.readLong();
+	unretractedBytes = in.readLong();
+	inFrame          = in.readBoolean();
+	escaped          = in.readBoolean();
+	violated         = in.readBoolean();
+
+    } // readState ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    private void startFrame (boolean check) {
+
+	retract();
+	inFrame     = true;
+	escaped     = false;
+	violated    = false;
+	frameLength = 0;
+	if (check) {
+	    for (int d = 0; d < detectors.length; d += 1) {
+		states[d] = detectors[d].start();
+	    }
+	}
+
+    } // startFrame ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Append a run of received bytes to the frame, and if checking, update the
+     * detectors with the bytes that are now known to be data.  A frame that
+     * would grow past the maximum frame length is instead abandoned, leaving
+     * the deframer to skip ahead to the next start tag.
+     *
+     * @return whether the bytes were appended.
+     */
+    private boolean append (byte[] source, int from, int to, boolean check) {
+
+	int length = to - from;
+	if (frameLength + length > getMaxFrameLength()) {
+	    retract();
+	    resynchronized(frameLength);
+	    frameOverruns += 1;
+	    inFrame        = false;
+	    escaped        = false;
+	    frameLength    = 0;
+	    return false;
+	}
+	if (frameLength + length > frame.length) {
+	    frame = Arrays.copyOf(frame, Math.min(Math.max(frame.length * 2, frameLength + length),
+						  getMaxFrameLength()));
+	}
+	System.arraycopy(source, from, frame, frameLength, length);
+	int previous = frameLength;
+	frameLength += length;
+	if (check) {
+	    int dataStart = Math.max(0, previous - trailerLength);
+	    int dataEnd   = Math.max(0, frameLength - trailerLength);
+	    update(states, frame, dataStart, dataEnd);
+	    if (deliveryMode != DeliveryMode.STORE_AND_FORWARD && dataEnd > dataStart) {
+		int buffered = deliverUnchecked(Arrays.copyOfRange(frame, dataStart, dataEnd));
+		if (buffered > 0) {
+		    streamed         += buffered;
+		    streamedReceipts += 1;
+		}
+	    }
+	}
+	return true;
+
+    } // append ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Withdraw from the client whatever has been streamed of the current
+     * frame, which is damaged.
+     */
+    private void retract () {
+
+	if (streamed > 0) {
+	    retractions      += 1;
+	    unretractedBytes += streamed - client.retract(streamed, streamedReceipts);
+	}
+	streamed         = 0;
+	streamedReceipts = 0;
+
+    } // retract ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @return whether the trailers following the data match the detectors'
+     *         final states.
+     */
+    private boolean checkTrailers (byte[] frame, int dataLength, long[] state) {
+
+	int position = dataLength;
+	for (int d = 0; d < detectors.length; d += 1) {
+	    long expected = detectors[d].trailer(state[d]);
+	    for (int b = detectors[d].length() - 1; b >= 0; b -= 1) {
+		if (frame[position++] != (byte)(expected >>> (8 * b))) {
+		    return false;
+		}
+	    }
+	}
+	return true;
+
+    } // checkTrailers ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Provides this data link layer under the name <code>Staged</code>, with
+     * the stages named by the configuration.
+     */
+    public static class Provider implements DataLinkLayerProvider {
+
+	public String name () {
+	    return "Staged";
+	}
+
+	public DataLinkLayer create (LayerConfig config) {
+	    List<PayloadStage>  payloadStages = new ArrayList<PayloadStage>();
+	    List<ErrorDetector> detectors     = new ArrayList<ErrorDetector>();
+	    for (String name : config.getStages()) {
+		PayloadStage stage = payloadStage(name);
+		if (stage != null) {
+		    payloadStages.add(stage);
+		} else {
+		    detectors.add(ErrorDetectors.forName(name));
+		}
+	    }
+	    return new StagedDataLinkLayer(config.getFrameSize(),
+					   payloadStages.toArray(new PayloadStage[0]),
+					   detectors.toArray(new ErrorDetector[0]));
+	}
+
+    } // class Provider
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // DATA MEMBERS
+
+    /** The payload stages, in the order in which they apply to sends. */
+    private final PayloadStage[]  payloadStages;
+
+    /** The error-detection stages, in the order of their trailers. */
+    private ErrorDetector[]       detectors;
+
+    /** The total length of the trailers. */
+    private int                   trailerLength;
+
+    /** The detectors' states while deframing. */
+    private long[]                states;
+
+    /** The contents of the frame being deframed. */
+    private byte[]                frame;
+
+    /** The number of bytes in the frame being deframed. */
+    private int                   frameLength = 0;
+
+    /** When received data is handed to the client. */
+    private DeliveryMode          deliveryMode = DeliveryMode.STORE_AND_FORWARD;
+
+    // The bytes of the current frame already delivered and buffered by the
+    // client, and the number of times the client received them.
+    private int                   streamed         = 0;
+    private int                   streamedReceipts = 0;
+
+    // The counts of retracted frames, and of bytes that could not be.
+    private long                  retractions      = 0;
+    private long                  unretractedBytes = 0;
+
+    /** Whether a start tag has been found. */
+    private boolean               inFrame     = false;
+
+    /** Whether the previous byte was an escape tag. */
+    private boolean               escaped     = false;
+
+    /** Whether a code violation was received within the current frame. */
+    private boolean               violated    = false;
+
+    /** The initial capacity of the deframing buffer. */
+    private static final int      INITIAL_FRAME_SIZE = 64;
+
+    // The start tag, stop tag, and the escape tag.
+    private static final byte     startTag  = (byte)'{';
+    private static final byte     stopTag   = (byte)'}';
+    private static final byte     escapeTag = (byte)'\\';
+
+    /** Finds the bytes that must be escaped, which are the tags. */
+    private static final ByteScanner scanner = new ByteScanner(startTag, stopTag, escapeTag);
+    // =========================================================================
+
+
+
+// =============================================================================
+} // class StagedDataLinkLayer
+// =============================================================================
@@ -0,0 +1,697 @@
+// =============================================================================
+// IMPORTS
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+// =============================================================================
+
+
+
+// =============================================================================
+/**
+ * Reads a topology file describing media, hosts, bridges, and traffic, checks
+ * it, and builds a <code>SegmentedSimulation</code> from it.  Each line is a
+ * declaration; blank lines and anything after a <code>#</code> are ignored.
+ *
+ * <pre>
+ * seed    5
+ * medium  lan[100] LowNoise error=0.0001
+ * host    pc[1000] lan[*] CRC frame-size=16
+ * bridge  lan[0..98] lan[1..99] Dumb latency=1024
+ * traffic pc[*] start=0 interval=65536 count=4 size=64 stagger=8
+ * </pre>
+ *
+ * A name followed by a count in brackets declares a group.  A host line
+ * creates its count of hosts on every medium that it names, in order.  A
+ * reference names a whole group (<code>lan</code> or <code>lan[*]</code>),
+ * one member (<code>lan[3]</code>), or a range (<code>lan[0..9]</code>).  A
+ * bridge line joins the members of its two references in pairs, or joins one
+ * medium to each of many.  Traffic starts <code>stagger</code> bit-times later
+ * for each successive host.
+ *
+ * The whole file is checked before anything is created, and every error is
+ * reported with its line.  Every host of a line shares one configuration.
+ *
+ * @file   TopologyLoader.java
+ * @date   October 2026
+ */
+public class TopologyLoader {
+// =============================================================================
+
+
+
+    // =========================================================================
+    /**
+     * The entry point.  Load a topology file and run it, or only check it.
+     *
+     * @param args The command-line arguments.
+     */
+    public static void main (String[] args) {
+
+	int     threads = Runtime.getRuntime().availableProcessors();
+	boolean check   = false;
+	String  path    = null;
+	for (int i = 0; i < args.length; i += 1) {
+	    if (args[i].equals("--threads") && i + 1 < args.length) {
+		threads = Integer.parseInt(args[++i]);
+	    } else if (args[i].equals("--check")) {
+		check = true;
+	    } else if (path == null && !args[i].startsWith("--")) {
+		path = args[i];
+	    } else {
+		usage();
+	    }
+	}
+	if (path == null) {
+	    usage();
+	}
+
+	TopologyLoader topology = read(path);
+	System.out.println(topology.describe());
+	if (check) {
+	    return;
+	}
+	long                start      = System.nanoTime();
+	SegmentedSimulation simulation = topology.build();
+	System.out.printf("Built in %.3f s\n", (System.nanoTime() - start) / 1e9);
+	simulation.run(threads);
+	System.out.println(simulation.summary());
+
+    } // main ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Print the command-line usage and exit.
+     */
+    private static void usage () {
+
+	System.err.println("Usage: java TopologyLoader " +
+			   "[--threads <count>] "     +
+			   "[--check] "               +
+			   "<topology file>");
+	System.exit(1);
+
+    } // usage ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // PUBLIC METHODS
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Read and check a topology file.
+     *
+     * @param  path The pathname of the file.
+     * @return the checked topology.
+     * @throws RuntimeException if the file cannot be read, or if it is not a
+     *                          valid topology, listing every error.
+     */
+    public static TopologyLoader read (String path) {
+
+	List<String> lines;
+	try {
+	    lines = Files.readAllLines(Paths.get(path), StandardCharsets.UTF_8);
+	} catch (IOException e) {
+	    throw new RuntimeException("Unexpected failure in reading " + path);
+	}
+	return parse(path, lines);
+
+    } // read ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Parse and check the lines of a topology.
+     *
+     * @param  source The name of the topology, for error messages.
+     * @param  lines  The lines of the topology.
+     * @return the checked topology.
+     * @throws RuntimeException if the lines are not a valid topology, listing
+     *                          every error.
+     */
+    public static TopologyLoader parse (String source, List<String> lines) {
+
+	TopologyLoader topology = new TopologyLoader();
+	for (int i = 0; i < lines.size(); i += 1) {
+	    String line = lines.get(i);
+	    int    hash = line.indexOf('#');
+	    if (hash >= 0) {
+		line = line.substring(0, hash);
+	    }
+	    line = line.trim();
+	    if (line.isEmpty()) {
+		continue;
+	    }
+	    try {
+		topology.declare(line.split("\\s+"), i + 1);
+	    } catch (RuntimeException e) {
+		topology.errors.add(source + ":" + (i + 1) + ": " + e.getMessage());
+	    }
+	}
+	topology.checkBridges(source);
+
+	if (!topology.errors.isEmpty()) {
+	    StringBuilder message = new StringBuilder("Invalid topology");
+	    for (String error : topology.errors) {
+		message.append("\n  ").append(error);
+	    }
+	    throw new RuntimeException(message.toString());
+	}
+	return topology;
+
+    } // parse ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Create the simulation that this topology describes.
+     *
+     * @return the new simulation, ready to run.
+     */
+    public SegmentedSimulation build () {
+
+	SegmentedSimulation simulation = new SegmentedSimulation(seed);
+	for (MediumGroup group : media) {
+	    for (int i = 0; i < group.count; i += 1) {
+		simulation.addSegment(group.type, group.config);
+	    }
+	}
+	for (HostGroup group : hosts) {
+	    for (int m = 0; m < group.media.length; m += 1) {
+		for (int i = 0; i < group.perMedium; i += 1) {
+		    simulation.addHost(group.media[m], group.type, group.config);
+		}
+	    }
+	}
+	for (Bridge bridge : bridges) {
+	    simulation.addBridge(bridge.first, bridge.second, bridge.type,
+				 bridge.config, bridge.latency);
+	}
+	for (Traffic traffic : traffic) {
+	    for (int i = 0; i < traffic.hosts.length; i += 1) {
+		simulation.addTraffic(traffic.hosts[i],
+				      traffic.start + i * traffic.stagger,
+				      traffic.interval,
+				      traffic.count,
+				      traffic.size);
+	    }
+	}
+	return simulation;
+
+    } // build ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /** @return a description of the size of this topology. */
+    public String describe () {
+
+	long flows = 0;
+	for (Traffic declaration : traffic) {
+	    flows += declaration.hosts.length;
+	}
+	return String.format("Topology: %d media, %d hosts, %d bridges, %d traffic" +
+			     " generators, seed %d",
+			     mediumCount, hostCount, bridges.size(), flows, seed);
+
+    } // describe ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // PRIVATE METHODS
+    // =========================================================================
+
+
+
+    // =========================================================================
+    private TopologyLoader () {
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Record one declaration.
+     *
+     * @param  words The words of the declaration.
+     * @param  line  The number of its line.
+     * @throws RuntimeException if the declaration is invalid.
+     */
+    private void declare (String[] words, int line) {
+
+	String              keyword = words[0];
+	Map<String, String> options = options(words);
+	if (keyword.equals("seed") && words.length == 2) {
+	    seed = Long.parseLong(words[1]);
+
+	} else if (keyword.equals("medium") && words.length >= 3) {
+	    MediumGroup group = new MediumGroup();
+	    group.type   = words[2];
+	    group.config = MediumConfig.DEFAULT;
+	    ProviderRegistry.mediumProvider(group.type);
+	    for (Map.Entry<String, String> option : options.entrySet()) {
+		if (option.getKey().equals("error")) {
+		    group.config = group.config.withErrorProbability(parseDouble(option));
+		} else {
+		    throw new RuntimeException("Unknown medium option " + option.getKey());
+		}
+	    }
+	    group.count = define(words[1], mediaByName, mediumCount);
+	    mediumCount += group.count;
+	    media.add(group);
+
+	} else if (keyword.equals("host") && words.length >= 4) {
+	    HostGroup group = new HostGroup();
+	    group.media  = resolve(words[2], mediaByName, "medium");
+	    group.type   = words[3];
+	    group.config = layerConfig(group.type, options);
+	    int perMedium = count(words[1]);
+	    if ((long)perMedium * group.media.length > Integer.MAX_VALUE - hostCount) {
+		throw new RuntimeException("Too many hosts");
+	    }
+	    group.perMedium = perMedium;
+	    define(name(words[1]) + "[" + perMedium * group.media.length + "]",
+		   hostsByName, hostCount);
+	    hostCount += perMedium * group.media.length;
+	    hosts.add(group);
+
+	} else if (keyword.equals("bridge") && words.length >= 4) {
+	    int[]       first   = resolve(words[1], mediaByName, "medium");
+	    int[]       second  = resolve(words[2], mediaByName, "medium");
+	    String      type    = words[3];
+	    long        latency = DEFAULT_LATENCY;
+	    if (options.containsKey("latency")) {
+		latency = parseLong(options, "latency");
+		options.remove("latency");
+		if (latency < 1) {
+		    throw new RuntimeException("Invalid bridge latency " + latency);
+		}
+	    }
+	    LayerConfig config  = layerConfig(type, options);
+	    if (first.length != second.length && first.length != 1 && second.length != 1) {
+		throw new RuntimeException("Cannot pair " + first.length + " media with " +
+					   second.length);
+	    }
+	    int pairs = Math.max(first.length, second.length);
+	    for (int i = 0; i < pairs; i += 1) {
+		Bridge bridge = new Bridge();
+		bridge.first   = first[first.length == 1 ? 0 : i];
+		bridge.second  = second[second.length == 1 ? 0 : i];
+		bridge.type    = type;
+		bridge.config  = config;
+		bridge.latency = latency;
+		bridge.line    = line;
+		bridges.add(bridge);
+	    }
+
+	} else if (keyword.equals("traffic") && words.length >= 2) {
+	    Traffic declaration = new Traffic();
+	    declaration.hosts    = resolve(words[1], hostsByName, "host");
+	    declaration.start    = optionalLong(options, "start", 0);
+	    declaration.interval = optionalLong(options, "interval", DEFAULT_INTERVAL);
+	    declaration.count    = (int)optionalLong(options, "count", 1);
+	    declaration.size     = (int)optionalLong(options, "size", DEFAULT_SIZE);
+	    declaration.stagger  = optionalLong(options, "stagger", 0);
+	    if (!options.isEmpty()) {
+		throw new RuntimeException("Unknown traffic option " +
+					   options.keySet().iterator().next());
+	    }
+	    if (declaration.start < 0 || declaration.interval < 1 ||
+		declaration.count < 0 || declaration.size < 1 ||
+		declaration.stagger < 0) {
+		throw new RuntimeException("Invalid traffic settings");
+	    }
+	    traffic.add(declaration);
+
+	} else {
+	    throw new RuntimeException("Invalid declaration: " + String.join(" ", words));
+	}
+
+    } // declare ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Check that the bridges form no loop, including a bridge that joins a
+     * medium to itself.
+     */
+    private void checkBridges (String source) {
+
+	int[] parent = new int[mediumCount];
+	for (int i = 0; i < mediumCount; i += 1) {
+	    parent[i] = i;
+	}
+	for (Bridge bridge : bridges) {
+	    int a = root(parent, bridge.first);
+	    int b = root(parent, bridge.second);
+	    if (a == b) {
+		errors.add(source + ":" + bridge.line + ": Bridge between media " +
+			   bridge.first + " and " +
+			   bridge.second + " would form a loop");
+		return;
+	    }
+	    parent[a] = b;
+	}
+
+    } // checkBridges ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    private static int root (int[] parent, int i) {
+
+	while (parent[i] != i) {
+	    parent[i] = parent[parent[i]];
+	    i         = parent[i];
+	}
+	return i;
+
+    } // root ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Build the one configuration shared by every layer that a line creates,
+     * consuming the layer options.
+     *
+     * @throws RuntimeException if the type or an option is invalid.
+     */
+    private LayerConfig layerConfig (String type, Map<String, String> options) {
+
+	ProviderRegistry.layerProvider(type);
+	LayerConfig config = LayerConfig.DEFAULT;
+	for (Map.Entry<String, String> option : options.entrySet()) {
+	    String key = option.getKey();
+	    if (key.equals("frame-size")) {
+		config = config.withFrameSize(parseInt(option));
+	    } else if (key.equals("detector")) {
+		ErrorDetectors.forName(option.getValue());
+		config = config.withDetector(option.getValue());
+	    } else if (key.equals("stages")) {
+		config = config.withStages(option.getValue().split(","));
+	    } else if (key.equals("interleave")) {
+		config = config.withInterleaveDepth(parseInt(option));
+	    } else if (key.equals("max-frame-length")) {
+		config = config.withMaxFrameLength(parseInt(option));
+	    } else if (key.equals("line-code")) {
+		config = config.withLineCode(option.getValue());
+	    } else {
+		throw new RuntimeException("Unknown layer option " + key);
+	    }
+	}
+	return config;
+
+    } // layerConfig ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /** @return the <code>key=value</code> options of a declaration, in order. */
+    private static Map<String, String> options (String[] words) {
+
+	Map<String, String> options = new LinkedHashMap<String, String>();
+	for (int i = 1; i < words.length; i += 1) {
+	    int equals = words[i].indexOf('=');
+	    if (equals > 0) {
+		options.put(words[i].substring(0, equals), words[i].substring(equals + 1));
+	    }
+	}
+	return options;
+
+    } // options ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Declare a group.
+     *
+     * @return the number of members.
+     * @throws RuntimeException if the name is taken or the count is invalid.
+     */
+    private static int define (String declaration, Map<String, int[]> groups, int first) {
+
+	String name  = name(declaration);
+	int    count = count(declaration);
+	if (groups.containsKey(name)) {
+	    throw new RuntimeException("Duplicate name " + name);
+	}
+	groups.put(name, new int[] { first, count });
+	return count;
+
+    } // define ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /** @return the name of a group declaration or reference. */
+    private static String name (String word) {
+
+	int bracket = word.indexOf('[');
+	String name = (bracket < 0) ? word : word.substring(0, bracket);
+	if (name.isEmpty() || name.contains("=")) {
+	    throw new RuntimeException("Invalid name " + word);
+	}
+	return name;
+
+    } // name ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /** @return the count of a group declaration, 1 if none is given. */
+    private static int count (String word) {
+
+	int bracket = word.indexOf('[');
+	if (bracket < 0) {
+	    return 1;
+	}
+	if (!word.endsWith("]")) {
+	    throw new RuntimeException("Invalid group " + word);
+	}
+	int count = Integer.parseInt(word.substring(bracket + 1, word.length() - 1));
+	if (count < 1) {
+	    throw new RuntimeException("Invalid group size " + count);
+	}
+	return count;
+
+    } // count ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @return the indices of the members named by a reference.
+     * @throws RuntimeException if the reference names no such members.
+     */
+    private static int[] resolve (String reference, Map<String, int[]> groups, String kind) {
+
+	String name  = name(reference);
+	int[]  group = groups.get(name);
+	if (group == null) {
+	    throw new RuntimeException("Unknown " + kind + " " + name);
+	}
+	int from = 0;
+	int to   = group[1] - 1;
+	int bracket = reference.indexOf('[');
+	if (bracket >= 0) {
+	    if (!reference.endsWith("]")) {
+		throw new RuntimeException("Invalid reference " + reference);
+	    }
+	    String range = reference.substring(bracket + 1, reference.length() - 1);
+	    int    dots  = range.indexOf("..");
+	    if (range.equals("*")) {
+		// The whole group.
+	    } else if (dots >= 0) {
+		from = Integer.parseInt(range.substring(0, dots));
+		to   = Integer.parseInt(range.substring(dots + 2));
+	    } else {
+		from = Integer.parseInt(range);
+		to   = from;
+	    }
+	}
+	if (from < 0 || to >= group[1] || from > to) {
+	    throw new RuntimeException("No " + kind + " " + reference);
+	}
+
+	int[] indices = new int[to - from + 1];
+	for (int i = 0; i < indices.length; i += 1) {
+	    indices[i] = group[0] + from + i;
+	}
+	return indices;
+
+    } // resolve ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    private static int parseInt (Map.Entry<String, String> option) {
+
+	try {
+	    return Integer.parseInt(option.getValue());
+	} catch (NumberFormatException e) {
+	    throw new RuntimeException("Invalid " + option.getKey() + " " + option.getValue());
+	}
+
+    } // parseInt ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    private static double parseDouble (Map.Entry<String, String> option) {
+
+	try {
+	    return Double.parseDouble(option.getValue());
+	} catch (NumberFormatException e) {
+	    throw new RuntimeException("Invalid " + option.getKey() + " " + option.getValue());
+	}
+
+    } // parseDouble ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    private static long parseLong (Map<String, String> options, String key) {
+
+	try {
+	    return Long.parseLong(options.get(key));
+	} catch (NumberFormatException e) {
+	    throw new RuntimeException("Invalid " + key + " " + options.get(key));
+	}
+
+    } // parseLong ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /** @return an option's value, removing it, or the default if absent. */
+    private static long optionalLong (Map<String, String> options, String key, long absent) {
+
+	if (!options.containsKey(key)) {
+	    return absent;
+	}
+	long value = parseLong(options, key);
+	options.remove(key);
+	return value;
+
+    } // optionalLong ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // INNER CLASSES
+
+    /** Media declared by one line. */
+    private static final class MediumGroup {
+	String       type;
+	MediumConfig config;
+	int          count;
+    }
+
+    /** Hosts declared by one line. */
+    private static final class HostGroup {
+	int[]        media;
+	int          perMedium;
+	String       type;
+	LayerConfig  config;
+    }
+
+    /** One bridge. */
+    private static final class Bridge {
+	int          first;
+	int          second;
+	String       type;
+	LayerConfig  config;
+	long         latency;
+	int          line;
+    }
+
+    /** The traffic declared by one line. */
+    private static final class Traffic {
+	int[]        hosts;
+	long         start;
+	long         interval;
+	int          count;
+	int          size;
+	long         stagger;
+    }
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // DATA MEMBERS
+
+    /** The seed of the simulation. */
+    private long                     seed        = LowNoiseMedium.DEFAULT_SEED;
+
+    // The declarations, in order.
+    private final List<MediumGroup>  media       = new ArrayList<MediumGroup>();
+    private final List<HostGroup>    hosts       = new ArrayList<HostGroup>();
+    private final List<Bridge>       bridges     = new ArrayList<Bridge>();
+    private final List<Traffic>      traffic     = new ArrayList<Traffic>();
+
+    // The first index and size of each named group.
+    private final Map<String, int[]> mediaByName = new HashMap<String, int[]>();
+    private final Map<String, int[]> hostsByName = new HashMap<String, int[]>();
+
+    // The total numbers of media and hosts.
+    private int                      mediumCount = 0;
+    private int                      hostCount   = 0;
+
+    /** The errors found, with their lines. */
+    private final List<String>       errors      = new ArrayList<String>();
+
+    /** The default bridge latency, in bit-times. */
+    public static final long DEFAULT_LATENCY  = 1024;
+
+    /** The default time between messages, in bit-times. */
+    public static final long DEFAULT_INTERVAL = 65536;
+
+    /** The default size of a message, in bytes. */
+    public static final int  DEFAULT_SIZE     = 64;
+    // =========================================================================
+
+
+
+// =============================================================================
+} // class TopologyLoader
+// =============================================================================